@@ -3,9 +3,11 @@ package com.ives.api;
 import org.mybatis.spring.annotation.MapperScan;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
 @MapperScan("com.ives.api.mapper")
+@EnableScheduling
 public class BackendJavaApplication {
 
 	public static void main(String[] args) {
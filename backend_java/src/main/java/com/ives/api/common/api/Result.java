@@ -1,5 +1,6 @@
 package com.ives.api.common.api;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.ives.api.common.constant.ErrorCode;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -32,6 +33,12 @@ public class Result<T> implements Serializable {
      */
     private long timestamp;
 
+    /**
+     * 数据库不可用时返回的缓存旧结果标记为true，正常结果不输出该字段
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Boolean stale;
+
     /**
      * 私有构造方法，强制使用静态工厂方法
      */
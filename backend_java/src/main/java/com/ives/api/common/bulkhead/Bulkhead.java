@@ -0,0 +1,18 @@
+package com.ives.api.common.bulkhead;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 为控制器方法（或整个控制器）指定隔离舱，方法上的注解优先
+ * 同一隔离舱内同时执行的请求数受许可数限制，超出的请求等待有限时间后被拒绝
+ */
+@Documented
+@Target({ElementType.METHOD, ElementType.TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Bulkhead {
+    BulkheadType value();
+}
@@ -0,0 +1,135 @@
+package com.ives.api.common.bulkhead;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ives.api.common.api.Result;
+import com.ives.api.common.constant.ErrorCode;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 按@Bulkhead进行准入控制
+ * 许可在首次分派时申请，请求（含异步流式响应）结束时释放；申请不到时立即返回503与SERVICE_BUSY
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class BulkheadInterceptor implements AsyncHandlerInterceptor {
+    private static final String PERMIT_ATTRIBUTE = BulkheadInterceptor.class.getName() + ".permit";
+    private static final String RETRY_AFTER_SECONDS = "1";
+
+    private final BulkheadRegistry bulkheadRegistry;
+    private final ObjectMapper objectMapper;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler)
+            throws IOException {
+        // 异步/错误分派沿用首次分派时取得的许可
+        if (request.getDispatcherType() != DispatcherType.REQUEST || !(handler instanceof HandlerMethod method)) {
+            return true;
+        }
+        Bulkhead bulkhead = method.getMethodAnnotation(Bulkhead.class);
+        if (bulkhead == null) {
+            bulkhead = method.getBeanType().getAnnotation(Bulkhead.class);
+        }
+        if (bulkhead == null) {
+            return true;
+        }
+
+        BulkheadRegistry.Compartment compartment = bulkheadRegistry.get(bulkhead.value());
+        boolean entered;
+        try {
+            entered = compartment.tryEnter();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            entered = false;
+        }
+        if (!entered) {
+            log.warn("隔离舱{}已满，拒绝请求: {}", compartment.getType(), request.getRequestURI());
+            reject(response);
+            return false;
+        }
+        request.setAttribute(PERMIT_ATTRIBUTE, new Permit(compartment));
+        return true;
+    }
+
+    /**
+     * 流式响应在异步线程中继续占用数据库，许可保留到异步处理结束
+     */
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response,
+                                               Object handler) {
+        Permit permit = (Permit) request.getAttribute(PERMIT_ATTRIBUTE);
+        if (permit != null) {
+            request.getAsyncContext().addListener(permit);
+        }
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception ex) {
+        Permit permit = (Permit) request.getAttribute(PERMIT_ATTRIBUTE);
+        if (permit != null && !request.isAsyncStarted()) {
+            permit.release();
+        }
+    }
+
+    private void reject(HttpServletResponse response) throws IOException {
+        response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+        response.setHeader(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS);
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        objectMapper.writeValue(response.getOutputStream(), Result.error(ErrorCode.SERVICE_BUSY));
+    }
+
+    /**
+     * 一次请求持有的许可，正常结束与异步结束/超时/出错都会尝试释放，只释放一次
+     */
+    private static final class Permit implements AsyncListener {
+        private final BulkheadRegistry.Compartment compartment;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        Permit(BulkheadRegistry.Compartment compartment) {
+            this.compartment = compartment;
+        }
+
+        void release() {
+            if (released.compareAndSet(false, true)) {
+                compartment.exit();
+            }
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            // 再次进入异步时沿用当前许可
+        }
+    }
+}
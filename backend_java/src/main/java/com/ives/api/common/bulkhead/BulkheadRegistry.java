@@ -0,0 +1,107 @@
+package com.ives.api.common.bulkhead;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 各隔离舱的许可与指标
+ * 指标（tag bulkhead=heavy|light）：
+ * bulkhead.permits.available 剩余许可；bulkhead.waiting 排队中的请求；
+ * bulkhead.calls（tag result=accepted|rejected）进入/拒绝次数；bulkhead.wait 进入前的等待时间
+ */
+@Slf4j
+@Component
+public class BulkheadRegistry {
+    private final Map<BulkheadType, Compartment> compartments = new EnumMap<>(BulkheadType.class);
+
+    public BulkheadRegistry(MeterRegistry meterRegistry,
+                            @Value("${myapp.bulkhead.heavy.permits:6}") int heavyPermits,
+                            @Value("${myapp.bulkhead.heavy.max-wait-ms:2000}") long heavyMaxWaitMs,
+                            @Value("${myapp.bulkhead.light.permits:64}") int lightPermits,
+                            @Value("${myapp.bulkhead.light.max-wait-ms:500}") long lightMaxWaitMs) {
+        compartments.put(BulkheadType.HEAVY,
+                new Compartment(BulkheadType.HEAVY, heavyPermits, heavyMaxWaitMs, meterRegistry));
+        compartments.put(BulkheadType.LIGHT,
+                new Compartment(BulkheadType.LIGHT, lightPermits, lightMaxWaitMs, meterRegistry));
+        log.info("接口隔离舱: heavy={}个许可/等待{}ms, light={}个许可/等待{}ms",
+                heavyPermits, heavyMaxWaitMs, lightPermits, lightMaxWaitMs);
+    }
+
+    public Compartment get(BulkheadType type) {
+        return compartments.get(type);
+    }
+
+    /**
+     * 单个隔离舱：公平信号量 + 有限等待
+     */
+    public static final class Compartment {
+        private final BulkheadType type;
+        private final Semaphore permits;
+        private final long maxWaitMs;
+        private final AtomicInteger waiting = new AtomicInteger();
+        private final Counter accepted;
+        private final Counter rejected;
+        private final Timer waitTimer;
+
+        Compartment(BulkheadType type, int permits, long maxWaitMs, MeterRegistry meterRegistry) {
+            this.type = type;
+            this.permits = new Semaphore(permits, true);
+            this.maxWaitMs = maxWaitMs;
+            String tag = type.name().toLowerCase(Locale.ROOT);
+            Gauge.builder("bulkhead.permits.available", this.permits, Semaphore::availablePermits)
+                    .tag("bulkhead", tag)
+                    .register(meterRegistry);
+            Gauge.builder("bulkhead.waiting", waiting, AtomicInteger::get)
+                    .tag("bulkhead", tag)
+                    .register(meterRegistry);
+            this.accepted = Counter.builder("bulkhead.calls")
+                    .tag("bulkhead", tag).tag("result", "accepted")
+                    .register(meterRegistry);
+            this.rejected = Counter.builder("bulkhead.calls")
+                    .tag("bulkhead", tag).tag("result", "rejected")
+                    .register(meterRegistry);
+            this.waitTimer = Timer.builder("bulkhead.wait")
+                    .tag("bulkhead", tag)
+                    .register(meterRegistry);
+        }
+
+        public BulkheadType getType() {
+            return type;
+        }
+
+        /**
+         * 申请一个许可，最多等待maxWaitMs；返回false表示隔离舱已满
+         */
+        public boolean tryEnter() throws InterruptedException {
+            long start = System.nanoTime();
+            boolean entered = permits.tryAcquire();
+            if (!entered && maxWaitMs > 0) {
+                waiting.incrementAndGet();
+                try {
+                    entered = permits.tryAcquire(maxWaitMs, TimeUnit.MILLISECONDS);
+                } finally {
+                    waiting.decrementAndGet();
+                }
+            }
+            waitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            (entered ? accepted : rejected).increment();
+            return entered;
+        }
+
+        public void exit() {
+            permits.release();
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.ives.api.common.bulkhead;
+
+/**
+ * 接口隔离舱分类
+ */
+public enum BulkheadType {
+    /**
+     * 重查询：全量/多类别收益率、历史序列等，可能长时间占用数据库连接
+     */
+    HEAVY,
+    /**
+     * 轻查询：登录、收藏、类别列表等，只做少量点查
+     */
+    LIGHT
+}
@@ -10,7 +10,11 @@ public enum ErrorCode {
     UNAUTHORIZED(401, "未授权"),
     FORBIDDEN(403, "禁止访问"),
     NOT_FOUND(404, "资源未找到"),
+    TOO_MANY_REQUESTS(429, "请求过于频繁，请稍后重试"),
     INTERNAL_ERROR(500, "系统内部错误"),
+    SERVICE_BUSY(503, "服务繁忙，请稍后重试"),
+    DB_UNAVAILABLE(503, "数据库暂不可用，请稍后重试"),
+    REQUEST_TIMEOUT(504, "查询超时，请缩小查询范围后重试"),
 
     // 业务错误码
     USER_NOT_FOUND(1001, "用户不存在"),
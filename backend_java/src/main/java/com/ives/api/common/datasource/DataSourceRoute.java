@@ -0,0 +1,32 @@
+package com.ives.api.common.datasource;
+
+/**
+ * 当前线程查询的目标库，由ReadReplicaInterceptor在单次Mapper调用期间设置
+ */
+public enum DataSourceRoute {
+    PRIMARY, REPLICA;
+
+    private static final ThreadLocal<DataSourceRoute> CURRENT = new ThreadLocal<>();
+
+    /**
+     * 未设置时走主库
+     */
+    public static DataSourceRoute current() {
+        DataSourceRoute route = CURRENT.get();
+        return route != null ? route : PRIMARY;
+    }
+
+    static DataSourceRoute set(DataSourceRoute route) {
+        DataSourceRoute previous = CURRENT.get();
+        CURRENT.set(route);
+        return previous;
+    }
+
+    static void restore(DataSourceRoute previous) {
+        if (previous != null) {
+            CURRENT.set(previous);
+        } else {
+            CURRENT.remove();
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.ives.api.common.datasource;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.reflection.ExceptionUtil;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Set;
+
+/**
+ * MyBatis插件：只读Mapper的SELECT在副本可用时发往副本
+ * 事务（含事务同步）内的查询、其余Mapper与所有写操作仍走主库；
+ * 副本取不到连接时标记副本不可用，并在主库上重试本次查询。
+ * 指标：db.route（tag target=primary|replica）
+ */
+@Slf4j
+@Intercepts({
+        @Signature(type = Executor.class, method = "query",
+                args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class}),
+        @Signature(type = Executor.class, method = "query",
+                args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class,
+                        CacheKey.class, BoundSql.class})
+})
+public class ReadReplicaInterceptor implements Interceptor {
+    private final ReplicaHealth replicaHealth;
+    private final Set<String> readOnlyNamespaces;
+    private final Counter primaryReads;
+    private final Counter replicaReads;
+
+    public ReadReplicaInterceptor(ReplicaHealth replicaHealth, Set<String> readOnlyNamespaces,
+                                  MeterRegistry meterRegistry) {
+        this.replicaHealth = replicaHealth;
+        this.readOnlyNamespaces = readOnlyNamespaces;
+        this.primaryReads = Counter.builder("db.route").tag("target", "primary").register(meterRegistry);
+        this.replicaReads = Counter.builder("db.route").tag("target", "replica").register(meterRegistry);
+    }
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+        MappedStatement statement = (MappedStatement) invocation.getArgs()[0];
+        if (!routesToReplica(statement)) {
+            primaryReads.increment();
+            return invocation.proceed();
+        }
+
+        DataSourceRoute previous = DataSourceRoute.set(DataSourceRoute.REPLICA);
+        try {
+            replicaReads.increment();
+            return invocation.proceed();
+        } catch (Throwable e) {
+            Throwable cause = ExceptionUtil.unwrapThrowable(e);
+            if (!(cause instanceof CannotGetJdbcConnectionException)) {
+                throw cause;
+            }
+            log.warn("只读副本取连接失败，改由主库执行{}: {}", statement.getId(), cause.getMessage());
+            replicaHealth.markUnavailable();
+            DataSourceRoute.set(DataSourceRoute.PRIMARY);
+            primaryReads.increment();
+            return invocation.proceed();
+        } finally {
+            DataSourceRoute.restore(previous);
+        }
+    }
+
+    private boolean routesToReplica(MappedStatement statement) {
+        if (statement.getSqlCommandType() != SqlCommandType.SELECT
+                || TransactionSynchronizationManager.isSynchronizationActive()
+                || !replicaHealth.isAvailable()) {
+            return false;
+        }
+        String id = statement.getId();
+        int dot = id.lastIndexOf('.');
+        return dot > 0 && readOnlyNamespaces.contains(id.substring(0, dot));
+    }
+}
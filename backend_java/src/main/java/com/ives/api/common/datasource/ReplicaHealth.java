@@ -0,0 +1,121 @@
+package com.ives.api.common.datasource;
+
+import com.ives.api.market.NavDataChangedEvent;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.function.LongSupplier;
+
+/**
+ * 只读副本可用性
+ * 定时在副本上执行lag-query读取复制延迟，超过max-lag-seconds、查询失败或连接失败时读请求回到主库；
+ * 净值写入后的max-lag-seconds内同样走主库，保证写入后立即可读。
+ * 指标：db.replica.lag.seconds（-1表示未知），db.replica.available（0/1）
+ */
+@Slf4j
+public class ReplicaHealth {
+    private static final String[] LAG_COLUMNS = {"Seconds_Behind_Source", "Seconds_Behind_Master"};
+
+    private final DataSource replica;
+    private final String lagQuery;
+    private final long maxLagSeconds;
+    private final LongSupplier clock;
+    private volatile boolean healthy;
+    private volatile long lagSeconds = -1;
+    private volatile long primaryOnlyUntil;
+
+    public ReplicaHealth(DataSource replica, String lagQuery, long maxLagSeconds, MeterRegistry meterRegistry) {
+        this(replica, lagQuery, maxLagSeconds, meterRegistry, System::nanoTime);
+    }
+
+    ReplicaHealth(DataSource replica, String lagQuery, long maxLagSeconds, MeterRegistry meterRegistry,
+                  LongSupplier clock) {
+        this.replica = replica;
+        this.lagQuery = lagQuery;
+        this.maxLagSeconds = maxLagSeconds;
+        this.clock = clock;
+        this.primaryOnlyUntil = clock.getAsLong();
+        Gauge.builder("db.replica.lag.seconds", this, h -> h.lagSeconds).register(meterRegistry);
+        Gauge.builder("db.replica.available", this, h -> h.isAvailable() ? 1 : 0).register(meterRegistry);
+    }
+
+    /**
+     * 读请求当前能否发往副本
+     */
+    public boolean isAvailable() {
+        return healthy && clock.getAsLong() - primaryOnlyUntil >= 0;
+    }
+
+    public long getLagSeconds() {
+        return lagSeconds;
+    }
+
+    @Scheduled(fixedDelayString = "${myapp.datasource.replica.check-interval-ms:5000}")
+    public void check() {
+        boolean wasHealthy = healthy;
+        try (Connection connection = replica.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.setQueryTimeout((int) Math.max(1, maxLagSeconds));
+            try (ResultSet rs = statement.executeQuery(lagQuery)) {
+                // 无结果说明不是复制从库（如本地同一实例），视为无延迟
+                Long lag = rs.next() ? readLag(rs) : Long.valueOf(0);
+                lagSeconds = lag != null ? lag : -1;
+                healthy = lag != null && lag <= maxLagSeconds;
+            }
+        } catch (SQLException e) {
+            lagSeconds = -1;
+            healthy = false;
+            if (wasHealthy) {
+                log.warn("只读副本检查失败，读请求回到主库: {}", e.getMessage());
+            }
+            return;
+        }
+        if (wasHealthy != healthy) {
+            log.info("只读副本{}，复制延迟{}秒", healthy ? "可用" : "延迟过大或复制中断，读请求回到主库", lagSeconds);
+        }
+    }
+
+    /**
+     * 复制中断时延迟列为NULL，返回null
+     */
+    private static Long readLag(ResultSet rs) throws SQLException {
+        ResultSetMetaData meta = rs.getMetaData();
+        int column = 1;
+        for (int i = 1; i <= meta.getColumnCount(); i++) {
+            for (String name : LAG_COLUMNS) {
+                if (name.equalsIgnoreCase(meta.getColumnLabel(i))) {
+                    column = i;
+                }
+            }
+        }
+        long lag = rs.getLong(column);
+        return rs.wasNull() ? null : lag;
+    }
+
+    /**
+     * 副本取连接失败：停用到下一次检查成功为止
+     */
+    public void markUnavailable() {
+        healthy = false;
+    }
+
+    /**
+     * 先于常驻数据刷新等监听方执行，使它们读到刚写入的主库数据
+     */
+    @EventListener
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void onNavDataChanged(NavDataChangedEvent event) {
+        primaryOnlyUntil = clock.getAsLong() + maxLagSeconds * 1_000_000_000L;
+    }
+}
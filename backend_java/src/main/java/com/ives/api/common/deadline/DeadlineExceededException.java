@@ -0,0 +1,13 @@
+package com.ives.api.common.deadline;
+
+import com.ives.api.common.constant.ErrorCode;
+import com.ives.api.common.exception.BusinessException;
+
+/**
+ * 请求已超过截止时间，后续查询与计算不再进行
+ */
+public class DeadlineExceededException extends BusinessException {
+    public DeadlineExceededException() {
+        super(ErrorCode.REQUEST_TIMEOUT);
+    }
+}
@@ -0,0 +1,83 @@
+package com.ives.api.common.deadline;
+
+import com.ives.api.common.bulkhead.Bulkhead;
+import com.ives.api.common.bulkhead.BulkheadType;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+/**
+ * 为请求设置截止时间
+ * 优先取请求头X-Request-Timeout-Ms（不超过max-ms），否则按接口隔离舱分类取默认值；
+ * 两者都没有时不设截止时间
+ */
+@Component
+public class DeadlineInterceptor implements AsyncHandlerInterceptor {
+    public static final String TIMEOUT_HEADER = "X-Request-Timeout-Ms";
+
+    @Value("${myapp.deadline.heavy-ms:30000}")
+    private long heavyMs;
+
+    @Value("${myapp.deadline.light-ms:5000}")
+    private long lightMs;
+
+    @Value("${myapp.deadline.max-ms:120000}")
+    private long maxMs;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (request.getDispatcherType() != DispatcherType.REQUEST) {
+            return true;
+        }
+        long timeoutMs = timeoutOf(request, handler);
+        if (timeoutMs > 0) {
+            RequestDeadline.start(timeoutMs);
+        }
+        return true;
+    }
+
+    /**
+     * 流式响应转入异步线程后，容器线程上的截止时间不再需要
+     */
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response,
+                                               Object handler) {
+        RequestDeadline.clear();
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception ex) {
+        RequestDeadline.clear();
+    }
+
+    private long timeoutOf(HttpServletRequest request, Object handler) {
+        String header = request.getHeader(TIMEOUT_HEADER);
+        if (StringUtils.hasText(header)) {
+            try {
+                long requested = Long.parseLong(header.trim());
+                if (requested > 0) {
+                    return Math.min(requested, maxMs);
+                }
+            } catch (NumberFormatException ignored) {
+                // 非法值按接口默认处理
+            }
+        }
+        if (!(handler instanceof HandlerMethod method)) {
+            return 0;
+        }
+        Bulkhead bulkhead = method.getMethodAnnotation(Bulkhead.class);
+        if (bulkhead == null) {
+            bulkhead = method.getBeanType().getAnnotation(Bulkhead.class);
+        }
+        if (bulkhead == null) {
+            return 0;
+        }
+        return bulkhead.value() == BulkheadType.HEAVY ? heavyMs : lightMs;
+    }
+}
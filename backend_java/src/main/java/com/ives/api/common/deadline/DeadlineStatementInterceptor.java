@@ -0,0 +1,38 @@
+package com.ives.api.common.deadline;
+
+import org.apache.ibatis.executor.statement.StatementHandler;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.Statement;
+
+/**
+ * MyBatis插件：把请求剩余时间设为JDBC语句超时（秒，向上取整）
+ * 截止时间已过时不再发出查询；超时后由驱动取消服务端正在执行的语句
+ */
+@Component
+@Intercepts(@Signature(type = StatementHandler.class, method = "prepare",
+        args = {Connection.class, Integer.class}))
+public class DeadlineStatementInterceptor implements Interceptor {
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+        long remainingMs = RequestDeadline.remainingMillis();
+        if (remainingMs == Long.MAX_VALUE) {
+            return invocation.proceed();
+        }
+        RequestDeadline.check();
+
+        Statement statement = (Statement) invocation.proceed();
+        int seconds = (int) Math.min(Integer.MAX_VALUE, Math.max(1, (remainingMs + 999) / 1000));
+        int configured = statement.getQueryTimeout();
+        if (configured == 0 || configured > seconds) {
+            statement.setQueryTimeout(seconds);
+        }
+        return statement;
+    }
+}
@@ -0,0 +1,88 @@
+package com.ives.api.common.deadline;
+
+import java.util.function.Supplier;
+
+/**
+ * 当前请求的截止时间（线程内）
+ * 由DeadlineInterceptor在请求开始时设置；并行子任务通过wrap带到执行线程；
+ * 查询前由DeadlineStatementInterceptor换算为JDBC语句超时，计算阶段之间调用check()
+ */
+public final class RequestDeadline {
+    private static final ThreadLocal<Long> DEADLINE_NANOS = new ThreadLocal<>();
+
+    private RequestDeadline() {
+    }
+
+    static void start(long timeoutMs) {
+        DEADLINE_NANOS.set(System.nanoTime() + timeoutMs * 1_000_000L);
+    }
+
+    static void clear() {
+        DEADLINE_NANOS.remove();
+    }
+
+    /**
+     * 剩余毫秒数，未设置截止时间时返回Long.MAX_VALUE
+     */
+    public static long remainingMillis() {
+        Long deadline = DEADLINE_NANOS.get();
+        if (deadline == null) {
+            return Long.MAX_VALUE;
+        }
+        return Math.max(0, (deadline - System.nanoTime()) / 1_000_000L);
+    }
+
+    public static boolean isExpired() {
+        Long deadline = DEADLINE_NANOS.get();
+        return deadline != null && System.nanoTime() - deadline >= 0;
+    }
+
+    /**
+     * 截止时间已过则抛出DeadlineExceededException
+     */
+    public static void check() {
+        if (isExpired()) {
+            throw new DeadlineExceededException();
+        }
+    }
+
+    /**
+     * 以新的截止时间执行，结束后恢复原截止时间；用于不属于任何请求的后台查询
+     */
+    public static <T> T callWithin(long timeoutMs, Supplier<T> task) {
+        Long previous = DEADLINE_NANOS.get();
+        start(timeoutMs);
+        try {
+            return task.get();
+        } finally {
+            if (previous != null) {
+                DEADLINE_NANOS.set(previous);
+            } else {
+                DEADLINE_NANOS.remove();
+            }
+        }
+    }
+
+    /**
+     * 让任务在执行线程上沿用提交时的截止时间
+     */
+    public static Runnable wrap(Runnable task) {
+        Long deadline = DEADLINE_NANOS.get();
+        if (deadline == null) {
+            return task;
+        }
+        return () -> {
+            Long previous = DEADLINE_NANOS.get();
+            DEADLINE_NANOS.set(deadline);
+            try {
+                task.run();
+            } finally {
+                if (previous != null) {
+                    DEADLINE_NANOS.set(previous);
+                } else {
+                    DEADLINE_NANOS.remove();
+                }
+            }
+        };
+    }
+}
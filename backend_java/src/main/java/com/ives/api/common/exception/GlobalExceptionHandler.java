@@ -2,7 +2,10 @@ package com.ives.api.common.exception;
 
 import com.ives.api.common.api.Result;
 import com.ives.api.common.constant.ErrorCode;
+import com.ives.api.common.ratelimit.RateLimitExceededException;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.validation.BindingResult;
 import org.springframework.validation.FieldError;
@@ -28,6 +31,16 @@ public class GlobalExceptionHandler {
         return Result.error(e.getStatusCode(), e.getMessage());
     }
 
+    /**
+     * 1.1 处理限流异常：返回429并通过Retry-After告知重试时间
+     */
+    @ExceptionHandler(RateLimitExceededException.class)
+    @ResponseStatus(HttpStatus.TOO_MANY_REQUESTS)
+    public Result<Void> handleRateLimitExceededException(RateLimitExceededException e, HttpServletResponse response) {
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()));
+        return Result.error(e.getStatusCode(), e.getMessage());
+    }
+
     /**
      * 2. 处理参数校验异常 (Spring Validation)
      * 场景：DTO中的 @NotNull, @Email 校验失败
@@ -0,0 +1,144 @@
+package com.ives.api.common.job;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 按行追加的结果缓冲：不超过spillThreshold字节时留在内存，超过后整体转存到临时文件，之后的行直接追加到文件
+ * 记录每行的起始偏移，可按行号分页读取；写入与读取可并发进行，读到的是调用时已写完的行。
+ * 总字节数超过maxBytes时拒绝写入。
+ */
+public class SpillingLineBuffer implements Closeable {
+    private static final byte NEWLINE = '\n';
+
+    private final Path directory;
+    private final int spillThreshold;
+    private final long maxBytes;
+
+    private ByteArrayOutputStream memory = new ByteArrayOutputStream();
+    private FileChannel file;
+    /**
+     * offsets[i]为第i行的起始偏移，offsets[lines]为当前总字节数
+     */
+    private long[] offsets = new long[256];
+    private int lines;
+    private boolean closed;
+
+    public SpillingLineBuffer(Path directory, int spillThreshold, long maxBytes) {
+        this.directory = directory;
+        this.spillThreshold = spillThreshold;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * 追加一行（不含换行符）
+     *
+     * @throws IllegalStateException 超过字节上限或缓冲已关闭
+     */
+    public synchronized void append(byte[] line) throws IOException {
+        if (closed) {
+            throw new IllegalStateException("结果缓冲已关闭");
+        }
+        long size = offsets[lines];
+        long next = size + line.length + 1;
+        if (next > maxBytes) {
+            throw new IllegalStateException("结果超过" + maxBytes + "字节上限，请缩小查询范围");
+        }
+        if (file == null && next > spillThreshold) {
+            spill();
+        }
+        if (file == null) {
+            memory.write(line);
+            memory.write(NEWLINE);
+        } else {
+            ByteBuffer buffer = ByteBuffer.allocate(line.length + 1).put(line).put(NEWLINE).flip();
+            while (buffer.hasRemaining()) {
+                file.write(buffer, size + buffer.position());
+            }
+        }
+        if (lines + 1 == offsets.length) {
+            offsets = Arrays.copyOf(offsets, offsets.length * 2);
+        }
+        offsets[++lines] = next;
+    }
+
+    /**
+     * 读取从第from行起的至多limit行（不含换行符）
+     *
+     * @throws IllegalStateException 缓冲已关闭（任务已被删除），避免读者把空结果当作读完
+     */
+    public synchronized List<byte[]> read(int from, int limit) throws IOException {
+        if (closed) {
+            throw new IllegalStateException("任务已过期");
+        }
+        int to = (int) Math.min((long) from + limit, lines);
+        List<byte[]> result = new ArrayList<>(Math.max(to - from, 0));
+        if (from >= to) {
+            return result;
+        }
+        byte[] bytes = readRange(offsets[from], offsets[to]);
+        for (int i = from; i < to; i++) {
+            int start = (int) (offsets[i] - offsets[from]);
+            int end = (int) (offsets[i + 1] - offsets[from]) - 1;
+            result.add(Arrays.copyOfRange(bytes, start, end));
+        }
+        return result;
+    }
+
+    public synchronized int lines() {
+        return lines;
+    }
+
+    public synchronized long bytes() {
+        return offsets[lines];
+    }
+
+    public synchronized boolean spilled() {
+        return file != null;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        closed = true;
+        memory = null;
+        if (file != null) {
+            // 以DELETE_ON_CLOSE打开，关闭即删除
+            file.close();
+            file = null;
+        }
+    }
+
+    private void spill() throws IOException {
+        Files.createDirectories(directory);
+        Path path = Files.createTempFile(directory, "job-", ".ndjson");
+        file = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                StandardOpenOption.DELETE_ON_CLOSE);
+        ByteBuffer buffer = ByteBuffer.wrap(memory.toByteArray());
+        while (buffer.hasRemaining()) {
+            file.write(buffer, buffer.position());
+        }
+        memory = null;
+    }
+
+    private byte[] readRange(long start, long end) throws IOException {
+        if (file == null) {
+            return Arrays.copyOfRange(memory.toByteArray(), (int) start, (int) end);
+        }
+        ByteBuffer buffer = ByteBuffer.allocate((int) (end - start));
+        while (buffer.hasRemaining()) {
+            if (file.read(buffer, start + buffer.position()) < 0) {
+                throw new IOException("结果文件被截断");
+            }
+        }
+        return buffer.array();
+    }
+}
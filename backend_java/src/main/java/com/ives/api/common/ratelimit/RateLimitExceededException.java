@@ -0,0 +1,21 @@
+package com.ives.api.common.ratelimit;
+
+import com.ives.api.common.constant.ErrorCode;
+import com.ives.api.common.exception.BusinessException;
+import lombok.Getter;
+
+/**
+ * 用户请求额度用尽
+ */
+@Getter
+public class RateLimitExceededException extends BusinessException {
+    /**
+     * 建议的重试等待秒数（向上取整，至少1秒）
+     */
+    private final long retryAfterSeconds;
+
+    public RateLimitExceededException(long retryAfterSeconds) {
+        super(ErrorCode.TOO_MANY_REQUESTS);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
@@ -0,0 +1,137 @@
+package com.ives.api.common.ratelimit;
+
+import com.ives.api.market.EtfMetadataRegistry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 按用户的加权令牌桶限流（GCRA形式）
+ * 每个用户只保存一个"理论到达时间"（AtomicLong，纳秒），申请额度时CAS推进，无锁；
+ * ConcurrentHashMap按桶分段，不同用户之间没有竞争
+ * 额度单位：一个类别 × 一个交易日；includeDetails时乘以DETAILS_FACTOR
+ */
+@Slf4j
+@Component
+public class UserRateLimiter {
+    static final int DETAILS_FACTOR = 4;
+    /**
+     * 代码列表按每CODES_PER_UNIT个代码折合一个类别
+     */
+    static final int CODES_PER_UNIT = 10;
+
+    private final EtfMetadataRegistry metadataRegistry;
+    private final ConcurrentHashMap<Integer, AtomicLong> buckets = new ConcurrentHashMap<>();
+    private final boolean enabled;
+    private final long nanosPerUnit;
+    private final long burstNanos;
+    private final Counter rejected;
+
+    public UserRateLimiter(EtfMetadataRegistry metadataRegistry, MeterRegistry meterRegistry,
+                           @Value("${myapp.rate-limit.enabled:true}") boolean enabled,
+                           @Value("${myapp.rate-limit.units-per-second:200}") long unitsPerSecond,
+                           @Value("${myapp.rate-limit.burst:2000}") long burst) {
+        this.metadataRegistry = metadataRegistry;
+        this.enabled = enabled;
+        this.nanosPerUnit = TimeUnit.SECONDS.toNanos(1) / Math.max(1, unitsPerSecond);
+        this.burstNanos = nanosPerUnit * Math.max(1, burst);
+        this.rejected = Counter.builder("rate_limit.rejected").register(meterRegistry);
+    }
+
+    /**
+     * 多日历史类查询的额度：类别数 × 交易日数
+     */
+    public void acquireForSectors(String sectors, int days, Boolean includeDetails) {
+        int count = 0;
+        for (String sector : sectors.split(",")) {
+            if (!sector.isBlank()) {
+                count++;
+            }
+        }
+        acquire(cost(count, days, includeDetails));
+    }
+
+    /**
+     * 区间收益类查询的额度：未指定类别时按全部类别计
+     */
+    public void acquireForSectors(List<String> sectorList, int days, Boolean includeDetails) {
+        int count = sectorList == null || sectorList.isEmpty()
+                ? metadataRegistry.current().getUniverse().sectorCount()
+                : sectorList.size();
+        acquire(cost(count, days, includeDetails));
+    }
+
+    public void acquireForCodes(int codes, int days) {
+        acquire(cost((codes + CODES_PER_UNIT - 1) / CODES_PER_UNIT, days, false));
+    }
+
+    static long cost(int sectors, int days, Boolean includeDetails) {
+        long cost = (long) Math.max(1, sectors) * Math.max(1, days);
+        return Boolean.TRUE.equals(includeDetails) ? cost * DETAILS_FACTOR : cost;
+    }
+
+    /**
+     * 为当前用户扣除额度，不足时抛出RateLimitExceededException
+     * 单次额度超过突发上限时按上限计，保证大请求在额度充满时仍可执行
+     */
+    void acquire(long cost) {
+        if (!enabled) {
+            return;
+        }
+        Integer userId = currentUserId();
+        if (userId == null) {
+            return;
+        }
+        long retryAfterNanos = tryAcquire(userId, cost, System.nanoTime());
+        if (retryAfterNanos > 0) {
+            rejected.increment();
+            long retryAfterSeconds = Math.max(1, (retryAfterNanos + TimeUnit.SECONDS.toNanos(1) - 1)
+                    / TimeUnit.SECONDS.toNanos(1));
+            log.debug("用户{}请求额度不足，cost={}，{}秒后可重试", userId, cost, retryAfterSeconds);
+            throw new RateLimitExceededException(retryAfterSeconds);
+        }
+    }
+
+    /**
+     * @return 0表示已扣除；否则为还需等待的纳秒数
+     */
+    long tryAcquire(Integer userId, long cost, long now) {
+        long increment = Math.min(cost * nanosPerUnit, burstNanos);
+        AtomicLong tat = buckets.computeIfAbsent(userId, k -> new AtomicLong(now));
+        while (true) {
+            long current = tat.get();
+            long next = Math.max(current, now) + increment;
+            long overflow = next - now - burstNanos;
+            if (overflow > 0) {
+                return overflow;
+            }
+            if (tat.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * 清理额度已完全恢复的用户，避免长期不活跃的用户占用内存
+     */
+    @Scheduled(fixedDelay = 10, timeUnit = TimeUnit.MINUTES)
+    public void evictIdle() {
+        long now = System.nanoTime();
+        buckets.entrySet().removeIf(entry -> entry.getValue().get() <= now);
+    }
+
+    private static Integer currentUserId() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication != null && authentication.getPrincipal() instanceof Integer userId ? userId : null;
+    }
+}
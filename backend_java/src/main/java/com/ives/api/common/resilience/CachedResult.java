@@ -0,0 +1,14 @@
+package com.ives.api.common.resilience;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * 缓存读取结果；stale=true表示数据库不可用时返回的旧结果
+ */
+@Getter
+@RequiredArgsConstructor
+public class CachedResult<T> {
+    private final T value;
+    private final boolean stale;
+}
@@ -0,0 +1,58 @@
+package com.ives.api.common.resilience;
+
+import com.ives.api.common.deadline.DeadlineExceededException;
+import lombok.RequiredArgsConstructor;
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.reflection.ExceptionUtil;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+import org.springframework.stereotype.Component;
+
+/**
+ * MyBatis插件：所有Mapper查询与更新经过熔断器
+ * 熔断打开时抛出DbUnavailableException，不再向连接池申请连接
+ */
+@Component
+@RequiredArgsConstructor
+@Intercepts({
+        @Signature(type = Executor.class, method = "query",
+                args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class}),
+        @Signature(type = Executor.class, method = "query",
+                args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class,
+                        CacheKey.class, BoundSql.class}),
+        @Signature(type = Executor.class, method = "update", args = {MappedStatement.class, Object.class})
+})
+public class CircuitBreakerInterceptor implements Interceptor {
+    private final DbCircuitBreaker circuitBreaker;
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+        if (!circuitBreaker.tryAcquire()) {
+            throw new DbUnavailableException();
+        }
+        Object result;
+        try {
+            result = invocation.proceed();
+        } catch (Throwable e) {
+            // Invocation#proceed经反射调用，原始异常包在InvocationTargetException中
+            Throwable cause = ExceptionUtil.unwrapThrowable(e);
+            if (cause instanceof DeadlineExceededException) {
+                circuitBreaker.onIgnored();
+            } else if (DbCircuitBreaker.isUnavailable(cause)) {
+                circuitBreaker.onFailure();
+            } else {
+                circuitBreaker.onSuccess();
+            }
+            throw cause;
+        }
+        circuitBreaker.onSuccess();
+        return result;
+    }
+}
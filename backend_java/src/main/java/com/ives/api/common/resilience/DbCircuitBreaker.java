@@ -0,0 +1,129 @@
+package com.ives.api.common.resilience;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTimeoutException;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongSupplier;
+
+/**
+ * 数据库熔断器
+ * 连续failure-threshold次超时/连接失败后打开，open-ms内的查询直接拒绝；
+ * 之后放行一个探测查询（半开），成功则关闭，失败则重新打开。
+ * SQL语法错误等数据库已正常响应的异常不计入失败。
+ * 指标：db.circuit.state（0关闭/1打开/2半开），db.circuit.rejected 拒绝次数
+ */
+@Slf4j
+@Component
+public class DbCircuitBreaker {
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final int failureThreshold;
+    private final long openNanos;
+    private final LongSupplier clock;
+    private final AtomicReference<State> state = new AtomicReference<>(State.CLOSED);
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private volatile long openedAt;
+    private final Counter rejected;
+
+    @Autowired
+    public DbCircuitBreaker(MeterRegistry meterRegistry,
+                            @Value("${myapp.resilience.failure-threshold:5}") int failureThreshold,
+                            @Value("${myapp.resilience.open-ms:10000}") long openMs) {
+        this(meterRegistry, failureThreshold, openMs, System::nanoTime);
+    }
+
+    DbCircuitBreaker(MeterRegistry meterRegistry, int failureThreshold, long openMs, LongSupplier clock) {
+        this.failureThreshold = failureThreshold;
+        this.openNanos = openMs * 1_000_000L;
+        this.clock = clock;
+        Gauge.builder("db.circuit.state", state, s -> s.get().ordinal()).register(meterRegistry);
+        this.rejected = Counter.builder("db.circuit.rejected").register(meterRegistry);
+    }
+
+    public State getState() {
+        return state.get();
+    }
+
+    public boolean isOpen() {
+        return state.get() != State.CLOSED;
+    }
+
+    /**
+     * 查询前调用：返回false表示熔断中，调用方应直接失败
+     */
+    public boolean tryAcquire() {
+        State current = state.get();
+        if (current == State.CLOSED) {
+            return true;
+        }
+        if (current == State.OPEN && clock.getAsLong() - openedAt >= openNanos
+                && state.compareAndSet(State.OPEN, State.HALF_OPEN)) {
+            log.info("数据库熔断进入半开状态，放行探测查询");
+            return true;
+        }
+        rejected.increment();
+        return false;
+    }
+
+    public void onSuccess() {
+        consecutiveFailures.set(0);
+        if (state.getAndSet(State.CLOSED) != State.CLOSED) {
+            log.info("数据库恢复，熔断关闭");
+        }
+    }
+
+    public void onFailure() {
+        if (state.get() == State.HALF_OPEN) {
+            open();
+            return;
+        }
+        if (consecutiveFailures.incrementAndGet() >= failureThreshold && state.get() == State.CLOSED) {
+            open();
+        }
+    }
+
+    /**
+     * 查询未真正到达数据库（如请求已超时被提前拦下）：不计成败，半开时交还探测机会
+     */
+    public void onIgnored() {
+        state.compareAndSet(State.HALF_OPEN, State.OPEN);
+    }
+
+    private void open() {
+        openedAt = clock.getAsLong();
+        state.set(State.OPEN);
+        log.warn("数据库连续{}次超时或连接失败，熔断打开", consecutiveFailures.get());
+    }
+
+    /**
+     * 是否为数据库不可用类异常：语句超时、取连接超时、连接中断
+     */
+    public static boolean isUnavailable(Throwable error) {
+        for (Throwable t = error; t != null; t = t.getCause() == t ? null : t.getCause()) {
+            if (t instanceof SQLTimeoutException
+                    || t instanceof SQLTransientConnectionException
+                    || t instanceof SQLNonTransientConnectionException
+                    || t instanceof SQLRecoverableException) {
+                return true;
+            }
+            if (t instanceof SQLException sql && sql.getSQLState() != null && sql.getSQLState().startsWith("08")) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,13 @@
+package com.ives.api.common.resilience;
+
+import com.ives.api.common.constant.ErrorCode;
+import com.ives.api.common.exception.BusinessException;
+
+/**
+ * 数据库熔断期间直接拒绝查询，不再占用连接池等待
+ */
+public class DbUnavailableException extends BusinessException {
+    public DbUnavailableException() {
+        super(ErrorCode.DB_UNAVAILABLE);
+    }
+}
@@ -0,0 +1,180 @@
+package com.ives.api.common.resilience;
+
+import com.ives.api.common.deadline.DeadlineExceededException;
+import com.ives.api.common.deadline.RequestDeadline;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.exceptions.PersistenceException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * 查询结果兜底缓存（stale-while-revalidate）
+ * 正常情况下每次照常计算，只保存每个键最近一次成功的结果，不从缓存返回；
+ * 计算因数据库超时、不可用或熔断失败时，返回旧结果并标记stale，同时在后台刷新该键；
+ * 熔断打开期间旧结果直接返回，不再等待数据库。
+ * 容量按条数和估算大小（按结果结构估算，见ResultSizeEstimator）共同限制，超出时淘汰最久未用的键；
+ * 单个结果超过单条上限（如全市场明细）时不缓存。
+ * 指标：result.cache.reads（tag result=fresh|stale），result.cache.bytes
+ */
+@Slf4j
+@Component
+public class ResultCache {
+    private final DbCircuitBreaker circuitBreaker;
+    private final AsyncTaskExecutor fanOutExecutor;
+    private final int maxEntries;
+    private final long maxBytes;
+    private final long maxEntryBytes;
+    private final long refreshTimeoutMs;
+    // 访问顺序的LinkedHashMap，由entries自身加锁；totalBytes在同一把锁下维护
+    private final Map<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes;
+    private final Set<String> refreshing = ConcurrentHashMap.newKeySet();
+    private final Counter freshReads;
+    private final Counter staleReads;
+
+    public ResultCache(DbCircuitBreaker circuitBreaker, AsyncTaskExecutor fanOutExecutor,
+                       MeterRegistry meterRegistry,
+                       @Value("${myapp.resilience.cache-entries:256}") int maxEntries,
+                       @Value("${myapp.resilience.cache-max-bytes:67108864}") long maxBytes,
+                       @Value("${myapp.resilience.cache-max-entry-bytes:4194304}") long maxEntryBytes,
+                       @Value("${myapp.resilience.refresh-timeout-ms:30000}") long refreshTimeoutMs) {
+        this.circuitBreaker = circuitBreaker;
+        this.fanOutExecutor = fanOutExecutor;
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+        this.maxEntryBytes = Math.min(maxEntryBytes, maxBytes);
+        this.refreshTimeoutMs = refreshTimeoutMs;
+        this.freshReads = Counter.builder("result.cache.reads").tag("result", "fresh").register(meterRegistry);
+        this.staleReads = Counter.builder("result.cache.reads").tag("result", "stale").register(meterRegistry);
+        Gauge.builder("result.cache.bytes", this, ResultCache::storedBytes).register(meterRegistry);
+    }
+
+    public <T> CachedResult<T> get(String key, Supplier<T> loader) {
+        Entry entry = lookup(key);
+        if (entry != null && circuitBreaker.isOpen()) {
+            refreshInBackground(key, loader);
+            return stale(entry);
+        }
+
+        try {
+            T value = loader.get();
+            store(key, value);
+            freshReads.increment();
+            return new CachedResult<>(value, false);
+        } catch (RuntimeException e) {
+            if (entry == null || !isDbFailure(e)) {
+                throw e;
+            }
+            log.warn("查询{}失败，返回缓存的旧结果: {}", key, e.getMessage());
+            refreshInBackground(key, loader);
+            return stale(entry);
+        }
+    }
+
+    private <T> CachedResult<T> stale(Entry entry) {
+        staleReads.increment();
+        return new CachedResult<>(cast(entry.value), true);
+    }
+
+    /**
+     * 同一键同时只有一个后台刷新；刷新使用独立的截止时间，不继承已超时的请求
+     */
+    private <T> void refreshInBackground(String key, Supplier<T> loader) {
+        if (!refreshing.add(key)) {
+            return;
+        }
+        try {
+            fanOutExecutor.execute(() -> {
+                try {
+                    T value = RequestDeadline.callWithin(refreshTimeoutMs, loader);
+                    store(key, value);
+                } catch (RuntimeException e) {
+                    log.debug("后台刷新{}失败: {}", key, e.getMessage());
+                } finally {
+                    refreshing.remove(key);
+                }
+            });
+        } catch (RuntimeException e) {
+            refreshing.remove(key);
+            log.debug("后台刷新{}未能提交: {}", key, e.getMessage());
+        }
+    }
+
+    private Entry lookup(String key) {
+        synchronized (entries) {
+            return entries.get(key);
+        }
+    }
+
+    /**
+     * 超过单条上限的结果不缓存，同时丢弃该键的旧结果（已过期，且同样大小）
+     */
+    private void store(String key, Object value) {
+        long bytes = ResultSizeEstimator.estimate(value, maxEntryBytes);
+        synchronized (entries) {
+            Entry previous = entries.remove(key);
+            if (previous != null) {
+                totalBytes -= previous.bytes;
+            }
+            if (bytes > maxEntryBytes) {
+                log.debug("查询{}的结果约{}字节，超过单条上限，不缓存", key, bytes);
+                return;
+            }
+            entries.put(key, new Entry(value, bytes));
+            totalBytes += bytes;
+            Iterator<Entry> eldest = entries.values().iterator();
+            while ((entries.size() > maxEntries || totalBytes > maxBytes) && eldest.hasNext()) {
+                totalBytes -= eldest.next().bytes;
+                eldest.remove();
+            }
+        }
+    }
+
+    private double storedBytes() {
+        synchronized (entries) {
+            return totalBytes;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T cast(Object value) {
+        return (T) value;
+    }
+
+    /**
+     * 数据库侧的失败才回退旧结果，参数错误等照常抛出
+     */
+    static boolean isDbFailure(Throwable error) {
+        for (Throwable t = error; t != null; t = t.getCause() == t ? null : t.getCause()) {
+            if (t instanceof DbUnavailableException || t instanceof DeadlineExceededException
+                    || t instanceof SQLException || t instanceof DataAccessException
+                    || t instanceof PersistenceException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static final class Entry {
+        private final Object value;
+        private final long bytes;
+
+        Entry(Object value, long bytes) {
+            this.value = value;
+            this.bytes = bytes;
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.ives.api.common.resilience;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 按结构估算缓存结果的大小，不序列化结果
+ * 对象、集合元素与字段各按固定字节计，字符串另加长度，基本类型数组按元素数计；
+ * 只展开本项目的DTO，其他类型按单个值计。累计超过上限即停止遍历，大结果的估算开销有界
+ */
+final class ResultSizeEstimator {
+    private static final String MODEL_PACKAGE = "com.ives.api.";
+    private static final int OBJECT_BYTES = 16;
+    private static final int FIELD_BYTES = 8;
+    private static final int VALUE_BYTES = 16;
+    private static final int MAX_DEPTH = 32;
+
+    private static final ClassValue<Field[]> FIELDS = new ClassValue<>() {
+        @Override
+        protected Field[] computeValue(Class<?> type) {
+            List<Field> fields = new ArrayList<>();
+            for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+                for (Field field : c.getDeclaredFields()) {
+                    if (!Modifier.isStatic(field.getModifiers()) && !field.isSynthetic()) {
+                        field.setAccessible(true);
+                        fields.add(field);
+                    }
+                }
+            }
+            return fields.toArray(new Field[0]);
+        }
+    };
+
+    private final long limit;
+    private long bytes;
+
+    private ResultSizeEstimator(long limit) {
+        this.limit = limit;
+    }
+
+    /**
+     * 估算字节数；超过limit时返回的值只保证大于limit
+     */
+    static long estimate(Object value, long limit) {
+        ResultSizeEstimator estimator = new ResultSizeEstimator(limit);
+        estimator.visit(value, 0);
+        return estimator.bytes;
+    }
+
+    private void visit(Object value, int depth) {
+        if (value == null || bytes > limit) {
+            return;
+        }
+        if (depth > MAX_DEPTH) {
+            bytes += VALUE_BYTES;
+            return;
+        }
+        if (value instanceof CharSequence text) {
+            bytes += VALUE_BYTES + text.length();
+        } else if (value instanceof Collection<?> items) {
+            bytes += OBJECT_BYTES;
+            for (Object item : items) {
+                if (bytes > limit) {
+                    return;
+                }
+                bytes += FIELD_BYTES;
+                visit(item, depth + 1);
+            }
+        } else if (value instanceof Map<?, ?> map) {
+            bytes += OBJECT_BYTES;
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                if (bytes > limit) {
+                    return;
+                }
+                bytes += FIELD_BYTES;
+                visit(entry.getKey(), depth + 1);
+                visit(entry.getValue(), depth + 1);
+            }
+        } else if (value instanceof Object[] items) {
+            bytes += OBJECT_BYTES;
+            for (Object item : items) {
+                if (bytes > limit) {
+                    return;
+                }
+                bytes += FIELD_BYTES;
+                visit(item, depth + 1);
+            }
+        } else if (value.getClass().isArray()) {
+            bytes += OBJECT_BYTES + (long) Array.getLength(value) * FIELD_BYTES;
+        } else if (value.getClass().getName().startsWith(MODEL_PACKAGE) && !value.getClass().isEnum()) {
+            bytes += OBJECT_BYTES;
+            for (Field field : FIELDS.get(value.getClass())) {
+                if (bytes > limit) {
+                    return;
+                }
+                bytes += FIELD_BYTES;
+                if (!field.getType().isPrimitive()) {
+                    visit(readField(field, value), depth + 1);
+                }
+            }
+        } else {
+            bytes += VALUE_BYTES;
+        }
+    }
+
+    private static Object readField(Field field, Object target) {
+        try {
+            return field.get(target);
+        } catch (IllegalAccessException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package com.ives.api.common.sqlmetrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.reflection.ExceptionUtil;
+import org.apache.ibatis.session.ResultContext;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * MyBatis插件：按Mapper语句记录耗时、行数与参数列表长度
+ * 指标（tag statement=Mapper.方法）：
+ * mybatis.statement 耗时（tag outcome=success|error），mybatis.statement.rows 返回/影响行数，
+ * mybatis.statement.params 参数中最长集合的长度（IN列表大小）。
+ * 耗时超过slow-threshold-ms的语句按slow-sample-rate抽样记录SQL，不记录参数值。
+ */
+@Slf4j
+@Component
+@Intercepts({
+        @Signature(type = Executor.class, method = "query",
+                args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class}),
+        @Signature(type = Executor.class, method = "query",
+                args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class,
+                        CacheKey.class, BoundSql.class}),
+        @Signature(type = Executor.class, method = "update", args = {MappedStatement.class, Object.class})
+})
+public class SqlTimingInterceptor implements Interceptor {
+    private static final int MAX_LOGGED_SQL_LENGTH = 2000;
+
+    private final MeterRegistry meterRegistry;
+    private final long slowThresholdNanos;
+    private final double slowSampleRate;
+
+    public SqlTimingInterceptor(MeterRegistry meterRegistry,
+                                @Value("${myapp.sql-metrics.slow-threshold-ms:500}") long slowThresholdMs,
+                                @Value("${myapp.sql-metrics.slow-sample-rate:1.0}") double slowSampleRate) {
+        this.meterRegistry = meterRegistry;
+        this.slowThresholdNanos = TimeUnit.MILLISECONDS.toNanos(slowThresholdMs);
+        this.slowSampleRate = slowSampleRate;
+    }
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+        Object[] args = invocation.getArgs();
+        MappedStatement statement = (MappedStatement) args[0];
+        Object parameter = args[1];
+
+        // 流式查询的结果交给ResultHandler，逐行计数
+        CountingResultHandler counting = null;
+        if (args.length > 3 && args[3] instanceof ResultHandler<?> handler) {
+            counting = new CountingResultHandler(handler);
+            args[3] = counting;
+        }
+
+        long start = System.nanoTime();
+        Object result;
+        try {
+            result = invocation.proceed();
+        } catch (Throwable e) {
+            timer(statement, "error").record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            throw ExceptionUtil.unwrapThrowable(e);
+        }
+        long elapsed = System.nanoTime() - start;
+
+        long rows = counting != null ? counting.count : rowsOf(result);
+        int paramSize = parameterSize(parameter);
+        String tag = shortId(statement);
+        timer(statement, "success").record(elapsed, TimeUnit.NANOSECONDS);
+        DistributionSummary.builder("mybatis.statement.rows")
+                .tag("statement", tag)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(rows);
+        if (paramSize > 0) {
+            DistributionSummary.builder("mybatis.statement.params")
+                    .tag("statement", tag)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry)
+                    .record(paramSize);
+        }
+
+        if (elapsed >= slowThresholdNanos && ThreadLocalRandom.current().nextDouble() < slowSampleRate) {
+            BoundSql boundSql = args.length > 5 ? (BoundSql) args[5] : statement.getBoundSql(parameter);
+            log.warn("慢查询 {} 耗时{}ms，{}行，参数列表长度{}: {}", tag, TimeUnit.NANOSECONDS.toMillis(elapsed),
+                    rows, paramSize, compact(boundSql.getSql()));
+        }
+        return result;
+    }
+
+    private Timer timer(MappedStatement statement, String outcome) {
+        return Timer.builder("mybatis.statement")
+                .tag("statement", shortId(statement))
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    /**
+     * com.ives.api.mapper.EtfNetassetMapper.findByCodesAndDates -> EtfNetassetMapper.findByCodesAndDates
+     */
+    static String shortId(MappedStatement statement) {
+        String id = statement.getId();
+        int method = id.lastIndexOf('.');
+        int type = method > 0 ? id.lastIndexOf('.', method - 1) : -1;
+        return id.substring(type + 1);
+    }
+
+    private static long rowsOf(Object result) {
+        if (result instanceof List<?> list) {
+            return list.size();
+        }
+        if (result instanceof Integer count) {
+            return count;
+        }
+        return 0;
+    }
+
+    /**
+     * 参数中最长的集合/数组长度；多参数方法的参数为Map，逐个检查
+     */
+    static int parameterSize(Object parameter) {
+        if (parameter instanceof Map<?, ?> params) {
+            int max = 0;
+            for (Object value : params.values()) {
+                max = Math.max(max, sizeOf(value));
+            }
+            return max;
+        }
+        return sizeOf(parameter);
+    }
+
+    private static int sizeOf(Object value) {
+        if (value instanceof Collection<?> collection) {
+            return collection.size();
+        }
+        if (value instanceof Object[] array) {
+            return array.length;
+        }
+        return 0;
+    }
+
+    private static String compact(String sql) {
+        String oneLine = sql.replaceAll("\\s+", " ").trim();
+        return oneLine.length() > MAX_LOGGED_SQL_LENGTH
+                ? oneLine.substring(0, MAX_LOGGED_SQL_LENGTH) + "..." : oneLine;
+    }
+
+    private static final class CountingResultHandler implements ResultHandler<Object> {
+        private final ResultHandler<Object> delegate;
+        private long count;
+
+        @SuppressWarnings("unchecked")
+        CountingResultHandler(ResultHandler<?> delegate) {
+            this.delegate = (ResultHandler<Object>) delegate;
+        }
+
+        @Override
+        public void handleResult(ResultContext<?> context) {
+            count++;
+            delegate.handleResult(context);
+        }
+    }
+}
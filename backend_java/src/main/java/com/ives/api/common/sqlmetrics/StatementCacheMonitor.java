@@ -0,0 +1,89 @@
+package com.ives.api.common.sqlmetrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.ibatis.executor.statement.StatementHandler;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * 预编译语句缓存命中率（估算）
+ * Connector/J不对外提供语句缓存统计，这里按驱动的规则在每个物理连接上维护同样大小的LRU：
+ * cachePrepStmts关闭、SQL超过prepStmtCacheSqlLimit或不在LRU中记为未命中。
+ * 指标：jdbc.statement.cache（tag result=hit|miss）
+ */
+@Component
+@Intercepts(@Signature(type = StatementHandler.class, method = "prepare",
+        args = {Connection.class, Integer.class}))
+public class StatementCacheMonitor implements Interceptor {
+    private final boolean cacheEnabled;
+    private final int cacheSize;
+    private final int sqlLimit;
+    private final Map<Connection, Map<String, Boolean>> cachesByConnection = new WeakHashMap<>();
+    private final Counter hits;
+    private final Counter misses;
+
+    public StatementCacheMonitor(
+            MeterRegistry meterRegistry,
+            @Value("${spring.datasource.hikari.data-source-properties.cachePrepStmts:false}") boolean cacheEnabled,
+            @Value("${spring.datasource.hikari.data-source-properties.prepStmtCacheSize:25}") int cacheSize,
+            @Value("${spring.datasource.hikari.data-source-properties.prepStmtCacheSqlLimit:256}") int sqlLimit) {
+        this.cacheEnabled = cacheEnabled;
+        this.cacheSize = cacheSize;
+        this.sqlLimit = sqlLimit;
+        this.hits = Counter.builder("jdbc.statement.cache").tag("result", "hit").register(meterRegistry);
+        this.misses = Counter.builder("jdbc.statement.cache").tag("result", "miss").register(meterRegistry);
+    }
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+        StatementHandler handler = (StatementHandler) invocation.getTarget();
+        Connection connection = (Connection) invocation.getArgs()[0];
+        if (isCached(physical(connection), handler.getBoundSql().getSql())) {
+            hits.increment();
+        } else {
+            misses.increment();
+        }
+        return invocation.proceed();
+    }
+
+    boolean isCached(Connection connection, String sql) {
+        if (!cacheEnabled || sql.length() > sqlLimit) {
+            return false;
+        }
+        synchronized (cachesByConnection) {
+            Map<String, Boolean> cache = cachesByConnection.computeIfAbsent(connection, c -> newLru());
+            return cache.put(sql, Boolean.TRUE) != null;
+        }
+    }
+
+    private Map<String, Boolean> newLru() {
+        return new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    /**
+     * 连接池每次借出的代理对象不同，缓存属于底层物理连接
+     */
+    private static Connection physical(Connection connection) {
+        try {
+            return connection.unwrap(Connection.class);
+        } catch (SQLException e) {
+            return connection;
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.ives.api.common.util;
+
+import com.ives.api.model.entity.EtfNetasset;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 净值CSV解析
+ * 首行为表头，列名与etf_netasset字段一致（ths_code, time, net_asset_value, adjusted_nav,
+ * accumulated_nav, premium, premium_ratio），除ths_code与adjusted_nav外均可省略。
+ * 按RFC 4180处理双引号：引号内的字段可含逗号与换行，字段内""表示一个引号；数值列允许千分位逗号（如"1,234.5"）
+ */
+public final class NavCsvParser {
+    private NavCsvParser() {
+    }
+
+    public static List<EtfNetasset> parse(Reader source) throws IOException {
+        Records records = new Records(source instanceof BufferedReader br ? br : new BufferedReader(source));
+        List<String> headers = records.next();
+        if (headers == null) {
+            throw new IllegalArgumentException("CSV内容为空");
+        }
+        // 去掉可能存在的UTF-8 BOM
+        String first = headers.get(0);
+        if (!first.isEmpty() && first.charAt(0) == '\uFEFF') {
+            headers.set(0, first.substring(1));
+        }
+
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < headers.size(); i++) {
+            columns.put(headers.get(i).trim().toLowerCase(Locale.ROOT), i);
+        }
+        if (!columns.containsKey("ths_code") || !columns.containsKey("adjusted_nav")) {
+            throw new IllegalArgumentException("CSV表头必须包含ths_code和adjusted_nav");
+        }
+
+        List<EtfNetasset> rows = new ArrayList<>();
+        List<String> cells;
+        while ((cells = records.next()) != null) {
+            if (cells.size() == 1 && cells.get(0).isBlank()) {
+                continue;
+            }
+            try {
+                EtfNetasset row = new EtfNetasset();
+                row.setThsCode(text(cells, columns.get("ths_code")));
+                row.setTime(text(cells, columns.get("time")));
+                row.setNetAssetValue(decimal(cells, columns.get("net_asset_value")));
+                row.setAdjustedNav(decimal(cells, columns.get("adjusted_nav")));
+                row.setAccumulatedNav(decimal(cells, columns.get("accumulated_nav")));
+                row.setPremium(decimal(cells, columns.get("premium")));
+                row.setPremiumRatio(decimal(cells, columns.get("premium_ratio")));
+                rows.add(row);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("CSV第" + records.lineNo + "行数值格式错误");
+            }
+        }
+        return rows;
+    }
+
+    private static String text(List<String> cells, Integer index) {
+        if (index == null || index >= cells.size()) {
+            return null;
+        }
+        String value = cells.get(index).trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    private static BigDecimal decimal(List<String> cells, Integer index) {
+        String value = text(cells, index);
+        return value == null ? null : new BigDecimal(value.replace(",", ""));
+    }
+
+    /**
+     * 逐条读取记录；引号内的换行属于字段内容，一条记录可跨多行
+     */
+    private static final class Records {
+        private final BufferedReader reader;
+        /**
+         * 当前记录最后一行的行号
+         */
+        private int lineNo;
+
+        Records(BufferedReader reader) {
+            this.reader = reader;
+        }
+
+        /**
+         * @return 已到输入末尾时返回null
+         */
+        List<String> next() throws IOException {
+            String line = reader.readLine();
+            if (line == null) {
+                return null;
+            }
+            lineNo++;
+            int startLine = lineNo;
+            List<String> cells = new ArrayList<>();
+            StringBuilder cell = new StringBuilder();
+            boolean quoted = false;
+            int i = 0;
+            while (true) {
+                if (i == line.length()) {
+                    if (!quoted) {
+                        break;
+                    }
+                    line = reader.readLine();
+                    if (line == null) {
+                        throw new IllegalArgumentException("CSV第" + startLine + "行引号未闭合");
+                    }
+                    lineNo++;
+                    cell.append('\n');
+                    i = 0;
+                    continue;
+                }
+                char c = line.charAt(i++);
+                if (quoted) {
+                    if (c != '"') {
+                        cell.append(c);
+                    } else if (i < line.length() && line.charAt(i) == '"') {
+                        cell.append('"');
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else if (c == '"') {
+                    quoted = true;
+                } else if (c == ',') {
+                    cells.add(cell.toString());
+                    cell.setLength(0);
+                } else {
+                    cell.append(c);
+                }
+            }
+            cells.add(cell.toString());
+            return cells;
+        }
+    }
+}
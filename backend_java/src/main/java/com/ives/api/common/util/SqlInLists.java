@@ -0,0 +1,40 @@
+package com.ives.api.common.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * IN列表补齐
+ * foreach生成的SQL随列表长度变化，每种长度都是一条新语句，预编译语句缓存无法复用。
+ * 把列表用末尾元素补齐到2的幂长度，同一Mapper方法的SQL形态收敛到少数几种；
+ * 重复值不改变IN的结果。
+ */
+public final class SqlInLists {
+    private SqlInLists() {
+    }
+
+    public static <T> List<T> pad(List<T> values) {
+        int size = values.size();
+        int bucket = bucketOf(size);
+        if (bucket == size) {
+            return values;
+        }
+        List<T> padded = new ArrayList<>(bucket);
+        padded.addAll(values);
+        T last = values.get(size - 1);
+        while (padded.size() < bucket) {
+            padded.add(last);
+        }
+        return padded;
+    }
+
+    /**
+     * 不小于size的最小2的幂；空列表保持为0
+     */
+    static int bucketOf(int size) {
+        if (size <= 1) {
+            return size;
+        }
+        return Integer.highestOneBit(size - 1) << 1;
+    }
+}
@@ -0,0 +1,95 @@
+package com.ives.api.config;
+
+import com.ives.api.common.datasource.ReadReplicaInterceptor;
+import com.ives.api.common.datasource.ReplicaHealth;
+import com.ives.api.common.datasource.RoutingDataSource;
+import com.ives.api.mapper.CalendarMapper;
+import com.ives.api.mapper.CategoryMapper;
+import com.ives.api.mapper.EtfInfoMapper;
+import com.ives.api.mapper.EtfNetassetMapper;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.util.StringUtils;
+
+import javax.sql.DataSource;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * 读写分离数据源，仅在配置了myapp.datasource.replica.url时启用
+ * 主库连接池沿用spring.datasource（及spring.datasource.hikari），副本连接池单独配置大小；
+ * 行情类只读Mapper（净值、ETF信息、类别、日历）的查询发往副本，用户与收藏的读写留在主库，
+ * 副本延迟过大或不可用时回到主库。未配置副本时使用Spring Boot默认的单一数据源。
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(prefix = "myapp.datasource.replica", name = "url")
+public class DataSourceConfig {
+    private static final Set<String> READ_ONLY_MAPPERS = Set.of(
+            EtfNetassetMapper.class.getName(),
+            EtfInfoMapper.class.getName(),
+            CategoryMapper.class.getName(),
+            CalendarMapper.class.getName());
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("primary");
+        return dataSource;
+    }
+
+    @Bean
+    @ConfigurationProperties("myapp.datasource.replica.hikari")
+    public HikariDataSource replicaDataSource(DataSourceProperties properties,
+                                              @Qualifier("primaryDataSource") HikariDataSource primary,
+                                              @Value("${myapp.datasource.replica.url}") String url,
+                                              @Value("${myapp.datasource.replica.username:}") String username,
+                                              @Value("${myapp.datasource.replica.password:}") String password) {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setPoolName("replica");
+        dataSource.setDriverClassName(properties.determineDriverClassName());
+        dataSource.setJdbcUrl(url);
+        // 未单独配置账号时沿用主库账号
+        dataSource.setUsername(StringUtils.hasText(username) ? username : properties.determineUsername());
+        dataSource.setPassword(StringUtils.hasText(password) ? password : properties.determinePassword());
+        dataSource.setReadOnly(true);
+        // 驱动参数（预编译语句缓存等）先沿用主库，myapp.datasource.replica.hikari中的配置随后覆盖
+        Properties driverProperties = new Properties();
+        driverProperties.putAll(primary.getDataSourceProperties());
+        dataSource.setDataSourceProperties(driverProperties);
+        return dataSource;
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("primaryDataSource") DataSource primary,
+                                 @Qualifier("replicaDataSource") DataSource replica) {
+        log.info("启用只读副本，行情查询发往副本");
+        return new RoutingDataSource(primary, replica);
+    }
+
+    @Bean
+    public ReplicaHealth replicaHealth(@Qualifier("replicaDataSource") DataSource replica,
+                                       MeterRegistry meterRegistry,
+                                       @Value("${myapp.datasource.replica.lag-query:SHOW REPLICA STATUS}") String lagQuery,
+                                       @Value("${myapp.datasource.replica.max-lag-seconds:30}") long maxLagSeconds) {
+        ReplicaHealth health = new ReplicaHealth(replica, lagQuery, maxLagSeconds, meterRegistry);
+        health.check();
+        return health;
+    }
+
+    @Bean
+    public ReadReplicaInterceptor readReplicaInterceptor(ReplicaHealth replicaHealth, MeterRegistry meterRegistry) {
+        return new ReadReplicaInterceptor(replicaHealth, READ_ONLY_MAPPERS, meterRegistry);
+    }
+}
@@ -0,0 +1,153 @@
+package com.ives.api.config;
+
+import com.ives.api.common.deadline.RequestDeadline;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * 请求执行模式配置
+ * spring.threads.virtual.enabled=true 时，Spring Boot 在 Java 21+ 上让 Tomcat 以虚拟线程处理请求，
+ * 这里的请求内并行子任务（分片查询、按类别计算）同样改为每任务一个虚拟线程。
+ * 虚拟线程模式下不再用线程数限流，数据库并发由 Hikari 连接池上限约束，超出的请求在取连接时等待。
+ * 流式响应（StreamingResponseBody）固定使用少量平台线程，不随并发请求数增长。
+ * 并行子任务沿用提交请求的截止时间（RequestDeadline）。
+ */
+@Slf4j
+@Configuration
+public class ExecutionConfig implements WebMvcConfigurer {
+    private static final int VIRTUAL_THREADS_MIN_JAVA = 21;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreadsEnabled;
+
+    @Value("${myapp.execution.fan-out-threads:0}")
+    private int fanOutThreads;
+
+    @Value("${myapp.execution.stream-threads:8}")
+    private int streamThreads;
+
+    @Value("${myapp.execution.stream-timeout-ms:300000}")
+    private long streamTimeoutMs;
+
+    @Value("${myapp.jobs.threads:2}")
+    private int jobThreads;
+
+    @Value("${myapp.jobs.queue-capacity:32}")
+    private int jobQueueCapacity;
+
+    @Value("${myapp.jobs.download-threads:4}")
+    private int jobDownloadThreads;
+
+    @Value("${myapp.push.send-threads:8}")
+    private int pushSendThreads;
+
+    @Value("${myapp.push.max-connections:5000}")
+    private int pushMaxConnections;
+
+    @Bean
+    public AsyncTaskExecutor fanOutExecutor() {
+        if (virtualThreadsEnabled) {
+            if (Runtime.version().feature() >= VIRTUAL_THREADS_MIN_JAVA) {
+                SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("fan-out-");
+                executor.setVirtualThreads(true);
+                executor.setTaskDecorator(RequestDeadline::wrap);
+                log.info("请求内并行子任务使用虚拟线程");
+                return executor;
+            }
+            log.warn("已配置spring.threads.virtual.enabled，但当前Java版本{}不支持虚拟线程，使用平台线程池",
+                    Runtime.version().feature());
+        }
+
+        int threads = fanOutThreads > 0 ? fanOutThreads : Runtime.getRuntime().availableProcessors();
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("fan-out-");
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(threads * 64);
+        executor.setTaskDecorator(RequestDeadline::wrap);
+        // 队列满时由请求线程自己执行，不丢任务
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        return executor;
+    }
+
+    /**
+     * 流式响应的写出线程池：线程数固定，超出的流排队等待
+     */
+    @Bean
+    public AsyncTaskExecutor streamExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("stream-");
+        executor.setCorePoolSize(streamThreads);
+        executor.setMaxPoolSize(streamThreads);
+        executor.setQueueCapacity(streamThreads * 128);
+        return executor;
+    }
+
+    /**
+     * 净值写入后的推送计算与发送：单线程，按写入顺序处理
+     */
+    @Bean
+    public AsyncTaskExecutor pushExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("push-");
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(64);
+        return executor;
+    }
+
+    /**
+     * SSE推送的写出线程池：每个连接同时只占一个线程，慢连接只阻塞自己的写出
+     */
+    @Bean
+    public AsyncTaskExecutor pushSendExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("push-send-");
+        executor.setCorePoolSize(pushSendThreads);
+        executor.setMaxPoolSize(pushSendThreads);
+        executor.setQueueCapacity(pushMaxConnections);
+        return executor;
+    }
+
+    /**
+     * 异步分析任务的线程池：线程与排队数都有上限，队列满时拒绝提交
+     */
+    @Bean
+    public AsyncTaskExecutor jobExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("job-");
+        executor.setCorePoolSize(jobThreads);
+        executor.setMaxPoolSize(jobThreads);
+        executor.setQueueCapacity(jobQueueCapacity);
+        return executor;
+    }
+
+    /**
+     * 异步任务结果下载的写出线程：下载可跟随运行中的任务持续较长时间，
+     * 与流式查询的线程池分开，不排队，满时拒绝下载
+     */
+    @Bean
+    public AsyncTaskExecutor jobDownloadExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("job-download-");
+        executor.setCorePoolSize(jobDownloadThreads);
+        executor.setMaxPoolSize(jobDownloadThreads);
+        executor.setQueueCapacity(0);
+        return executor;
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setTaskExecutor(streamExecutor());
+        configurer.setDefaultTimeout(streamTimeoutMs);
+    }
+}
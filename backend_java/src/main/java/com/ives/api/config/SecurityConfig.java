@@ -1,7 +1,9 @@
 package com.ives.api.config;
 
+import jakarta.servlet.DispatcherType;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
@@ -25,6 +27,9 @@ import java.util.List;
 public class SecurityConfig {
     private final JwtAuthenticationFilter jwtAuthenticationFilter;
 
+    @Value("${management.server.port:-1}")
+    private int managementPort;
+
     /**
      * 密码加密器
      */
@@ -65,6 +70,8 @@ public class SecurityConfig {
                         .sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                 // 配置请求授权
                 .authorizeHttpRequests(auth -> auth
+                        // 流式响应的异步分派沿用原请求已通过的认证
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                         // 1. 放行Swagger相关接口（适配Swagger 3.x）
                         .requestMatchers(
                                 "/swagger-ui.html",
@@ -76,6 +83,11 @@ public class SecurityConfig {
                         ).permitAll()
                         // 允许注册和登录接口无需认证
                         .requestMatchers("/api/auth/register", "/api/auth/login").permitAll()
+                        // 净值写入不接受用户token，由控制器校验X-Ingest-Token内部凭证
+                        .requestMatchers("/api/etf-nav/**").permitAll()
+                        // 监控端点只在管理端口（仅本机监听）开放，对外端口上一律拒绝
+                        .requestMatchers(request -> request.getLocalPort() == managementPort).permitAll()
+                        .requestMatchers("/actuator/**").denyAll()
                         // 其他所有请求都需要认证
                         .anyRequest().authenticated()
                 )
@@ -0,0 +1,25 @@
+package com.ives.api.config;
+
+import com.ives.api.common.bulkhead.BulkheadInterceptor;
+import com.ives.api.common.deadline.DeadlineInterceptor;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Spring MVC拦截器配置
+ */
+@Configuration
+@RequiredArgsConstructor
+public class WebMvcConfig implements WebMvcConfigurer {
+    private final BulkheadInterceptor bulkheadInterceptor;
+    private final DeadlineInterceptor deadlineInterceptor;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(bulkheadInterceptor).addPathPatterns("/api/**");
+        // 截止时间从取得隔离舱许可之后开始计算，排队时间不占用查询预算
+        registry.addInterceptor(deadlineInterceptor).addPathPatterns("/api/**");
+    }
+}
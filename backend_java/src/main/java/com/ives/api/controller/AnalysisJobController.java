@@ -0,0 +1,167 @@
+package com.ives.api.controller;
+
+import com.ives.api.common.api.Result;
+import com.ives.api.common.bulkhead.Bulkhead;
+import com.ives.api.common.bulkhead.BulkheadType;
+import com.ives.api.common.constant.ErrorCode;
+import com.ives.api.common.exception.BusinessException;
+import com.ives.api.common.ratelimit.UserRateLimiter;
+import com.ives.api.model.dto.AnalysisJobPage;
+import com.ives.api.model.dto.AnalysisJobRequest;
+import com.ives.api.model.dto.AnalysisJobStatus;
+import com.ives.api.service.AnalysisJobService;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.Positive;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 大范围类别收益率历史的异步任务
+ * 提交后轮询状态，结果可分页读取或以NDJSON流式下载（与/sectors/batch/stream的事件格式相同）
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/etf/jobs")
+@Validated
+public class AnalysisJobController {
+    private final AnalysisJobService analysisJobService;
+    private final UserRateLimiter rateLimiter;
+    private final AsyncTaskExecutor jobDownloadExecutor;
+    private final long downloadTimeoutMs;
+
+    public AnalysisJobController(AnalysisJobService analysisJobService,
+                                 UserRateLimiter rateLimiter,
+                                 AsyncTaskExecutor jobDownloadExecutor,
+                                 @Value("${myapp.jobs.download-timeout-ms:3600000}") long downloadTimeoutMs) {
+        this.analysisJobService = analysisJobService;
+        this.rateLimiter = rateLimiter;
+        this.jobDownloadExecutor = jobDownloadExecutor;
+        this.downloadTimeoutMs = downloadTimeoutMs;
+    }
+
+    @Bulkhead(BulkheadType.LIGHT)
+    @PostMapping
+    public Result<AnalysisJobStatus> submit(@Valid @RequestBody AnalysisJobRequest request) {
+        rateLimiter.acquireForSectors(request.getSectorList(), request.getN(), request.getIncludeDetails());
+        try {
+            AnalysisJobStatus status = analysisJobService.submit(request);
+            return Result.success(status, Boolean.TRUE.equals(status.getDeduplicated())
+                    ? "已有相同任务" : "任务已提交");
+        } catch (IllegalArgumentException e) {
+            return Result.error(400, e.getMessage());
+        } catch (BusinessException e) {
+            return Result.error(e.getStatusCode(), e.getMessage());
+        } catch (Exception e) {
+            log.error("提交异步任务失败", e);
+            return Result.error(500, "服务器错误，无法提交任务");
+        }
+    }
+
+    @Bulkhead(BulkheadType.LIGHT)
+    @GetMapping("/{jobId}")
+    public Result<AnalysisJobStatus> getStatus(@PathVariable String jobId) {
+        return Result.success(analysisJobService.getStatus(jobId), "查询成功");
+    }
+
+    @Bulkhead(BulkheadType.LIGHT)
+    @GetMapping("/{jobId}/results")
+    public Result<AnalysisJobPage> getResults(
+            @PathVariable String jobId,
+
+            @RequestParam(defaultValue = "0")
+            @Min(value = 0, message = "offset不能为负数")
+            Integer offset,
+
+            @RequestParam(defaultValue = "1000")
+            @Positive(message = "limit必须为正整数")
+            @Max(value = 10000, message = "limit不能超过10000")
+            Integer limit) {
+        return Result.success(analysisJobService.getPage(jobId, offset, limit), "查询成功");
+    }
+
+    /**
+     * 任务运行中也可下载，已完成的部分立即写出，之后随任务进度继续输出直到任务结束
+     * 下载可持续到任务结束，不占用隔离舱许可，由独立的下载线程池限制并发，超时取download-timeout-ms
+     */
+    @GetMapping("/{jobId}/results/stream")
+    public ResponseEntity<?> streamResults(
+            @PathVariable String jobId,
+
+            @RequestParam(defaultValue = "0")
+            @Min(value = 0, message = "offset不能为负数")
+            Integer offset) {
+        // 任务不存在时在请求线程返回错误
+        analysisJobService.getStatus(jobId);
+
+        ResponseBodyEmitter emitter = new ResponseBodyEmitter(downloadTimeoutMs);
+        EmitterOutputStream out = new EmitterOutputStream(emitter);
+        emitter.onCompletion(out::close);
+        emitter.onTimeout(out::close);
+        emitter.onError(e -> out.close());
+        try {
+            jobDownloadExecutor.execute(() -> {
+                try {
+                    analysisJobService.writeResults(jobId, offset, out);
+                    emitter.complete();
+                } catch (IOException | IllegalStateException e) {
+                    log.debug("客户端已断开或下载超时，中止下载任务结果: {}", e.getMessage());
+                } catch (BusinessException e) {
+                    // 任务在下载开始前已被删除：以错误结束，客户端不会把截断的结果当作完整下载
+                    log.info("下载任务{}结果失败: {}", jobId, e.getMessage());
+                    emitter.completeWithError(e);
+                } catch (Exception e) {
+                    log.error("下载任务结果失败", e);
+                    emitter.completeWithError(e);
+                }
+            });
+        } catch (TaskRejectedException e) {
+            return ResponseEntity.ok(Result.error(ErrorCode.SERVICE_BUSY));
+        }
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(emitter);
+    }
+
+    /**
+     * 累积写入的字节，flush时作为一块发给客户端；连接结束后写入失败
+     */
+    private static class EmitterOutputStream extends ByteArrayOutputStream {
+        private final ResponseBodyEmitter emitter;
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        EmitterOutputStream(ResponseBodyEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        @Override
+        public synchronized void flush() throws IOException {
+            if (closed.get()) {
+                throw new IOException("下载连接已结束");
+            }
+            if (size() == 0) {
+                return;
+            }
+            byte[] chunk = toByteArray();
+            reset();
+            emitter.send(chunk, MediaType.APPLICATION_NDJSON);
+        }
+
+        @Override
+        public void close() {
+            closed.set(true);
+        }
+    }
+}
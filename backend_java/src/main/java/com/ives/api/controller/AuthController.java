@@ -1,6 +1,8 @@
 package com.ives.api.controller;
 
 import com.ives.api.common.api.Result;
+import com.ives.api.common.bulkhead.Bulkhead;
+import com.ives.api.common.bulkhead.BulkheadType;
 import com.ives.api.model.dto.LoginRequest;
 import com.ives.api.model.dto.LoginResponse;
 import com.ives.api.model.dto.RegisterRequest;
@@ -13,6 +15,7 @@ import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 
 @RestController
+@Bulkhead(BulkheadType.LIGHT)
 @RequestMapping("/api/auth")
 @RequiredArgsConstructor
 public class AuthController {
@@ -1,6 +1,8 @@
 package com.ives.api.controller;
 
 import com.ives.api.common.api.Result;
+import com.ives.api.common.bulkhead.Bulkhead;
+import com.ives.api.common.bulkhead.BulkheadType;
 import com.ives.api.model.dto.TradingDaysResponse;
 import com.ives.api.service.CalendarService;
 import lombok.RequiredArgsConstructor;
@@ -10,6 +12,7 @@ import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 @RestController
+@Bulkhead(BulkheadType.LIGHT)
 @RequestMapping("/api/trading-days")
 @RequiredArgsConstructor
 public class CalendarController {
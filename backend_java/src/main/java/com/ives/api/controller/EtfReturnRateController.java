@@ -1,12 +1,24 @@
 package com.ives.api.controller;
 
 import com.ives.api.common.api.Result;
+import com.ives.api.common.bulkhead.Bulkhead;
+import com.ives.api.common.bulkhead.BulkheadType;
+import com.ives.api.common.constant.ErrorCode;
+import com.ives.api.common.deadline.RequestDeadline;
+import com.ives.api.common.ratelimit.UserRateLimiter;
+import com.ives.api.common.resilience.CachedResult;
+import com.ives.api.common.resilience.DbCircuitBreaker;
+import com.ives.api.common.resilience.ResultCache;
+import com.ives.api.market.ReturnWindow;
 import com.ives.api.model.dto.*;
 import com.ives.api.service.EtfReturnRateService;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.Pattern;
 import jakarta.validation.constraints.Positive;
 import lombok.RequiredArgsConstructor;
+import org.springframework.util.CollectionUtils;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 
@@ -18,42 +30,109 @@ import java.util.List;
 @Validated
 public class EtfReturnRateController {
     private final EtfReturnRateService etfReturnRateService;
+    private final UserRateLimiter rateLimiter;
+    private final ResultCache resultCache;
+    private final DbCircuitBreaker circuitBreaker;
 
+    @Bulkhead(BulkheadType.HEAVY)
     @PostMapping("/etf-return-rate")
     public Result<EtfReturnRateResponse> getEtfReturnRateByCodes(@Valid @RequestBody EtfReturnRateRequest request) {
+        rateLimiter.acquireForCodes(request.getThsCodeList().size(), 2);
         try {
-            EtfReturnRateResponse response = etfReturnRateService.getEtfReturnRateByCodes(request);
-            return Result.success(response, "收益率计算成功");
+            CachedResult<EtfReturnRateResponse> response = resultCache.get("etf-return-rate:" + request,
+                    () -> etfReturnRateService.getEtfReturnRateByCodes(request));
+            return success(response, "收益率计算成功");
         } catch (IllegalArgumentException e) {
             return Result.error(400, e.getMessage());
         } catch (Exception e) {
-            return Result.error(500, "服务器错误，无法计算类别收益率");
+            return failure("服务器错误，无法计算类别收益率");
         }
     }
+
+    @Bulkhead(BulkheadType.HEAVY)
     @PostMapping("/sector-return-rate")
     public Result<SectorReturnRateResponse> getReturnRateBySectors(
             @Valid @RequestBody SectorReturnRateRequest request) {
+        rateLimiter.acquireForSectors(request.getSectorList(), 2, request.getIncludeDetails());
+        try {
+            CachedResult<SectorReturnRateResponse> response = resultCache.get("sector-return-rate:" + request,
+                    () -> etfReturnRateService.getReturnRateBySectors(request));
+            return success(response,"类别收益率计算成功");
+        } catch (IllegalArgumentException e) {
+            return Result.error(400, e.getMessage());
+        } catch (Exception e) {
+            return failure("服务器错误，无法计算类别收益率");
+        }
+    }
+
+    @Bulkhead(BulkheadType.HEAVY)
+    @PostMapping("/etf-ranking")
+    public Result<EtfRankingResponse> getEtfRanking(@Valid @RequestBody EtfRankingRequest request) {
+        rateLimiter.acquireForSectors(request.getSectorList(), 2, false);
         try {
-            SectorReturnRateResponse response = etfReturnRateService.getReturnRateBySectors(request);
-            return Result.success(response,"类别收益率计算成功");
+            CachedResult<EtfRankingResponse> response = resultCache.get("etf-ranking:" + request,
+                    () -> etfReturnRateService.getEtfRanking(request));
+            return success(response, "ETF收益排名查询成功");
         } catch (IllegalArgumentException e) {
             return Result.error(400, e.getMessage());
         } catch (Exception e) {
-            return Result.error(500, "服务器错误，无法计算类别收益率");
+            return failure("服务器错误，无法查询ETF收益排名");
         }
     }
 
+    @Bulkhead(BulkheadType.HEAVY)
+    @PostMapping("/period-returns")
+    public Result<PeriodReturnResponse> getPeriodReturns(@Valid @RequestBody PeriodReturnRequest request) {
+        // 每个区间只取起点一天的净值，按端点数计费
+        int boundaries = (CollectionUtils.isEmpty(request.getWindows())
+                ? ReturnWindow.values().length : request.getWindows().size()) + 1;
+        rateLimiter.acquireForSectors(request.getSectorList(), boundaries, request.getIncludeEtfs());
+        try {
+            CachedResult<PeriodReturnResponse> response = resultCache.get("period-returns:" + request,
+                    () -> etfReturnRateService.getPeriodReturns(request));
+            return success(response, "区间收益率计算成功");
+        } catch (IllegalArgumentException e) {
+            return Result.error(400, e.getMessage());
+        } catch (Exception e) {
+            return failure("服务器错误，无法计算区间收益率");
+        }
+    }
+
+    /**
+     * 合并查询：页面加载时的多个查询一次提交，共用一次取数；额度按各子查询分别计
+     */
+    @Bulkhead(BulkheadType.HEAVY)
+    @PostMapping("/multi-query")
+    public Result<MultiQueryResponse> getMultiQuery(@Valid @RequestBody MultiQueryRequest request) {
+        for (MultiQueryItem item : request.getQueries()) {
+            acquireForQuery(item);
+        }
+        try {
+            CachedResult<MultiQueryResponse> response = resultCache.get("multi-query:" + request,
+                    () -> etfReturnRateService.getMultiQuery(request));
+            return success(response, String.format("合并查询成功，共%d个子查询", request.getQueries().size()));
+        } catch (IllegalArgumentException e) {
+            return Result.error(400, e.getMessage());
+        } catch (Exception e) {
+            return failure("服务器错误，无法执行合并查询");
+        }
+    }
+
+    @Bulkhead(BulkheadType.LIGHT)
     @GetMapping("/available-sectors")
     public Result<SectorListResponse> getAvailableSectors() {
         try {
-            List<SectorInfo> sectors = etfReturnRateService.getAvailableSectors();
-            SectorListResponse responseData = new SectorListResponse(sectors.size(), sectors);
-            return Result.success(responseData, "获取类别列表成功");
+            CachedResult<SectorListResponse> response = resultCache.get("available-sectors", () -> {
+                List<SectorInfo> sectors = etfReturnRateService.getAvailableSectors();
+                return new SectorListResponse(sectors.size(), sectors);
+            });
+            return success(response, "获取类别列表成功");
         } catch (Exception e) {
-            return Result.error(500, "服务器错误，无法获取类别列表");
+            return failure("服务器错误，无法获取类别列表");
         }
     }
 
+    @Bulkhead(BulkheadType.HEAVY)
     @GetMapping("/sector-return-history")
     public Result<SectorReturnRateHistoryResponse> getSectorReturnRateHistory(
             @RequestParam String sector,
@@ -64,19 +143,42 @@ public class EtfReturnRateController {
 
             @RequestParam(defaultValue = "3")
             @Positive(message = "n必须为正整数")
+            @Max(value = 5000, message = "n不能超过5000")
             Integer n,
 
-            @RequestParam(defaultValue = "false") Boolean includeDetails){
+            @RequestParam(defaultValue = "1")
+            @Positive(message = "window必须为正整数")
+            @Max(value = 250, message = "window不能超过250")
+            Integer window,
+
+            @RequestParam(defaultValue = "false") Boolean includeDetails,
+
+            @RequestParam(defaultValue = "false") Boolean includeDistribution,
+
+            @RequestParam(required = false)
+            @Min(value = 3, message = "maxPoints至少为3")
+            Integer maxPoints,
+
+            @RequestParam(required = false)
+            @Pattern(regexp = "^\\d{4}-\\d{2}-\\d{2}$", message = "since格式错误，应为YYYY-MM-DD")
+            String since){
+        rateLimiter.acquireForSectors(sector, n + window - 1, includeDetails);
         try {
-            SectorReturnRateHistoryResponse response = etfReturnRateService
-                    .getSectorReturnRateHistory(sector, date, n, includeDetails);
-            return Result.success(response,"类别收益率历史查询成功");
+            CachedResult<SectorReturnRateHistoryResponse> response = resultCache.get(
+                    String.join("|", "sector-return-history", sector, date, n.toString(), window.toString(),
+                            includeDetails.toString(), includeDistribution.toString(), String.valueOf(maxPoints),
+                            String.valueOf(since)),
+                    () -> etfReturnRateService.getSectorReturnRateHistory(
+                            sector, date, n, window, includeDetails, includeDistribution, maxPoints, since));
+            return success(response,"类别收益率历史查询成功");
         } catch (IllegalArgumentException e) {
             return Result.error(400, e.getMessage());
         } catch (Exception e) {
-            return Result.error(500, "服务器错误，无法查询类别收益率历史");
+            return failure("服务器错误，无法查询类别收益率历史");
         }
     }
+
+    @Bulkhead(BulkheadType.HEAVY)
     @GetMapping("/sectors/batch")
     public Result<MultipleSectorsReturnRateHistoryResponse> getMultipleSectorsReturnRateHistory(
             @RequestParam String sectors,
@@ -87,22 +189,149 @@ public class EtfReturnRateController {
 
             @RequestParam(defaultValue = "15")
             @Positive(message = "n必须为正整数")
+            @Max(value = 5000, message = "n不能超过5000")
             Integer n,
 
+            @RequestParam(defaultValue = "1")
+            @Positive(message = "window必须为正整数")
+            @Max(value = 250, message = "window不能超过250")
+            Integer window,
+
             @RequestParam(defaultValue = "false") Boolean includeDetails,
 
+            @RequestParam(defaultValue = "false") Boolean includeDistribution,
+
+            @RequestParam(required = false)
+            @Min(value = 3, message = "maxPoints至少为3")
+            Integer maxPoints,
+
+            @RequestParam(required = false)
+            @Pattern(regexp = "^\\d{4}-\\d{2}-\\d{2}$", message = "since格式错误，应为YYYY-MM-DD")
+            String since,
+
             @RequestParam(defaultValue = "false") Boolean includeTiming){
+        rateLimiter.acquireForSectors(sectors, n + window - 1, includeDetails);
         try {
-            MultipleSectorsReturnRateHistoryResponse response = etfReturnRateService
-                    .getMultipleSectorsReturnRateHistory(sectors, date, n, includeDetails, includeTiming);
-            return Result.success(
+            CachedResult<MultipleSectorsReturnRateHistoryResponse> response = resultCache.get(
+                    String.join("|", "sectors-batch", sectors, date, n.toString(), window.toString(),
+                            includeDetails.toString(), includeDistribution.toString(), String.valueOf(maxPoints),
+                            String.valueOf(since), includeTiming.toString()),
+                    () -> etfReturnRateService.getMultipleSectorsReturnRateHistory(sectors, date, n, window,
+                            includeDetails, includeDistribution, maxPoints, since, includeTiming));
+            return success(
                     response,
-                    String.format("批量查询成功，共%d个类别", response.getSectorsCount()));
+                    String.format("批量查询成功，共%d个类别", response.getValue().getSectorsCount()));
         } catch (IllegalArgumentException e) {
             return Result.error(400, e.getMessage());
         } catch (Exception e) {
-            return Result.error(500, "服务器错误，无法批量查询类别收益率历史");
+            return failure("服务器错误，无法批量查询类别收益率历史");
         }
     }
 
+    @Bulkhead(BulkheadType.HEAVY)
+    @GetMapping("/analytics/risk")
+    public Result<SectorRiskResponse> getRiskStats(
+            @RequestParam(required = false) String sectors,
+
+            @RequestParam
+            @Pattern(regexp = "^\\d{4}-\\d{2}-\\d{2}$", message = "日期格式错误，应为YYYY-MM-DD")
+            String date,
+
+            @RequestParam(defaultValue = "250")
+            @Positive(message = "n必须为正整数")
+            @Max(value = 5000, message = "n不能超过5000")
+            Integer n,
+
+            @RequestParam(defaultValue = "false") Boolean includeEtfs,
+
+            @RequestParam(defaultValue = "0") Double riskFreeRate) {
+        if (sectors == null || sectors.isBlank()) {
+            rateLimiter.acquireForSectors((List<String>) null, n, includeEtfs);
+        } else {
+            rateLimiter.acquireForSectors(sectors, n, includeEtfs);
+        }
+        try {
+            CachedResult<SectorRiskResponse> response = resultCache.get(
+                    String.join("|", "analytics-risk", String.valueOf(sectors), date, n.toString(),
+                            includeEtfs.toString(), riskFreeRate.toString()),
+                    () -> etfReturnRateService.getRiskStats(sectors, date, n, includeEtfs, riskFreeRate));
+            return success(response, "风险指标计算成功");
+        } catch (IllegalArgumentException e) {
+            return Result.error(400, e.getMessage());
+        } catch (Exception e) {
+            return failure("服务器错误，无法计算风险指标");
+        }
+    }
+
+    @Bulkhead(BulkheadType.HEAVY)
+    @GetMapping("/analytics/correlation")
+    public Result<CorrelationResponse> getCorrelation(
+            @RequestParam(required = false) String sector,
+
+            @RequestParam
+            @Pattern(regexp = "^\\d{4}-\\d{2}-\\d{2}$", message = "日期格式错误，应为YYYY-MM-DD")
+            String date,
+
+            @RequestParam(defaultValue = "250")
+            @Positive(message = "n必须为正整数")
+            @Max(value = 5000, message = "n不能超过5000")
+            Integer n) {
+        if (sector == null || sector.isBlank()) {
+            rateLimiter.acquireForSectors((List<String>) null, n, false);
+        } else {
+            // 类别内按ETF两两计算，按明细计费
+            rateLimiter.acquireForSectors(sector, n, true);
+        }
+        try {
+            CachedResult<CorrelationResponse> response = resultCache.get(
+                    String.join("|", "analytics-correlation", String.valueOf(sector), date, n.toString()),
+                    () -> etfReturnRateService.getCorrelation(sector, date, n));
+            return success(response, "相关系数计算成功");
+        } catch (IllegalArgumentException e) {
+            return Result.error(400, e.getMessage());
+        } catch (Exception e) {
+            return failure("服务器错误，无法计算相关系数");
+        }
+    }
+
+    /**
+     * 与对应的单独接口计费相同；缺少参数的子查询不计费，由服务返回错误
+     */
+    private void acquireForQuery(MultiQueryItem item) {
+        if (MultiQueryItem.SECTORS_BATCH.equals(item.getType()) && item.getSectorsBatch() != null) {
+            SectorsBatchQuery query = item.getSectorsBatch();
+            int n = query.getN() != null ? query.getN() : 15;
+            int window = query.getWindow() != null ? query.getWindow() : 1;
+            rateLimiter.acquireForSectors(query.getSectors(), n + window - 1, query.getIncludeDetails());
+        } else if (MultiQueryItem.ETF_RETURN_RATE.equals(item.getType()) && item.getEtfReturnRate() != null) {
+            rateLimiter.acquireForCodes(item.getEtfReturnRate().getThsCodeList().size(), 2);
+        } else if (MultiQueryItem.SECTOR_RETURN_RATE.equals(item.getType()) && item.getSectorReturnRate() != null) {
+            SectorReturnRateRequest query = item.getSectorReturnRate();
+            rateLimiter.acquireForSectors(query.getSectorList(), 2, query.getIncludeDetails());
+        }
+    }
+
+    /**
+     * 数据库不可用时返回的旧结果带stale=true
+     */
+    private static <T> Result<T> success(CachedResult<T> cached, String message) {
+        Result<T> result = Result.success(cached.getValue(), message);
+        if (cached.isStale()) {
+            result.setStale(true);
+        }
+        return result;
+    }
+
+    /**
+     * 请求超时、数据库熔断与其他服务器错误分别返回504、503和500
+     */
+    private <T> Result<T> failure(String message) {
+        if (RequestDeadline.isExpired()) {
+            return Result.error(ErrorCode.REQUEST_TIMEOUT);
+        }
+        if (circuitBreaker.isOpen()) {
+            return Result.error(ErrorCode.DB_UNAVAILABLE);
+        }
+        return Result.error(500, message);
+    }
 }
@@ -0,0 +1,103 @@
+package com.ives.api.controller;
+
+import com.ives.api.common.api.Result;
+import com.ives.api.common.constant.ErrorCode;
+import com.ives.api.common.exception.BusinessException;
+import com.ives.api.common.util.NavCsvParser;
+import com.ives.api.model.dto.NavIngestRequest;
+import com.ives.api.model.dto.NavIngestResponse;
+import com.ives.api.model.entity.EtfNetasset;
+import com.ives.api.service.NavIngestService;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Pattern;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.List;
+
+/**
+ * 净值写入
+ * 注册用户不能写入净值：调用方须在请求头X-Ingest-Token中携带myapp.ingest.token配置的内部凭证，
+ * 未配置凭证时HTTP写入关闭
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/etf-nav")
+@Validated
+public class NavIngestController {
+    static final String TOKEN_HEADER = "X-Ingest-Token";
+
+    private final NavIngestService navIngestService;
+    private final byte[] ingestToken;
+
+    public NavIngestController(NavIngestService navIngestService,
+                               @Value("${myapp.ingest.token:}") String ingestToken) {
+        this.navIngestService = navIngestService;
+        this.ingestToken = ingestToken.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 写入一个交易日的净值批次（JSON）
+     */
+    @PostMapping(value = "/ingest", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public Result<NavIngestResponse> ingestJson(
+            @RequestHeader(value = TOKEN_HEADER, required = false) String token,
+            @Valid @RequestBody NavIngestRequest request) {
+        checkToken(token);
+        return doIngest(request.getDate(), request.getRecords());
+    }
+
+    /**
+     * 写入一个交易日的净值批次（CSV，表头与etf_netasset字段一致）
+     */
+    @PostMapping(value = "/ingest", consumes = "text/csv")
+    public Result<NavIngestResponse> ingestCsv(
+            @RequestHeader(value = TOKEN_HEADER, required = false) String token,
+
+            @RequestParam
+            @Pattern(regexp = "^\\d{4}-\\d{2}-\\d{2}$", message = "日期格式错误，应为YYYY-MM-DD")
+            String date,
+
+            @RequestBody String body) {
+        checkToken(token);
+        List<EtfNetasset> rows;
+        try {
+            rows = NavCsvParser.parse(new StringReader(body));
+        } catch (IllegalArgumentException e) {
+            return Result.error(400, e.getMessage());
+        } catch (Exception e) {
+            return Result.error(400, "CSV解析失败");
+        }
+        return doIngest(date, rows);
+    }
+
+    /**
+     * 以定长比较校验内部凭证
+     */
+    private void checkToken(String token) {
+        if (ingestToken.length == 0 || token == null
+                || !MessageDigest.isEqual(ingestToken, token.getBytes(StandardCharsets.UTF_8))) {
+            throw new BusinessException(ErrorCode.FORBIDDEN.getCode(), "无权写入净值");
+        }
+    }
+
+    private Result<NavIngestResponse> doIngest(String date, List<EtfNetasset> rows) {
+        try {
+            NavIngestResponse response = navIngestService.ingest(date, rows);
+            return Result.success(response, "净值写入成功");
+        } catch (IllegalArgumentException e) {
+            return Result.error(400, e.getMessage());
+        } catch (BusinessException e) {
+            return Result.error(e.getStatusCode(), e.getMessage());
+        } catch (Exception e) {
+            log.error("净值写入失败: date={}", date, e);
+            return Result.error(500, "服务器错误，净值写入失败");
+        }
+    }
+}
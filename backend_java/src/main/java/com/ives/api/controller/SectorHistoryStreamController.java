@@ -0,0 +1,128 @@
+package com.ives.api.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ives.api.common.api.Result;
+import com.ives.api.common.bulkhead.Bulkhead;
+import com.ives.api.common.bulkhead.BulkheadType;
+import com.ives.api.common.exception.BusinessException;
+import com.ives.api.common.ratelimit.UserRateLimiter;
+import com.ives.api.model.dto.SectorHistoryStreamEvent;
+import com.ives.api.service.EtfReturnRateService;
+import com.ives.api.service.SectorHistoryStream;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Positive;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * 类别收益率历史的流式版本（NDJSON）
+ * 参数校验在请求线程完成，之后释放容器线程，由异步执行器边查边写；
+ * 客户端读得慢时写出阻塞，净值游标随之暂停读取
+ */
+@Slf4j
+@RestController
+@Bulkhead(BulkheadType.HEAVY)
+@RequestMapping("/api/etf")
+@RequiredArgsConstructor
+@Validated
+public class SectorHistoryStreamController {
+    private final EtfReturnRateService etfReturnRateService;
+    private final ObjectMapper objectMapper;
+    private final UserRateLimiter rateLimiter;
+
+    @GetMapping("/sector-return-history/stream")
+    public ResponseEntity<?> streamSectorReturnRateHistory(
+            @RequestParam String sector,
+
+            @RequestParam
+            @Pattern(regexp = "^\\d{4}-\\d{2}-\\d{2}$", message = "日期格式错误，应为YYYY-MM-DD")
+            String date,
+
+            @RequestParam(defaultValue = "3")
+            @Positive(message = "n必须为正整数")
+            @Max(value = 5000, message = "n不能超过5000")
+            Integer n,
+
+            @RequestParam(defaultValue = "false") Boolean includeDetails) {
+        return stream(sector, date, n, includeDetails, "服务器错误，无法查询类别收益率历史");
+    }
+
+    @GetMapping("/sectors/batch/stream")
+    public ResponseEntity<?> streamMultipleSectorsReturnRateHistory(
+            @RequestParam String sectors,
+
+            @RequestParam
+            @Pattern(regexp = "^\\d{4}-\\d{2}-\\d{2}$", message = "日期格式错误，应为YYYY-MM-DD")
+            String date,
+
+            @RequestParam(defaultValue = "15")
+            @Positive(message = "n必须为正整数")
+            @Max(value = 5000, message = "n不能超过5000")
+            Integer n,
+
+            @RequestParam(defaultValue = "false") Boolean includeDetails) {
+        return stream(sectors, date, n, includeDetails, "服务器错误，无法批量查询类别收益率历史");
+    }
+
+    private ResponseEntity<?> stream(String sectors, String date, Integer n, Boolean includeDetails,
+                                     String errorMessage) {
+        rateLimiter.acquireForSectors(sectors, n, includeDetails);
+        SectorHistoryStream stream;
+        try {
+            stream = etfReturnRateService.streamSectorsReturnRateHistory(sectors, date, n, includeDetails);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.ok(Result.error(400, e.getMessage()));
+        } catch (BusinessException e) {
+            return ResponseEntity.ok(Result.error(e.getStatusCode(), e.getMessage()));
+        } catch (Exception e) {
+            log.error("准备流式查询失败", e);
+            return ResponseEntity.ok(Result.error(500, errorMessage));
+        }
+
+        StreamingResponseBody body = out -> writeEvents(stream, out);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
+    /**
+     * 每个事件一行JSON，写完即刷出；响应已开始后的失败以一行error事件告知客户端
+     */
+    private void writeEvents(SectorHistoryStream stream, OutputStream out) {
+        try {
+            stream.forEach(event -> writeLine(out, event));
+        } catch (UncheckedIOException e) {
+            log.debug("客户端已断开，中止流式查询: {}", e.getMessage());
+        } catch (Exception e) {
+            log.error("流式查询类别收益率历史失败", e);
+            try {
+                writeLine(out, SectorHistoryStreamEvent.error("服务器错误，查询中止"));
+            } catch (UncheckedIOException ignored) {
+                // 客户端已断开
+            }
+        }
+    }
+
+    private void writeLine(OutputStream out, SectorHistoryStreamEvent event) {
+        try {
+            out.write(objectMapper.writeValueAsBytes(event));
+            out.write('\n');
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
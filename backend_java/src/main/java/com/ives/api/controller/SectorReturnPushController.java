@@ -0,0 +1,28 @@
+package com.ives.api.controller;
+
+import com.ives.api.service.SectorReturnPushService;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * 类别收益推送（Server-Sent Events）
+ * 连接建立后先收到subscribed事件（订阅的类别列表），之后每次净值写入收到sector-return事件；
+ * 需携带Authorization头，浏览器端应使用基于fetch的SSE客户端
+ * 连接可持续到超时，不占用隔离舱许可（否则会占满轻查询舱），连接数由myapp.push.max-connections限制
+ */
+@RestController
+@RequestMapping("/api/etf/push")
+@RequiredArgsConstructor
+public class SectorReturnPushController {
+    private final SectorReturnPushService sectorReturnPushService;
+
+    @GetMapping("/sector-returns")
+    public SseEmitter subscribe(HttpServletRequest request) {
+        Integer userId = (Integer) request.getAttribute("userId");
+        return sectorReturnPushService.subscribe(userId);
+    }
+}
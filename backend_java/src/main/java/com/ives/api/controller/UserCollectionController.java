@@ -1,6 +1,8 @@
 package com.ives.api.controller;
 
 import com.ives.api.common.api.Result;
+import com.ives.api.common.bulkhead.Bulkhead;
+import com.ives.api.common.bulkhead.BulkheadType;
 import com.ives.api.service.UserCollectionService;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
@@ -12,6 +14,7 @@ import java.util.Map;
 
 @Slf4j
 @RestController
+@Bulkhead(BulkheadType.LIGHT)
 @RequestMapping("/api/etf-collect")
 @RequiredArgsConstructor
 public class UserCollectionController {
@@ -0,0 +1,87 @@
+package com.ives.api.job;
+
+import com.ives.api.common.util.NavCsvParser;
+import com.ives.api.model.entity.EtfNetasset;
+import com.ives.api.service.NavIngestService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * 净值落地目录扫描任务
+ * 定期扫描myapp.ingest.inbox-dir下形如 2025-01-02.csv 的文件并写入，
+ * 成功后移入processed子目录，失败移入failed子目录。未配置目录时不启用。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "myapp.ingest", name = "inbox-dir")
+public class NavIngestJob {
+    private static final Pattern FILE_NAME = Pattern.compile("^\\d{4}-\\d{2}-\\d{2}\\.csv$");
+
+    private final NavIngestService navIngestService;
+
+    @Value("${myapp.ingest.inbox-dir}")
+    private String inboxDir;
+
+    @Scheduled(fixedDelayString = "${myapp.ingest.poll-interval-ms:60000}")
+    public void scanInbox() {
+        Path inbox = Paths.get(inboxDir);
+        if (!Files.isDirectory(inbox)) {
+            return;
+        }
+
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(inbox, "*.csv")) {
+            for (Path file : stream) {
+                if (FILE_NAME.matcher(file.getFileName().toString()).matches()) {
+                    files.add(file);
+                }
+            }
+        } catch (IOException e) {
+            log.error("扫描净值目录失败: {}", inbox, e);
+            return;
+        }
+        // 按日期顺序写入，保证数据版本单调对应交易日
+        Collections.sort(files);
+
+        for (Path file : files) {
+            String fileName = file.getFileName().toString();
+            String date = fileName.substring(0, fileName.length() - ".csv".length());
+            try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                List<EtfNetasset> rows = NavCsvParser.parse(reader);
+                navIngestService.ingest(date, rows);
+                moveTo(file, "processed");
+            } catch (Exception e) {
+                log.error("净值文件写入失败: {}", file, e);
+                moveTo(file, "failed");
+            }
+        }
+    }
+
+    private void moveTo(Path file, String subDir) {
+        try {
+            Path target = file.resolveSibling(subDir);
+            Files.createDirectories(target);
+            Files.move(file, target.resolve(file.getFileName()), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            log.error("移动净值文件失败: {} -> {}", file, subDir, e);
+        }
+    }
+}
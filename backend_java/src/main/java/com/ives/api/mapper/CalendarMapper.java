@@ -32,5 +32,14 @@ public interface CalendarMapper extends BaseMapper<Calendar> {
     List<Calendar> findPreviousNTradingDays(@Param("day") String day,
                                             @Param("limit") Integer limit);
 
+    /**
+     * 查找两个日期之间（包含两端）的交易日
+     * @param startDay 开始日期（格式：YYYYMMDD）
+     * @param endDay 结束日期（格式：YYYYMMDD）
+     * @return 交易日列表（按日期升序排列）
+     */
+    List<Calendar> findTradingDaysBetween(@Param("startDay") String startDay,
+                                          @Param("endDay") String endDay);
+
 
 }
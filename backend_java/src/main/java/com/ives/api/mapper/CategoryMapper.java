@@ -9,6 +9,8 @@ import java.util.List;
 
 @Mapper
 public interface CategoryMapper extends BaseMapper<Category> {
+    List<Category> findAll();
+
     List<Category> findAllActive();
 
     List<Category> findByNames(@Param("names") List<String> names);
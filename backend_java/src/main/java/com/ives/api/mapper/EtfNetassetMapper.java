@@ -4,6 +4,7 @@ import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.ives.api.model.entity.EtfNetasset;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.session.ResultHandler;
 
 import java.util.List;
 
@@ -12,4 +13,29 @@ public interface EtfNetassetMapper extends BaseMapper<EtfNetasset> {
     EtfNetasset findByCodeAndDate(@Param("thsCode") String thsCode, @Param("date") String date);
     List<EtfNetasset> findByCodesAndDate(@Param("thsCodes") List<String> thsCodes, @Param("date") String date);
     List<EtfNetasset> findByCodesAndDates(@Param("thsCodes") List<String> thsCodes, @Param("dates") List<String> dates);
-}
\ No newline at end of file
+
+    /**
+     * 批量写入净值，按(ths_code, time)存在则更新
+     * @param rows 净值记录（调用方负责分块，单次不宜过大）
+     * @return 受影响行数
+     */
+    int upsertBatch(@Param("rows") List<EtfNetasset> rows);
+
+    /**
+     * 逐行回调区间内的复权净值（只查ths_code, time, adjusted_nav），用于装载常驻快照
+     * @param startDate 起始日期（包含，格式：YYYY-MM-DD）
+     * @param endDate 结束日期（包含，格式：YYYY-MM-DD）
+     */
+    void scanAdjustedNav(@Param("startDate") String startDate, @Param("endDate") String endDate,
+                         ResultHandler<EtfNetasset> handler);
+
+    /**
+     * 按交易日升序逐行回调指定代码在区间内的复权净值（只查ths_code, time, adjusted_nav）
+     * 结果集按fetchSize分批读取，回调阻塞时不再继续从数据库取行
+     * @param startDate 起始日期（包含，格式：YYYY-MM-DD）
+     * @param endDate 结束日期（包含，格式：YYYY-MM-DD）
+     */
+    void scanAdjustedNavByCodes(@Param("thsCodes") List<String> thsCodes,
+                                @Param("startDate") String startDate, @Param("endDate") String endDate,
+                                ResultHandler<EtfNetasset> handler);
+}
@@ -0,0 +1,29 @@
+package com.ives.api.market;
+
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 全局数据版本号
+ * 每次净值写入成功后递增，下游缓存与ETag以此判断数据是否过期。
+ * 初始值取启动时间戳，避免重启后与客户端持有的旧版本号撞车。
+ */
+@Component
+public class DataVersion {
+    private final AtomicLong version = new AtomicLong(System.currentTimeMillis());
+
+    /**
+     * 当前数据版本
+     */
+    public long current() {
+        return version.get();
+    }
+
+    /**
+     * 递增并返回新版本
+     */
+    public long bump() {
+        return version.incrementAndGet();
+    }
+}
@@ -0,0 +1,54 @@
+package com.ives.api.market;
+
+import com.ives.api.model.entity.Category;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * ETF与类别元数据的不可变快照
+ * 覆盖EtfInfoMapper/CategoryMapper的常用查询，刷新时整体替换
+ */
+public final class EtfMetadata {
+    public static final EtfMetadata EMPTY = new EtfMetadata(EtfUniverse.EMPTY, Collections.emptyList());
+
+    private final EtfUniverse universe;
+    private final List<Category> activeCategories;
+    private final Map<String, Category> categoriesByName;
+
+    public EtfMetadata(EtfUniverse universe, List<Category> categories) {
+        this.universe = universe;
+        Map<String, Category> byName = new HashMap<>(categories.size() * 2);
+        for (Category category : categories) {
+            // 与findByName的LIMIT 1一致，同名取第一条
+            byName.putIfAbsent(category.getName(), category);
+        }
+        this.categoriesByName = Map.copyOf(byName);
+        // 与findAllActive一致：status = 1，按sort_order升序（NULL在前）
+        this.activeCategories = categories.stream()
+                .filter(c -> c.getStatus() != null && c.getStatus() == 1)
+                .sorted(Comparator.comparing(Category::getSortOrder, Comparator.nullsFirst(Comparator.naturalOrder())))
+                .toList();
+    }
+
+    public EtfUniverse getUniverse() {
+        return universe;
+    }
+
+    /**
+     * 启用的类别，按排序权重升序
+     */
+    public List<Category> getActiveCategories() {
+        return activeCategories;
+    }
+
+    /**
+     * 按名称查找类别（含禁用），不存在返回null
+     */
+    public Category category(String name) {
+        return name == null ? null : categoriesByName.get(name);
+    }
+}
@@ -0,0 +1,15 @@
+package com.ives.api.market;
+
+import lombok.Getter;
+
+/**
+ * 元数据快照替换事件，常驻行情快照据此对齐ETF序号
+ */
+@Getter
+public class EtfMetadataChangedEvent {
+    private final EtfMetadata metadata;
+
+    public EtfMetadataChangedEvent(EtfMetadata metadata) {
+        this.metadata = metadata;
+    }
+}
@@ -0,0 +1,107 @@
+package com.ives.api.market;
+
+import com.ives.api.mapper.CategoryMapper;
+import com.ives.api.mapper.EtfInfoMapper;
+import com.ives.api.model.entity.Category;
+import com.ives.api.model.entity.EtfInfo;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * ETF与类别元数据注册表
+ * 首次访问时装载，此后按固定间隔刷新；每次刷新构建完整的新快照后原子替换，
+ * 查询方拿到的始终是某一次刷新的完整结果，且不产生数据库访问
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class EtfMetadataRegistry {
+    private final EtfInfoMapper etfInfoMapper;
+    private final CategoryMapper categoryMapper;
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final AtomicReference<EtfMetadata> current = new AtomicReference<>();
+    // 装载期间持锁访问数据库，用ReentrantLock而非synchronized，避免虚拟线程在等待查询时钉住载体线程
+    private final ReentrantLock refreshLock = new ReentrantLock();
+
+    /**
+     * 当前元数据快照，尚未装载时同步装载一次
+     */
+    public EtfMetadata current() {
+        EtfMetadata metadata = current.get();
+        if (metadata != null) {
+            return metadata;
+        }
+        refreshLock.lock();
+        try {
+            metadata = current.get();
+            return metadata != null ? metadata : load();
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    /**
+     * 立即从数据库重建快照
+     */
+    public EtfMetadata refresh() {
+        refreshLock.lock();
+        try {
+            return load();
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${myapp.metadata.refresh-interval-ms:300000}",
+            initialDelayString = "${myapp.metadata.refresh-interval-ms:300000}")
+    public void scheduledRefresh() {
+        try {
+            refresh();
+        } catch (Exception e) {
+            // 刷新失败时继续使用旧快照
+            log.error("刷新ETF元数据失败", e);
+        }
+    }
+
+    /**
+     * 写入的净值中出现未知代码，说明etf_info已有变化，立即刷新
+     */
+    @EventListener
+    public void onNavDataChanged(NavDataChangedEvent event) {
+        EtfMetadata metadata = current.get();
+        if (metadata == null) {
+            return;
+        }
+        EtfUniverse universe = metadata.getUniverse();
+        boolean unknown = event.getRows().stream()
+                .anyMatch(row -> universe.ordinalOf(row.getThsCode()) < 0);
+        if (unknown) {
+            try {
+                refresh();
+            } catch (Exception e) {
+                log.error("刷新ETF元数据失败", e);
+            }
+        }
+    }
+
+    private EtfMetadata load() {
+        long start = System.currentTimeMillis();
+        List<EtfInfo> etfs = etfInfoMapper.findAll();
+        List<Category> categories = categoryMapper.findAll();
+        EtfMetadata metadata = new EtfMetadata(new EtfUniverse(etfs), categories);
+        current.set(metadata);
+        log.info("ETF元数据已刷新: etfs={}, activeCategories={}, cost={}ms",
+                etfs.size(), metadata.getActiveCategories().size(), System.currentTimeMillis() - start);
+        eventPublisher.publishEvent(new EtfMetadataChangedEvent(metadata));
+        return metadata;
+    }
+}
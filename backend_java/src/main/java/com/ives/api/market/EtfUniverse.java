@@ -0,0 +1,239 @@
+package com.ives.api.market;
+
+import com.ives.api.model.entity.EtfInfo;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+/**
+ * 不可变ETF全集
+ * 为每只ETF分配从0开始的序号，净值列与各类查询都按序号寻址；
+ * 每个类别的成员保存为序号上的位图，多类别并集、全集等集合运算按字（64位）进行；
+ * 上市区间按起止日各建一个有序索引，查询窗口外的ETF可按位清除
+ */
+public final class EtfUniverse {
+    public static final EtfUniverse EMPTY = new EtfUniverse(Collections.emptyList());
+
+    private final List<EtfInfo> etfs;
+    private final Map<String, Integer> ordinalByCode;
+    private final List<String> sectorNames;
+    private final Map<String, Integer> sectorIndexByName;
+    private final int[] sectorIndexOfEtf;
+    private final BitSet[] sectorMembers;
+    private final BitSet allMembers;
+    private final int[] startDays;
+    private final int[] byStartDay;
+    private final int[] endDays;
+    private final int[] byEndDay;
+
+    public EtfUniverse(List<EtfInfo> etfs) {
+        this.etfs = List.copyOf(etfs);
+        int size = this.etfs.size();
+        Map<String, Integer> ordinals = new HashMap<>(size * 2);
+        Map<String, Integer> sectorIndexes = new HashMap<>();
+        List<String> names = new ArrayList<>();
+        List<BitSet> members = new ArrayList<>();
+        this.sectorIndexOfEtf = new int[size];
+        for (int i = 0; i < size; i++) {
+            EtfInfo etf = this.etfs.get(i);
+            ordinals.put(etf.getThsCode(), i);
+            String sector = etf.getSector();
+            if (sector == null) {
+                sectorIndexOfEtf[i] = -1;
+                continue;
+            }
+            Integer sectorIndex = sectorIndexes.get(sector);
+            if (sectorIndex == null) {
+                sectorIndex = names.size();
+                sectorIndexes.put(sector, sectorIndex);
+                names.add(sector);
+                members.add(new BitSet(size));
+            }
+            sectorIndexOfEtf[i] = sectorIndex;
+            members.get(sectorIndex).set(i);
+        }
+        this.ordinalByCode = Map.copyOf(ordinals);
+        this.sectorIndexByName = Map.copyOf(sectorIndexes);
+        this.sectorNames = List.copyOf(names);
+        this.sectorMembers = members.toArray(new BitSet[0]);
+        this.allMembers = new BitSet(size);
+        this.allMembers.set(0, size);
+
+        this.byStartDay = sortedByDay(this.etfs, EtfInfo::getStartDay);
+        this.startDays = daysOf(this.etfs, byStartDay, EtfInfo::getStartDay);
+        this.byEndDay = sortedByDay(this.etfs, EtfInfo::getEndDay);
+        this.endDays = daysOf(this.etfs, byEndDay, EtfInfo::getEndDay);
+    }
+
+    public int size() {
+        return etfs.size();
+    }
+
+    public EtfInfo etfAt(int ordinal) {
+        return etfs.get(ordinal);
+    }
+
+    public List<EtfInfo> all() {
+        return etfs;
+    }
+
+    /**
+     * 代码对应的序号，不存在返回-1
+     */
+    public int ordinalOf(String thsCode) {
+        Integer ordinal = ordinalByCode.get(thsCode);
+        return ordinal != null ? ordinal : -1;
+    }
+
+    /**
+     * 类别数量，类别下标范围为[0, sectorCount())
+     */
+    public int sectorCount() {
+        return sectorNames.size();
+    }
+
+    public String sectorName(int sectorIndex) {
+        return sectorNames.get(sectorIndex);
+    }
+
+    /**
+     * ETF所属类别下标，未分类返回-1
+     */
+    public int sectorIndexOf(int ordinal) {
+        return sectorIndexOfEtf[ordinal];
+    }
+
+    /**
+     * 全部ETF的位图（副本）
+     */
+    public BitSet allMembers() {
+        return (BitSet) allMembers.clone();
+    }
+
+    /**
+     * 类别成员位图（副本），类别不存在时为空位图
+     */
+    public BitSet sectorMembers(String sector) {
+        Integer sectorIndex = sector == null ? null : sectorIndexByName.get(sector);
+        return sectorIndex != null ? (BitSet) sectorMembers[sectorIndex].clone() : new BitSet();
+    }
+
+    /**
+     * 多个类别成员的并集
+     */
+    public BitSet sectorMembers(Collection<String> sectors) {
+        BitSet union = new BitSet(etfs.size());
+        for (String sector : sectors) {
+            Integer sectorIndex = sector == null ? null : sectorIndexByName.get(sector);
+            if (sectorIndex != null) {
+                union.or(sectorMembers[sectorIndex]);
+            }
+        }
+        return union;
+    }
+
+    /**
+     * 代码列表对应的位图，忽略不在全集内的代码
+     */
+    public BitSet membersOf(Collection<String> thsCodes) {
+        BitSet basket = new BitSet(etfs.size());
+        for (String code : thsCodes) {
+            int ordinal = ordinalOf(code);
+            if (ordinal >= 0) {
+                basket.set(ordinal);
+            }
+        }
+        return basket;
+    }
+
+    /**
+     * 在[fromDay, toDay]内处于上市期的ETF位图（YYYYMMDD整数，闭区间）
+     * 起始日晚于toDay（尚未上市）或结束日早于fromDay（已退市）的ETF被排除，起止日为空视为不限
+     */
+    public BitSet listedBetween(int fromDay, int toDay) {
+        BitSet listed = (BitSet) allMembers.clone();
+        for (int i = upperBound(startDays, toDay); i < byStartDay.length; i++) {
+            listed.clear(byStartDay[i]);
+        }
+        int delisted = lowerBound(endDays, fromDay);
+        for (int i = 0; i < delisted; i++) {
+            listed.clear(byEndDay[i]);
+        }
+        return listed;
+    }
+
+    /**
+     * 位图中ETF的代码，按序号升序
+     */
+    public List<String> codesOf(BitSet members) {
+        List<String> codes = new ArrayList<>(members.cardinality());
+        for (int ordinal = members.nextSetBit(0); ordinal >= 0; ordinal = members.nextSetBit(ordinal + 1)) {
+            codes.add(etfs.get(ordinal).getThsCode());
+        }
+        return codes;
+    }
+
+    /**
+     * 日期非空的ETF序号，按日期升序
+     */
+    private static int[] sortedByDay(List<EtfInfo> etfs, Function<EtfInfo, LocalDate> day) {
+        return IntStream.range(0, etfs.size())
+                .filter(i -> day.apply(etfs.get(i)) != null)
+                .boxed()
+                .sorted(Comparator.comparing(i -> day.apply(etfs.get(i))))
+                .mapToInt(Integer::intValue)
+                .toArray();
+    }
+
+    private static int[] daysOf(List<EtfInfo> etfs, int[] ordinals, Function<EtfInfo, LocalDate> day) {
+        int[] days = new int[ordinals.length];
+        for (int i = 0; i < ordinals.length; i++) {
+            LocalDate date = day.apply(etfs.get(ordinals[i]));
+            days[i] = date.getYear() * 10000 + date.getMonthValue() * 100 + date.getDayOfMonth();
+        }
+        return days;
+    }
+
+    /**
+     * 第一个大于key的下标
+     */
+    private static int upperBound(int[] sorted, int key) {
+        int low = 0;
+        int high = sorted.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sorted[mid] <= key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * 第一个不小于key的下标
+     */
+    private static int lowerBound(int[] sorted, int key) {
+        int low = 0;
+        int high = sorted.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sorted[mid] < key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,243 @@
+package com.ives.api.market;
+
+import com.ives.api.mapper.CalendarMapper;
+import com.ives.api.mapper.EtfNetassetMapper;
+import com.ives.api.model.entity.Calendar;
+import com.ives.api.model.entity.EtfNetasset;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 常驻行情数据仓库
+ * 持有当前MarketSnapshot，读方通过current()无锁获取；
+ * 写方（启动装载、净值写入事件）串行生成新快照后原子替换
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class MarketDataStore {
+    private static final DateTimeFormatter COMPACT_FORMATTER = DateTimeFormatter.ofPattern("yyyyMMdd");
+    private static final int MAX_RELOAD_ATTEMPTS = 3;
+
+    private final EtfMetadataRegistry metadataRegistry;
+    private final CalendarMapper calendarMapper;
+    private final EtfNetassetMapper etfNetassetMapper;
+    private final DataVersion dataVersion;
+
+    private final AtomicReference<MarketSnapshot> current = new AtomicReference<>(MarketSnapshot.EMPTY);
+    private final Object writeLock = new Object();
+
+    @Value("${myapp.market.resident.enabled:false}")
+    private boolean enabled;
+
+    @Value("${myapp.market.resident.days:750}")
+    private int residentDays;
+
+    /**
+     * 当前快照，调用方应在一次请求内只取一次并全程使用
+     */
+    public MarketSnapshot current() {
+        return current.get();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        if (enabled) {
+            reloadInBackground();
+        }
+    }
+
+    private void reloadInBackground() {
+        Thread loader = new Thread(this::reload, "market-snapshot-loader");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    /**
+     * 从数据库重建快照
+     * 装载期间若有净值写入，版本号会变化，此时重新装载以免覆盖掉更新的数据
+     */
+    public void reload() {
+        for (int attempt = 1; attempt <= MAX_RELOAD_ATTEMPTS; attempt++) {
+            long versionAtStart = dataVersion.current();
+            MarketSnapshot loaded;
+            try {
+                loaded = loadFromDatabase(versionAtStart);
+            } catch (Exception e) {
+                log.error("装载常驻行情快照失败", e);
+                return;
+            }
+            synchronized (writeLock) {
+                if (dataVersion.current() == versionAtStart) {
+                    current.set(loaded);
+                    log.info("常驻行情快照已装载: etfs={}, days={}, version={}",
+                            loaded.getUniverse().size(), loaded.getCalendar().size(), loaded.getVersion());
+                    return;
+                }
+            }
+            log.info("装载期间数据版本已变化，重新装载常驻行情快照（第{}次）", attempt);
+        }
+        log.warn("数据持续变化，放弃装载常驻行情快照");
+    }
+
+    @EventListener
+    public void onNavDataChanged(NavDataChangedEvent event) {
+        applyBatch(event.getVersion(), event.getDate(), event.getRows());
+    }
+
+    /**
+     * 元数据刷新后按新的ETF序号重排净值列；出现新代码时后台重新装载以补齐其历史净值
+     */
+    @EventListener
+    public void onMetadataChanged(EtfMetadataChangedEvent event) {
+        EtfUniverse nextUniverse = event.getMetadata().getUniverse();
+        boolean hasNewCodes;
+        synchronized (writeLock) {
+            MarketSnapshot snapshot = current.get();
+            if (snapshot.isEmpty() || snapshot.getUniverse() == nextUniverse) {
+                return;
+            }
+            EtfUniverse universe = snapshot.getUniverse();
+            hasNewCodes = nextUniverse.all().stream()
+                    .anyMatch(etf -> universe.ordinalOf(etf.getThsCode()) < 0);
+            current.set(snapshot.withUniverse(nextUniverse));
+        }
+        if (hasNewCodes) {
+            reloadInBackground();
+        }
+    }
+
+    /**
+     * 将一个交易日的净值写入快照
+     * 未装载快照、日期早于快照首日或非快照内交易日时只推进版本号。
+     * 日期晚于快照末日时按日历表确定新增的交易日：中间跳过的交易日一并追加（净值为空，之后补写时填入），
+     * 日期本身不是交易日时跳过；日历表查询失败时不猜测，改为后台重新装载
+     */
+    void applyBatch(long version, String date, List<EtfNetasset> rows) {
+        MarketSnapshot before = current.get();
+        if (before.isEmpty()) {
+            return;
+        }
+        int day = TradingCalendar.toDayInt(date);
+        int[] newDays = null;
+        if (day > before.getCalendar().lastDay()) {
+            // 在写锁外查询日历表；快照末日只会前移，锁内按当时的末日截取
+            try {
+                newDays = tradingDaysBetween(before.getCalendar().lastDay(), day);
+            } catch (Exception e) {
+                log.warn("查询{}之前的交易日失败，重新装载常驻快照", date, e);
+                reloadInBackground();
+                return;
+            }
+            if (newDays.length == 0 || newDays[newDays.length - 1] != day) {
+                log.warn("净值日期{}不是交易日，不写入常驻快照", date);
+                return;
+            }
+        }
+
+        synchronized (writeLock) {
+            MarketSnapshot snapshot = current.get();
+            if (snapshot.isEmpty()) {
+                return;
+            }
+            TradingCalendar calendar = snapshot.getCalendar();
+            if (day < calendar.firstDay() || (day <= calendar.lastDay() && calendar.indexOf(day) < 0)) {
+                log.debug("净值日期{}不在常驻快照交易日内，跳过", date);
+                return;
+            }
+
+            EtfUniverse universe = snapshot.getUniverse();
+            int[] ordinals = new int[rows.size()];
+            double[] values = new double[rows.size()];
+            int count = 0;
+            for (EtfNetasset row : rows) {
+                int ordinal = universe.ordinalOf(row.getThsCode());
+                if (ordinal < 0 || row.getAdjustedNav() == null) {
+                    continue;
+                }
+                ordinals[count] = ordinal;
+                values[count] = row.getAdjustedNav().doubleValue();
+                count++;
+            }
+            if (count < rows.size()) {
+                log.debug("净值批次{}中有{}条记录不在常驻ETF全集内", date, rows.size() - count);
+            }
+
+            MarketSnapshot next = snapshot;
+            if (day > calendar.lastDay()) {
+                for (int gap : newDays) {
+                    if (gap > next.getCalendar().lastDay() && gap < day) {
+                        next = next.withDay(version, gap, new int[0], new double[0]);
+                    }
+                }
+            }
+            current.set(next.withDay(version, day,
+                    Arrays.copyOf(ordinals, count), Arrays.copyOf(values, count)));
+        }
+    }
+
+    /**
+     * 日历表中(afterDay, day]内的交易日，升序
+     */
+    private int[] tradingDaysBetween(int afterDay, int day) {
+        return calendarMapper.findTradingDaysBetween(String.valueOf(afterDay), String.valueOf(day)).stream()
+                .mapToInt(calendarDay -> TradingCalendar.toDayInt(calendarDay.getDay()))
+                .filter(tradingDay -> tradingDay > afterDay)
+                .sorted()
+                .toArray();
+    }
+
+    /**
+     * 直接发布快照（用于装载与测试）
+     */
+    void publish(MarketSnapshot snapshot) {
+        synchronized (writeLock) {
+            current.set(snapshot);
+        }
+    }
+
+    private MarketSnapshot loadFromDatabase(long version) {
+        String today = LocalDate.now().format(COMPACT_FORMATTER);
+        List<Calendar> days = calendarMapper.findPreviousNTradingDays(today, residentDays);
+        if (days.isEmpty()) {
+            return MarketSnapshot.EMPTY;
+        }
+        int[] dayInts = days.stream()
+                .mapToInt(day -> TradingCalendar.toDayInt(day.getDay()))
+                .sorted()
+                .toArray();
+        TradingCalendar calendar = TradingCalendar.of(dayInts);
+
+        EtfUniverse universe = metadataRegistry.current().getUniverse();
+
+        double[][] navs = new double[universe.size()][calendar.size()];
+        for (double[] column : navs) {
+            Arrays.fill(column, Double.NaN);
+        }
+        etfNetassetMapper.scanAdjustedNav(
+                TradingCalendar.format(calendar.firstDay()),
+                TradingCalendar.format(calendar.lastDay()),
+                context -> {
+                    EtfNetasset row = context.getResultObject();
+                    int ordinal = universe.ordinalOf(row.getThsCode());
+                    if (ordinal < 0 || row.getAdjustedNav() == null) {
+                        return;
+                    }
+                    int dayIndex = calendar.indexOf(TradingCalendar.toDayInt(row.getTime()));
+                    if (dayIndex >= 0) {
+                        navs[ordinal][dayIndex] = row.getAdjustedNav().doubleValue();
+                    }
+                });
+        return MarketSnapshot.build(version, calendar, universe, navs);
+    }
+}
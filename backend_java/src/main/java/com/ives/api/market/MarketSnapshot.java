@@ -0,0 +1,95 @@
+package com.ives.api.market;
+
+import java.util.Arrays;
+
+/**
+ * 常驻行情数据的不可变快照：交易日历 + ETF全集 + 复权净值列
+ * 读请求开始时取一次快照并全程使用，写入方通过整体替换快照发布新数据，
+ * 因此读方永远不会看到写了一半的交易日，也无需加锁
+ */
+public final class MarketSnapshot {
+    public static final MarketSnapshot EMPTY =
+            new MarketSnapshot(0L, TradingCalendar.EMPTY, EtfUniverse.EMPTY, new NavColumn[0]);
+
+    private final long version;
+    private final TradingCalendar calendar;
+    private final EtfUniverse universe;
+    private final NavColumn[] columns;
+
+    private MarketSnapshot(long version, TradingCalendar calendar, EtfUniverse universe, NavColumn[] columns) {
+        this.version = version;
+        this.calendar = calendar;
+        this.universe = universe;
+        this.columns = columns;
+    }
+
+    /**
+     * @param navs 按[ETF序号][交易日序号]排列的复权净值，缺失为NaN
+     */
+    static MarketSnapshot build(long version, TradingCalendar calendar, EtfUniverse universe, double[][] navs) {
+        NavColumn[] columns = new NavColumn[universe.size()];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = NavColumn.of(navs[i]);
+        }
+        return new MarketSnapshot(version, calendar, universe, columns);
+    }
+
+    /**
+     * 写入某交易日的一批净值，返回新快照
+     * 日期晚于当前最后交易日时追加到日历末尾；只复制受影响列的末块
+     *
+     * @param ordinals 受影响的ETF序号
+     * @param values   与ordinals一一对应的复权净值
+     */
+    MarketSnapshot withDay(long newVersion, int day, int[] ordinals, double[] values) {
+        TradingCalendar nextCalendar = calendar;
+        int dayIndex = calendar.indexOf(day);
+        if (dayIndex < 0) {
+            nextCalendar = calendar.withAppended(day);
+            dayIndex = nextCalendar.size() - 1;
+        }
+        NavColumn[] nextColumns = Arrays.copyOf(columns, columns.length);
+        for (int i = 0; i < ordinals.length; i++) {
+            nextColumns[ordinals[i]] = nextColumns[ordinals[i]].with(dayIndex, values[i]);
+        }
+        return new MarketSnapshot(newVersion, nextCalendar, universe, nextColumns);
+    }
+
+    /**
+     * 按新的ETF全集重排净值列，返回新快照；新增代码的列为空
+     */
+    MarketSnapshot withUniverse(EtfUniverse nextUniverse) {
+        NavColumn[] nextColumns = new NavColumn[nextUniverse.size()];
+        for (int i = 0; i < nextColumns.length; i++) {
+            int ordinal = universe.ordinalOf(nextUniverse.etfAt(i).getThsCode());
+            nextColumns[i] = ordinal >= 0 ? columns[ordinal] : NavColumn.EMPTY;
+        }
+        return new MarketSnapshot(version, calendar, nextUniverse, nextColumns);
+    }
+
+    public boolean isEmpty() {
+        return calendar.isEmpty();
+    }
+
+    /**
+     * 快照对应的数据版本
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    public TradingCalendar getCalendar() {
+        return calendar;
+    }
+
+    public EtfUniverse getUniverse() {
+        return universe;
+    }
+
+    /**
+     * 复权净值，缺失返回NaN
+     */
+    public double nav(int ordinal, int dayIndex) {
+        return columns[ordinal].get(dayIndex);
+    }
+}
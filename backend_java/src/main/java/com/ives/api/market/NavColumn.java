@@ -0,0 +1,61 @@
+package com.ives.api.market;
+
+import java.util.Arrays;
+
+/**
+ * 单只ETF的复权净值列，按交易日序号寻址，缺失值为NaN
+ * 以定长分块存储，写入时只复制被修改的块（通常是最末一块），其余块在新旧版本间共享
+ */
+final class NavColumn {
+    private static final int CHUNK_BITS = 8;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    static final NavColumn EMPTY = new NavColumn(new double[0][]);
+
+    private final double[][] chunks;
+
+    private NavColumn(double[][] chunks) {
+        this.chunks = chunks;
+    }
+
+    static NavColumn of(double[] values) {
+        double[][] chunks = new double[(values.length + CHUNK_MASK) >>> CHUNK_BITS][];
+        for (int c = 0; c < chunks.length; c++) {
+            double[] chunk = newChunk();
+            int from = c << CHUNK_BITS;
+            System.arraycopy(values, from, chunk, 0, Math.min(CHUNK_SIZE, values.length - from));
+            chunks[c] = chunk;
+        }
+        return new NavColumn(chunks);
+    }
+
+    double get(int dayIndex) {
+        int c = dayIndex >>> CHUNK_BITS;
+        if (c >= chunks.length) {
+            return Double.NaN;
+        }
+        return chunks[c][dayIndex & CHUNK_MASK];
+    }
+
+    /**
+     * 返回写入一个值后的新列，原列不变
+     */
+    NavColumn with(int dayIndex, double value) {
+        int c = dayIndex >>> CHUNK_BITS;
+        double[][] next = Arrays.copyOf(chunks, Math.max(chunks.length, c + 1));
+        for (int i = chunks.length; i < next.length; i++) {
+            next[i] = newChunk();
+        }
+        double[] chunk = c < chunks.length ? chunks[c].clone() : next[c];
+        chunk[dayIndex & CHUNK_MASK] = value;
+        next[c] = chunk;
+        return new NavColumn(next);
+    }
+
+    private static double[] newChunk() {
+        double[] chunk = new double[CHUNK_SIZE];
+        Arrays.fill(chunk, Double.NaN);
+        return chunk;
+    }
+}
@@ -0,0 +1,34 @@
+package com.ives.api.market;
+
+import com.ives.api.model.entity.EtfNetasset;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * 净值数据变更事件
+ * 在一批净值事务提交后发布，监听方据此刷新常驻数据或使缓存失效
+ */
+@Getter
+public class NavDataChangedEvent {
+    /**
+     * 写入后的数据版本
+     */
+    private final long version;
+
+    /**
+     * 写入的交易日（格式：YYYY-MM-DD）
+     */
+    private final String date;
+
+    /**
+     * 本次写入的净值记录（只读）
+     */
+    private final List<EtfNetasset> rows;
+
+    public NavDataChangedEvent(long version, String date, List<EtfNetasset> rows) {
+        this.version = version;
+        this.date = date;
+        this.rows = List.copyOf(rows);
+    }
+}
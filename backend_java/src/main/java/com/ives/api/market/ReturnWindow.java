@@ -0,0 +1,68 @@
+package com.ives.api.market;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 常用区间收益的统计窗口
+ * 起点为区间起始日当天或之前最近的交易日，终点为查询日当天或之前最近的交易日；
+ * YTD的起点为上一年最后一个交易日
+ */
+public enum ReturnWindow {
+    W1("1W"), M1("1M"), M3("3M"), YTD("YTD"), Y1("1Y");
+
+    private final String label;
+
+    ReturnWindow(String label) {
+        this.label = label;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    /**
+     * 起点交易日不晚于的日期（int形式的YYYYMMDD）
+     */
+    public int startTarget(int endDay) {
+        LocalDate end = LocalDate.of(endDay / 10000, endDay / 100 % 100, endDay % 100);
+        LocalDate start = switch (this) {
+            case W1 -> end.minusWeeks(1);
+            case M1 -> end.minusMonths(1);
+            case M3 -> end.minusMonths(3);
+            case YTD -> LocalDate.of(end.getYear() - 1, 12, 31);
+            case Y1 -> end.minusYears(1);
+        };
+        return start.getYear() * 10000 + start.getMonthValue() * 100 + start.getDayOfMonth();
+    }
+
+    /**
+     * 解析窗口名（不区分大小写，去重并保持顺序），为空时返回全部窗口
+     */
+    public static List<ReturnWindow> parseAll(List<String> labels) {
+        if (labels == null || labels.isEmpty()) {
+            return Arrays.asList(values());
+        }
+        List<ReturnWindow> windows = new ArrayList<>();
+        for (String label : labels) {
+            ReturnWindow window = of(label);
+            if (!windows.contains(window)) {
+                windows.add(window);
+            }
+        }
+        return windows;
+    }
+
+    private static ReturnWindow of(String label) {
+        String normalized = label == null ? "" : label.trim().toUpperCase(Locale.ROOT);
+        for (ReturnWindow window : values()) {
+            if (window.label.equals(normalized)) {
+                return window;
+            }
+        }
+        throw new IllegalArgumentException("不支持的区间" + label + "，可选：1W、1M、3M、YTD、1Y");
+    }
+}
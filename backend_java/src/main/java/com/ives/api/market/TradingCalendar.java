@@ -0,0 +1,123 @@
+package com.ives.api.market;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+
+/**
+ * 不可变交易日历
+ * 按升序保存交易日（int形式的YYYYMMDD），下标即交易日序号
+ */
+public final class TradingCalendar {
+    public static final TradingCalendar EMPTY = new TradingCalendar(new int[0]);
+
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+    private static final DateTimeFormatter COMPACT_FORMATTER = DateTimeFormatter.ofPattern("yyyyMMdd");
+
+    private final int[] days;
+
+    private TradingCalendar(int[] days) {
+        this.days = days;
+    }
+
+    /**
+     * @param ascendingDays 升序交易日，调用方保证有序且不重复
+     */
+    public static TradingCalendar of(int[] ascendingDays) {
+        return new TradingCalendar(ascendingDays.clone());
+    }
+
+    public int size() {
+        return days.length;
+    }
+
+    public boolean isEmpty() {
+        return days.length == 0;
+    }
+
+    public int dayAt(int index) {
+        return days[index];
+    }
+
+    /**
+     * 第index个交易日（格式：YYYY-MM-DD）
+     */
+    public String dateAt(int index) {
+        return format(days[index]);
+    }
+
+    public int firstDay() {
+        return days.length == 0 ? 0 : days[0];
+    }
+
+    public int lastDay() {
+        return days.length == 0 ? 0 : days[days.length - 1];
+    }
+
+    /**
+     * 交易日的下标，非交易日或不在范围内返回-1
+     */
+    public int indexOf(int day) {
+        int index = Arrays.binarySearch(days, day);
+        return index >= 0 ? index : -1;
+    }
+
+    /**
+     * 不晚于day的最后一个交易日下标，不存在返回-1
+     */
+    public int floorIndex(int day) {
+        int index = Arrays.binarySearch(days, day);
+        return index >= 0 ? index : -index - 2;
+    }
+
+    /**
+     * 不早于day的第一个交易日下标，不存在返回size()
+     */
+    public int ceilingIndex(int day) {
+        int index = Arrays.binarySearch(days, day);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    /**
+     * 追加一个更晚的交易日，返回新日历
+     */
+    public TradingCalendar withAppended(int day) {
+        if (days.length > 0 && day <= lastDay()) {
+            throw new IllegalArgumentException("追加的交易日必须晚于" + lastDay());
+        }
+        int[] next = Arrays.copyOf(days, days.length + 1);
+        next[days.length] = day;
+        return new TradingCalendar(next);
+    }
+
+    /**
+     * 解析YYYY-MM-DD或YYYYMMDD为int形式，非法日期抛出DateTimeParseException
+     */
+    public static int toDayInt(String date) {
+        LocalDate parsed = date.length() == 8
+                ? LocalDate.parse(date, COMPACT_FORMATTER)
+                : LocalDate.parse(date, DATE_FORMATTER);
+        return parsed.getYear() * 10000 + parsed.getMonthValue() * 100 + parsed.getDayOfMonth();
+    }
+
+    /**
+     * int形式的YYYYMMDD格式化为YYYY-MM-DD
+     */
+    public static String format(int day) {
+        char[] chars = new char[10];
+        int year = day / 10000;
+        int month = day / 100 % 100;
+        int dayOfMonth = day % 100;
+        chars[0] = (char) ('0' + year / 1000);
+        chars[1] = (char) ('0' + year / 100 % 10);
+        chars[2] = (char) ('0' + year / 10 % 10);
+        chars[3] = (char) ('0' + year % 10);
+        chars[4] = '-';
+        chars[5] = (char) ('0' + month / 10);
+        chars[6] = (char) ('0' + month % 10);
+        chars[7] = '-';
+        chars[8] = (char) ('0' + dayOfMonth / 10);
+        chars[9] = (char) ('0' + dayOfMonth % 10);
+        return new String(chars);
+    }
+}
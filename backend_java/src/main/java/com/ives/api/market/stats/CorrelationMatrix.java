@@ -0,0 +1,135 @@
+package com.ives.api.market.stats;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+/**
+ * 多条收益序列的相关系数矩阵
+ * 每条序列加入时只标准化一次（减均值、除以离差平方和的平方根），之后任意两条序列的相关系数即为点积；
+ * 矩阵按BLOCK×BLOCK的行块分片并行计算，同一分片内反复读取的两组行常驻缓存。
+ * 结果只保留严格下三角，按行展开：(1,0), (2,0), (2,1), (3,0), ...
+ */
+public final class CorrelationMatrix {
+    private static final int BLOCK = 64;
+
+    private final int length;
+    private final List<String> labels = new ArrayList<>();
+    private final List<Integer> observations = new ArrayList<>();
+    private final List<double[]> rows = new ArrayList<>();
+
+    /**
+     * @param length 每条序列的期数
+     */
+    public CorrelationMatrix(int length) {
+        this.length = length;
+    }
+
+    /**
+     * 加入一条序列，缺失值为NaN，按均值填补（标准化后为0）
+     * 有效值不足2个或没有波动的序列不参与计算，返回false
+     */
+    public boolean add(String label, double[] returns) {
+        if (returns.length != length) {
+            throw new IllegalArgumentException("序列长度应为" + length);
+        }
+        int count = 0;
+        double mean = 0;
+        for (double r : returns) {
+            if (!Double.isNaN(r)) {
+                count++;
+                mean += (r - mean) / count;
+            }
+        }
+        double squares = 0;
+        for (double r : returns) {
+            if (!Double.isNaN(r)) {
+                squares += (r - mean) * (r - mean);
+            }
+        }
+        if (count < 2 || squares <= 0) {
+            return false;
+        }
+
+        double scale = 1 / Math.sqrt(squares);
+        double[] row = new double[length];
+        for (int t = 0; t < length; t++) {
+            row[t] = Double.isNaN(returns[t]) ? 0 : (returns[t] - mean) * scale;
+        }
+        labels.add(label);
+        observations.add(count);
+        rows.add(row);
+        return true;
+    }
+
+    public int size() {
+        return rows.size();
+    }
+
+    public List<String> getLabels() {
+        return labels;
+    }
+
+    public List<Integer> getObservations() {
+        return observations;
+    }
+
+    /**
+     * 第i、j（i > j）条序列的相关系数在下三角数组中的位置
+     */
+    public static int packedIndex(int i, int j) {
+        return i * (i - 1) / 2 + j;
+    }
+
+    /**
+     * 计算严格下三角，每个行块对(bi, bj)（bj <= bi）为一个子任务，各子任务写入互不重叠的位置
+     */
+    public double[] lowerTriangle(Executor executor) {
+        double[][] matrix = rows.toArray(new double[0][]);
+        int m = matrix.length;
+        double[] packed = new double[m * (m - 1) / 2];
+        int blocks = (m + BLOCK - 1) / BLOCK;
+
+        List<CompletableFuture<Void>> tiles = new ArrayList<>();
+        for (int bi = 0; bi < blocks; bi++) {
+            for (int bj = 0; bj <= bi; bj++) {
+                int rowBlock = bi;
+                int columnBlock = bj;
+                tiles.add(CompletableFuture.runAsync(
+                        () -> tile(matrix, packed, rowBlock, columnBlock), executor));
+            }
+        }
+        try {
+            CompletableFuture.allOf(tiles.toArray(new CompletableFuture<?>[0])).join();
+        } catch (CompletionException e) {
+            tiles.forEach(tile -> tile.cancel(false));
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+        return packed;
+    }
+
+    private static void tile(double[][] matrix, double[] packed, int rowBlock, int columnBlock) {
+        int iFrom = rowBlock * BLOCK;
+        int iTo = Math.min(matrix.length, iFrom + BLOCK);
+        int jFrom = columnBlock * BLOCK;
+        int jTo = Math.min(matrix.length, jFrom + BLOCK);
+        for (int i = iFrom; i < iTo; i++) {
+            double[] a = matrix[i];
+            int base = packedIndex(i, 0);
+            int jEnd = rowBlock == columnBlock ? i : jTo;
+            for (int j = jFrom; j < jEnd; j++) {
+                double[] b = matrix[j];
+                double dot = 0;
+                for (int t = 0; t < a.length; t++) {
+                    dot += a[t] * b[t];
+                }
+                packed[base + j] = Math.max(-1, Math.min(1, dot));
+            }
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.ives.api.market.stats;
+
+/**
+ * Largest-Triangle-Three-Buckets降采样
+ * 首尾点固定保留，中间的点均分为threshold-2个桶，每个桶选出与上一个选中点、下一个桶均值点
+ * 构成三角形面积最大的点，尽量保留序列的形状与极值；x取点的下标
+ */
+public final class Lttb {
+    private Lttb() {
+    }
+
+    /**
+     * 选出不超过threshold个点的下标（升序）；点数不超过threshold时全部保留
+     */
+    public static int[] select(double[] values, int threshold) {
+        int n = values.length;
+        if (threshold < 3) {
+            throw new IllegalArgumentException("降采样点数至少为3");
+        }
+        if (n <= threshold) {
+            int[] all = new int[n];
+            for (int i = 0; i < n; i++) {
+                all[i] = i;
+            }
+            return all;
+        }
+
+        int[] sampled = new int[threshold];
+        double bucketSize = (double) (n - 2) / (threshold - 2);
+        int selected = 0;
+        for (int bucket = 0; bucket < threshold - 2; bucket++) {
+            // 下一个桶的均值点
+            int nextStart = (int) ((bucket + 1) * bucketSize) + 1;
+            int nextEnd = Math.min((int) ((bucket + 2) * bucketSize) + 1, n);
+            double avgX = 0;
+            double avgY = 0;
+            for (int j = nextStart; j < nextEnd; j++) {
+                avgX += j;
+                avgY += values[j];
+            }
+            avgX /= nextEnd - nextStart;
+            avgY /= nextEnd - nextStart;
+
+            int from = (int) (bucket * bucketSize) + 1;
+            int to = (int) ((bucket + 1) * bucketSize) + 1;
+            double maxArea = -1;
+            int next = from;
+            for (int j = from; j < to; j++) {
+                double area = Math.abs((selected - avgX) * (values[j] - values[selected])
+                        - (selected - j) * (avgY - values[selected]));
+                if (area > maxArea) {
+                    maxArea = area;
+                    next = j;
+                }
+            }
+            sampled[bucket + 1] = next;
+            selected = next;
+        }
+        sampled[threshold - 1] = n - 1;
+        return sampled;
+    }
+}
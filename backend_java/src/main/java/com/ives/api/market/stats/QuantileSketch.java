@@ -0,0 +1,154 @@
+package com.ives.api.market.stats;
+
+import java.util.Arrays;
+
+/**
+ * 可合并的近似分位数草图
+ * 以(值, 权重)对保存样本，条目数超过容量时按值排序、相邻两条合并为一条（保留其中一个值，权重相加），
+ * 内存不超过容量的两倍；样本数不超过容量时结果精确。
+ * 两个草图合并只需拼接条目再按需压缩，类别的草图可直接合并成多类别或全市场的分位数，无需再次扫描原始数据
+ */
+public final class QuantileSketch {
+    public static final int DEFAULT_CAPACITY = 256;
+
+    private final int capacity;
+    private double[] values;
+    private long[] weights;
+    private int size = 0;
+    private long count = 0;
+    private boolean sorted = true;
+    // 压缩时交替保留每对中的较小值与较大值，避免整体偏向一侧
+    private boolean keepUpper = false;
+
+    public QuantileSketch() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public QuantileSketch(int capacity) {
+        if (capacity < 2) {
+            throw new IllegalArgumentException("容量至少为2");
+        }
+        this.capacity = capacity;
+        this.values = new double[Math.min(capacity, 16)];
+        this.weights = new long[values.length];
+    }
+
+    /**
+     * 加入一个样本，NaN忽略
+     */
+    public void add(double value) {
+        if (Double.isNaN(value)) {
+            return;
+        }
+        append(value, 1);
+        compactIfFull();
+    }
+
+    /**
+     * 并入另一个草图，other本身不变
+     */
+    public void merge(QuantileSketch other) {
+        for (int i = 0; i < other.size; i++) {
+            append(other.values[i], other.weights[i]);
+        }
+        compactIfFull();
+    }
+
+    /**
+     * 样本总数（含已压缩的）
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * 最近秩分位数：累计权重首次达到q×总数的值，q取0到1；没有样本时为NaN
+     */
+    public double quantile(double q) {
+        if (count == 0) {
+            return Double.NaN;
+        }
+        sort();
+        long rank = Math.max(1, (long) Math.ceil(q * count));
+        long cumulative = 0;
+        for (int i = 0; i < size; i++) {
+            cumulative += weights[i];
+            if (cumulative >= rank) {
+                return values[i];
+            }
+        }
+        return values[size - 1];
+    }
+
+    private void append(double value, long weight) {
+        if (size == values.length) {
+            int grown = Math.max(values.length * 2, 16);
+            values = Arrays.copyOf(values, grown);
+            weights = Arrays.copyOf(weights, grown);
+        }
+        if (size > 0 && value < values[size - 1]) {
+            sorted = false;
+        }
+        values[size] = value;
+        weights[size] = weight;
+        size++;
+        count += weight;
+    }
+
+    private void compactIfFull() {
+        while (size > capacity) {
+            sort();
+            int kept = 0;
+            for (int i = 0; i + 1 < size; i += 2) {
+                values[kept] = keepUpper ? values[i + 1] : values[i];
+                weights[kept] = weights[i] + weights[i + 1];
+                kept++;
+            }
+            if ((size & 1) == 1) {
+                values[kept] = values[size - 1];
+                weights[kept] = weights[size - 1];
+                kept++;
+            }
+            size = kept;
+            keepUpper = !keepUpper;
+        }
+    }
+
+    private void sort() {
+        if (sorted) {
+            return;
+        }
+        double[] valueBuffer = new double[size];
+        long[] weightBuffer = new long[size];
+        mergeSort(0, size, valueBuffer, weightBuffer);
+        sorted = true;
+    }
+
+    /**
+     * 按值对(值, 权重)并行数组做归并排序
+     */
+    private void mergeSort(int from, int to, double[] valueBuffer, long[] weightBuffer) {
+        if (to - from < 2) {
+            return;
+        }
+        int mid = (from + to) >>> 1;
+        mergeSort(from, mid, valueBuffer, weightBuffer);
+        mergeSort(mid, to, valueBuffer, weightBuffer);
+        if (values[mid - 1] <= values[mid]) {
+            return;
+        }
+        int left = from;
+        int right = mid;
+        for (int k = from; k < to; k++) {
+            if (right >= to || (left < mid && values[left] <= values[right])) {
+                valueBuffer[k] = values[left];
+                weightBuffer[k] = weights[left++];
+            } else {
+                valueBuffer[k] = values[right];
+                weightBuffer[k] = weights[right++];
+            }
+        }
+        System.arraycopy(valueBuffer, from, values, from, to - from);
+        System.arraycopy(weightBuffer, from, weights, from, to - from);
+    }
+}
@@ -0,0 +1,68 @@
+package com.ives.api.market.stats;
+
+/**
+ * 单遍累加的收益序列风险指标
+ * 均值与方差用Welford递推（避免平方和相减的精度损失），
+ * 累计净值与历史高点随收益逐个更新，得到区间总收益与最大回撤；内存占用与序列长度无关
+ */
+public final class RiskAccumulator {
+    private long count = 0;
+    private double mean = 0;
+    private double m2 = 0;
+    private double wealth = 1;
+    private double peak = 1;
+    private double maxDrawdown = 0;
+
+    /**
+     * 累加一期收益（如0.01表示1%），NaN忽略
+     */
+    public void add(double returnRate) {
+        if (Double.isNaN(returnRate)) {
+            return;
+        }
+        count++;
+        double delta = returnRate - mean;
+        mean += delta / count;
+        m2 += delta * (returnRate - mean);
+
+        wealth *= 1 + returnRate;
+        if (wealth > peak) {
+            peak = wealth;
+        } else {
+            maxDrawdown = Math.max(maxDrawdown, 1 - wealth / peak);
+        }
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getMean() {
+        return count > 0 ? mean : Double.NaN;
+    }
+
+    /**
+     * 样本方差，少于两期时为NaN
+     */
+    public double getVariance() {
+        return count > 1 ? m2 / (count - 1) : Double.NaN;
+    }
+
+    public double getStdDev() {
+        return Math.sqrt(getVariance());
+    }
+
+    /**
+     * 各期收益复利后的总收益
+     */
+    public double getTotalReturn() {
+        return count > 0 ? wealth - 1 : Double.NaN;
+    }
+
+    /**
+     * 最大回撤（正数，如0.2表示自高点下跌20%），起点净值计为高点
+     */
+    public double getMaxDrawdown() {
+        return count > 0 ? maxDrawdown : Double.NaN;
+    }
+}
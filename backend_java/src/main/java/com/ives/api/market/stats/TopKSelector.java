@@ -0,0 +1,115 @@
+package com.ives.api.market.stats;
+
+import java.util.Arrays;
+
+/**
+ * 在一遍扫描中选出数值最大（或最小）的k个元素，元素以int标识
+ * 用定长的原生数组小顶堆保存当前入选者，每次offer为O(log k)，不为未入选的元素分配对象；
+ * 数值相同时标识小的优先，保证结果稳定
+ */
+public final class TopKSelector {
+    private final int k;
+    private final boolean largest;
+    private final double[] keys;
+    private final int[] ids;
+    private int size = 0;
+
+    /**
+     * @param largest true选最大的k个，false选最小的k个
+     */
+    public TopKSelector(int k, boolean largest) {
+        if (k <= 0) {
+            throw new IllegalArgumentException("k必须为正整数");
+        }
+        this.k = k;
+        this.largest = largest;
+        this.keys = new double[k];
+        this.ids = new int[k];
+    }
+
+    /**
+     * NaN忽略
+     */
+    public void offer(int id, double value) {
+        if (Double.isNaN(value)) {
+            return;
+        }
+        // 选最小的k个等价于对相反数选最大的k个
+        double key = largest ? value : -value;
+        if (size < k) {
+            keys[size] = key;
+            ids[size] = id;
+            siftUp(size++);
+        } else if (better(key, id, keys[0], ids[0])) {
+            keys[0] = key;
+            ids[0] = id;
+            siftDown(0);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 入选元素的标识，按名次排列（最大或最小的在前）
+     */
+    public int[] sortedIds() {
+        Integer[] order = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> better(keys[a], ids[a], keys[b], ids[b]) ? -1 : 1);
+        int[] result = new int[size];
+        for (int i = 0; i < size; i++) {
+            result[i] = ids[order[i]];
+        }
+        return result;
+    }
+
+    private static boolean better(double key, int id, double otherKey, int otherId) {
+        return key > otherKey || (key == otherKey && id < otherId);
+    }
+
+    /**
+     * 堆顶为入选者中最差的一个
+     */
+    private void siftUp(int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!better(keys[parent], ids[parent], keys[i], ids[i])) {
+                break;
+            }
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int i) {
+        while (true) {
+            int left = 2 * i + 1;
+            if (left >= size) {
+                return;
+            }
+            int worst = left;
+            int right = left + 1;
+            if (right < size && better(keys[left], ids[left], keys[right], ids[right])) {
+                worst = right;
+            }
+            if (!better(keys[i], ids[i], keys[worst], ids[worst])) {
+                return;
+            }
+            swap(i, worst);
+            i = worst;
+        }
+    }
+
+    private void swap(int a, int b) {
+        double key = keys[a];
+        keys[a] = keys[b];
+        keys[b] = key;
+        int id = ids[a];
+        ids[a] = ids[b];
+        ids[b] = id;
+    }
+}
@@ -0,0 +1,21 @@
+package com.ives.api.model.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 异步任务结果的一页，各行与流式查询（NDJSON）的事件相同
+ */
+@Data
+public class AnalysisJobPage {
+    private String jobId;
+    private String state;
+    private Integer offset;
+    private Integer limit;
+    /**
+     * 当前已写入的行数，任务运行中会继续增长
+     */
+    private Integer totalLines;
+    private List<SectorHistoryStreamEvent> items;
+}
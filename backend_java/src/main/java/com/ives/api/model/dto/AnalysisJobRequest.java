@@ -0,0 +1,35 @@
+package com.ives.api.model.dto;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Positive;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 异步类别收益率历史任务
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AnalysisJobRequest {
+    /**
+     * 类别，为空时计算全部类别
+     */
+    private List<String> sectorList;
+
+    @NotNull(message = "date不能为空")
+    @Pattern(regexp = "^\\d{4}-\\d{2}-\\d{2}$", message = "日期格式错误，应为YYYY-MM-DD")
+    private String date;
+
+    @NotNull(message = "n不能为空")
+    @Positive(message = "n必须为正整数")
+    @Max(value = 5000, message = "n不能超过5000")
+    private Integer n;
+
+    private Boolean includeDetails = false;
+}
@@ -0,0 +1,42 @@
+package com.ives.api.model.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * 异步任务状态
+ */
+@Data
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class AnalysisJobStatus {
+    public static final String QUEUED = "QUEUED";
+    public static final String RUNNING = "RUNNING";
+    public static final String SUCCEEDED = "SUCCEEDED";
+    public static final String FAILED = "FAILED";
+
+    private String jobId;
+    private String state;
+    /**
+     * 提交时已有相同参数且基于相同数据版本的任务，直接返回该任务
+     */
+    private Boolean deduplicated;
+    private Long dataVersion;
+    /**
+     * 已输出的类别逐日结果数 / 预计总数
+     */
+    private Long processedDays;
+    private Long totalDays;
+    private Double progress;
+    /**
+     * 已写入结果的行数与字节数，结果超过内存阈值后转存磁盘
+     */
+    private Integer resultLines;
+    private Long resultBytes;
+    private Boolean spilled;
+    private LocalDateTime submittedAt;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+    private String error;
+}
@@ -12,4 +12,5 @@ public class BatchQueryResult {
     private String queryDate;
     private Integer tradingDaysCount;
     private Map<String, SectorHistoryResult> results;
+    private java.util.List<DailyReturnRate> combined;
 }
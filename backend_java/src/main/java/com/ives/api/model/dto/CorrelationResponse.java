@@ -0,0 +1,24 @@
+package com.ives.api.model.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 日收益相关系数矩阵
+ * sector为空时labels为类别名，否则为该类别内ETF代码；observations为各序列的有效日收益数；
+ * correlations为严格下三角按行展开（(1,0), (2,0), (2,1), (3,0), ...），第i、j（i > j）项位于i*(i-1)/2+j，保留4位小数
+ */
+@Data
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class CorrelationResponse {
+    private String queryDate;
+    private String startDate;
+    private String endDate;
+    private Integer tradingDays;
+    private String sector;
+    private List<String> labels;
+    private List<Integer> observations;
+    private double[] correlations;
+}
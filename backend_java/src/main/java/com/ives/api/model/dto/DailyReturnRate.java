@@ -17,6 +17,14 @@ public class DailyReturnRate {
     private Integer validEtfCount;
     private java.math.BigDecimal avgReturnRate;
     private String avgReturnRatePercent;
+    /**
+     * 当日各ETF收益的中位数、10%与90%分位数，及上涨、下跌的ETF数；仅在请求includeDistribution时返回
+     */
+    private java.math.BigDecimal medianReturnRate;
+    private java.math.BigDecimal p10ReturnRate;
+    private java.math.BigDecimal p90ReturnRate;
+    private Integer advancers;
+    private Integer decliners;
     private String error;
     private List<EtfReturnDetail> etfDetails;
 }
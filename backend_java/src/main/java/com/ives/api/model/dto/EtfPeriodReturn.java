@@ -0,0 +1,17 @@
+package com.ives.api.model.dto;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * 单只ETF在各区间的收益，returns与PeriodReturnResponse.windows一一对应，缺少净值时为null
+ */
+@Data
+public class EtfPeriodReturn {
+    private String thsCode;
+    private String chineseName;
+    private String sector;
+    private List<BigDecimal> returns;
+}
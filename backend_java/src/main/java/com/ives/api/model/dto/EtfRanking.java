@@ -0,0 +1,17 @@
+package com.ives.api.model.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 一组ETF（全部或某个类别）内的区间收益排名，top按收益从高到低，bottom按收益从低到高
+ */
+@Data
+public class EtfRanking {
+    private String sector;
+    private String sectorDescription;
+    private Integer validEtfs;
+    private List<ReturnRateResult> top;
+    private List<ReturnRateResult> bottom;
+}
@@ -0,0 +1,41 @@
+package com.ives.api.model.dto;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Positive;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EtfRankingRequest {
+    /**
+     * 类别，为空时在全部ETF中排名
+     */
+    private List<String> sectorList;
+
+    @NotNull(message = "start_date不能为空")
+    @Pattern(regexp = "^\\d{4}-\\d{2}-\\d{2}$", message = "日期格式错误")
+    private String start_date;
+
+    @NotNull(message = "end_date不能为空")
+    @Pattern(regexp = "^\\d{4}-\\d{2}-\\d{2}$", message = "日期格式错误")
+    private String end_date;
+
+    /**
+     * 涨幅前k与后k名
+     */
+    @Positive(message = "k必须为正整数")
+    @Max(value = 100, message = "k不能超过100")
+    private Integer k = 10;
+
+    /**
+     * 是否在每个类别内分别排名
+     */
+    private Boolean perSector = false;
+}
@@ -0,0 +1,15 @@
+package com.ives.api.model.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class EtfRankingResponse {
+    private String startDate;
+    private String endDate;
+    private Integer k;
+    private Integer totalEtfs;
+    private Integer validEtfs;
+    private List<EtfRanking> rankings;
+}
@@ -0,0 +1,10 @@
+package com.ives.api.model.dto;
+
+import lombok.Data;
+
+@Data
+public class EtfRiskStats {
+    private String thsCode;
+    private String chineseName;
+    private RiskStats risk;
+}
@@ -0,0 +1,40 @@
+package com.ives.api.model.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Pattern;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 合并查询中的一个子查询，按type填写对应的参数对象
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MultiQueryItem {
+    public static final String AVAILABLE_SECTORS = "available-sectors";
+    public static final String SECTORS_BATCH = "sectors-batch";
+    public static final String ETF_RETURN_RATE = "etf-return-rate";
+    public static final String SECTOR_RETURN_RATE = "sector-return-rate";
+
+    /**
+     * 客户端自定的标识，原样返回；为空时使用下标
+     */
+    private String id;
+
+    @NotNull(message = "type不能为空")
+    @Pattern(regexp = "^(available-sectors|sectors-batch|etf-return-rate|sector-return-rate)$",
+            message = "type应为available-sectors、sectors-batch、etf-return-rate或sector-return-rate")
+    private String type;
+
+    @Valid
+    private SectorsBatchQuery sectorsBatch;
+
+    @Valid
+    private EtfReturnRateRequest etfReturnRate;
+
+    @Valid
+    private SectorReturnRateRequest sectorReturnRate;
+}
@@ -0,0 +1,19 @@
+package com.ives.api.model.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MultiQueryRequest {
+    @NotEmpty(message = "queries不能为空")
+    @Size(max = 20, message = "一次最多20个子查询")
+    private List<@Valid MultiQueryItem> queries;
+}
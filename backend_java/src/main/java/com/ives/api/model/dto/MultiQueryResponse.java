@@ -0,0 +1,20 @@
+package com.ives.api.model.dto;
+
+import lombok.Data;
+
+import java.util.List;
+import java.util.Map;
+
+@Data
+public class MultiQueryResponse {
+    private Long dataVersion;
+    private List<MultiQueryResult> results;
+    /**
+     * 快照未覆盖部分的合并取数：代码数、日期数、净值行数
+     */
+    private Integer fetchedCodes;
+    private Integer fetchedDates;
+    private Integer fetchedRows;
+    private Long responseTimeMs;
+    private Map<String, Long> detailedTiming;
+}
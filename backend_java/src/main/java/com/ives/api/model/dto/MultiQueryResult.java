@@ -0,0 +1,16 @@
+package com.ives.api.model.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Data;
+
+/**
+ * 子查询结果：成功时data为对应单独接口的响应数据，参数错误时error为错误信息
+ */
+@Data
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class MultiQueryResult {
+    private String id;
+    private String type;
+    private Object data;
+    private String error;
+}
@@ -10,5 +10,17 @@ public class MultipleSectorsReturnRateHistoryResponse {
     private String queryDate;
     private Integer tradingDaysCount;
     private java.util.Map<String, SectorHistoryResult> results;
+    /**
+     * 所有查询类别合并后的逐日统计（与各类别相同的日期顺序），仅在请求includeDistribution时返回
+     */
+    private java.util.List<DailyReturnRate> combined;
+    /**
+     * 请求的since：只返回截止日晚于该日期的交易日
+     */
+    private String since;
+    /**
+     * 计算时的数据版本，净值写入后递增
+     */
+    private Long dataVersion;
     private PerformanceInfo performance;
 }
\ No newline at end of file
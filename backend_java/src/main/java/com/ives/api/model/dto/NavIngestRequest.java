@@ -0,0 +1,23 @@
+package com.ives.api.model.dto;
+
+import com.ives.api.model.entity.EtfNetasset;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Pattern;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class NavIngestRequest {
+    @NotNull(message = "date不能为空")
+    @Pattern(regexp = "^\\d{4}-\\d{2}-\\d{2}$", message = "日期格式错误")
+    private String date;
+
+    @NotEmpty(message = "records不能为空")
+    private List<EtfNetasset> records;
+}
@@ -0,0 +1,15 @@
+package com.ives.api.model.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class NavIngestResponse {
+    private String date;
+    private Integer received;
+    private Integer written;
+    private Long dataVersion;
+}
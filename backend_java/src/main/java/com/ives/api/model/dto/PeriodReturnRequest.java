@@ -0,0 +1,36 @@
+package com.ives.api.model.dto;
+
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Pattern;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PeriodReturnRequest {
+    /**
+     * 截止日期，非交易日取之前最近的交易日
+     */
+    @NotNull(message = "date不能为空")
+    @Pattern(regexp = "^\\d{4}-\\d{2}-\\d{2}$", message = "日期格式错误")
+    private String date;
+
+    /**
+     * 区间：1W、1M、3M、YTD、1Y，为空时返回全部
+     */
+    private List<String> windows;
+
+    /**
+     * 类别，为空时统计全部类别
+     */
+    private List<String> sectorList;
+
+    /**
+     * 是否同时返回每只ETF的区间收益
+     */
+    private Boolean includeEtfs = false;
+}
@@ -0,0 +1,19 @@
+package com.ives.api.model.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class PeriodReturnResponse {
+    /**
+     * 实际截止交易日
+     */
+    private String endDate;
+    private List<PeriodWindow> windows;
+    private Integer totalEtfs;
+    private List<SectorPeriodReturn> sectors;
+    private List<EtfPeriodReturn> etfs;
+}
@@ -0,0 +1,16 @@
+package com.ives.api.model.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PeriodWindow {
+    private String window;
+    /**
+     * 起点交易日，日历未覆盖时为null，该区间的收益均为null
+     */
+    private String startDate;
+}
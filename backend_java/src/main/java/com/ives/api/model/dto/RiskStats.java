@@ -0,0 +1,21 @@
+package com.ives.api.model.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Data;
+
+import java.math.BigDecimal;
+
+/**
+ * 日收益序列的风险指标，数据不足以计算的指标不输出
+ */
+@Data
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class RiskStats {
+    private Integer observations;
+    private BigDecimal meanReturn;
+    private BigDecimal volatility;
+    private BigDecimal annualizedVolatility;
+    private BigDecimal totalReturn;
+    private BigDecimal maxDrawdown;
+    private BigDecimal sharpeRatio;
+}
@@ -0,0 +1,63 @@
+package com.ives.api.model.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Data;
+
+/**
+ * 流式类别收益率历史中的一行（NDJSON）
+ * 顺序为：每个类别一条sector，按交易日升序每日每类别一条daily，最后一条end；中途失败时以error结束
+ */
+@Data
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class SectorHistoryStreamEvent {
+    public static final String SECTOR = "sector";
+    public static final String DAILY = "daily";
+    public static final String END = "end";
+    public static final String ERROR = "error";
+
+    private String type;
+    private String sector;
+    /**
+     * type=sector：类别概况（不含逐日历史）
+     */
+    private SectorHistoryResult summary;
+    /**
+     * type=daily：该类别一个交易日的收益
+     */
+    private DailyReturnRate daily;
+    /**
+     * type=end：输出的交易日数；type=error：错误信息
+     */
+    private Integer tradingDaysCount;
+    private String message;
+
+    public static SectorHistoryStreamEvent sector(String sector, SectorHistoryResult summary) {
+        SectorHistoryStreamEvent event = new SectorHistoryStreamEvent();
+        event.setType(SECTOR);
+        event.setSector(sector);
+        event.setSummary(summary);
+        return event;
+    }
+
+    public static SectorHistoryStreamEvent daily(String sector, DailyReturnRate daily) {
+        SectorHistoryStreamEvent event = new SectorHistoryStreamEvent();
+        event.setType(DAILY);
+        event.setSector(sector);
+        event.setDaily(daily);
+        return event;
+    }
+
+    public static SectorHistoryStreamEvent end(int tradingDaysCount) {
+        SectorHistoryStreamEvent event = new SectorHistoryStreamEvent();
+        event.setType(END);
+        event.setTradingDaysCount(tradingDaysCount);
+        return event;
+    }
+
+    public static SectorHistoryStreamEvent error(String message) {
+        SectorHistoryStreamEvent event = new SectorHistoryStreamEvent();
+        event.setType(ERROR);
+        event.setMessage(message);
+        return event;
+    }
+}
@@ -0,0 +1,18 @@
+package com.ives.api.model.dto;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * 类别在各区间的平均收益，returns、validCounts与PeriodReturnResponse.windows一一对应
+ */
+@Data
+public class SectorPeriodReturn {
+    private String sector;
+    private String sectorDescription;
+    private Integer totalEtfs;
+    private List<BigDecimal> returns;
+    private List<Integer> validCounts;
+}
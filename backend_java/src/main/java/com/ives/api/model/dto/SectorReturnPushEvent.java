@@ -0,0 +1,18 @@
+package com.ives.api.model.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 净值写入后推送的类别当日收益，同一类别的所有订阅者共用一份序列化结果
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SectorReturnPushEvent {
+    private String sector;
+    private String sectorDescription;
+    private Long dataVersion;
+    private DailyReturnRate daily;
+}
@@ -1,5 +1,6 @@
 package com.ives.api.model.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.Data;
 
 import java.util.List;
@@ -14,4 +15,13 @@ public class SectorReturnRateHistoryResponse {
     private Integer actualCount;
     private Integer totalEtfs;
     private List<DailyReturnRate> returnRateHistory;
+    /**
+     * 请求的since：只返回截止日晚于该日期的交易日
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String since;
+    /**
+     * 计算时的数据版本，净值写入后递增
+     */
+    private Long dataVersion;
 }
\ No newline at end of file
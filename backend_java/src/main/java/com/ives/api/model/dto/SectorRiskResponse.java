@@ -0,0 +1,16 @@
+package com.ives.api.model.dto;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+@Data
+public class SectorRiskResponse {
+    private String queryDate;
+    private String startDate;
+    private String endDate;
+    private Integer tradingDays;
+    private BigDecimal riskFreeRate;
+    private List<SectorRiskResult> sectors;
+}
@@ -0,0 +1,20 @@
+package com.ives.api.model.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 类别的风险指标，类别日收益为当日各有效ETF收益的平均
+ */
+@Data
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class SectorRiskResult {
+    private String sector;
+    private String sectorDescription;
+    private Integer totalEtfs;
+    private RiskStats risk;
+    private List<EtfRiskStats> etfs;
+    private String error;
+}
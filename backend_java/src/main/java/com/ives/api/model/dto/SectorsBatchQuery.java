@@ -0,0 +1,44 @@
+package com.ives.api.model.dto;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Positive;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 合并查询中的多类别收益率历史，参数与/sectors/batch相同
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SectorsBatchQuery {
+    @NotBlank(message = "sectors不能为空")
+    private String sectors;
+
+    @NotNull(message = "date不能为空")
+    @Pattern(regexp = "^\\d{4}-\\d{2}-\\d{2}$", message = "日期格式错误，应为YYYY-MM-DD")
+    private String date;
+
+    @Positive(message = "n必须为正整数")
+    @Max(value = 5000, message = "n不能超过5000")
+    private Integer n = 15;
+
+    @Positive(message = "window必须为正整数")
+    @Max(value = 250, message = "window不能超过250")
+    private Integer window = 1;
+
+    private Boolean includeDetails = false;
+
+    private Boolean includeDistribution = false;
+
+    @Min(value = 3, message = "maxPoints至少为3")
+    private Integer maxPoints;
+
+    @Pattern(regexp = "^\\d{4}-\\d{2}-\\d{2}$", message = "since格式错误，应为YYYY-MM-DD")
+    private String since;
+}
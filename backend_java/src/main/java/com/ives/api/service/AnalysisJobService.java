@@ -0,0 +1,28 @@
+package com.ives.api.service;
+
+import com.ives.api.model.dto.AnalysisJobPage;
+import com.ives.api.model.dto.AnalysisJobRequest;
+import com.ives.api.model.dto.AnalysisJobStatus;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+public interface AnalysisJobService {
+    /**
+     * 提交异步类别收益率历史任务，参数在提交时校验
+     * 相同参数且数据版本未变时返回已有任务
+     */
+    AnalysisJobStatus submit(AnalysisJobRequest request);
+
+    AnalysisJobStatus getStatus(String jobId);
+
+    /**
+     * 分页读取任务结果，任务运行中可读取已完成的部分
+     */
+    AnalysisJobPage getPage(String jobId, int offset, int limit);
+
+    /**
+     * 以NDJSON写出任务结果中从offset行起的全部行
+     */
+    void writeResults(String jobId, int offset, OutputStream out) throws IOException;
+}
@@ -15,6 +15,11 @@ public interface EtfReturnRateService {
      */
     SectorReturnRateResponse getReturnRateBySectors(SectorReturnRateRequest request);
 
+    /**
+     * 区间收益前k名与后k名的ETF，可在全部ETF中或按类别分别排名
+     */
+    EtfRankingResponse getEtfRanking(EtfRankingRequest request);
+
     /**
      * 获取所有可用类别
      */
@@ -22,14 +27,49 @@ public interface EtfReturnRateService {
 
     /**
      * 查询n个连续交易日的类别平均收益率
+     * window大于1时为滚动收益：每个交易日相对其前第window个交易日的收益；
+     * includeDistribution时每日附带收益的中位数、P10/P90与涨跌家数；
+     * maxPoints不为空时序列降采样到不超过maxPoints个点；
+     * since（YYYY-MM-DD）不为空时只计算并返回截止日晚于since的交易日，用于客户端增量同步
      */
     SectorReturnRateHistoryResponse getSectorReturnRateHistory(
-            String sector, String date, Integer n, Boolean includeDetails);
+            String sector, String date, Integer n, Integer window, Boolean includeDetails, Boolean includeDistribution,
+            Integer maxPoints, String since);
 
     /**
-     * 批量查询多个类别的收益率历史
+     * 批量查询多个类别的收益率历史，参数含义同上；includeDistribution时另附所有类别合并后的逐日统计
      */
     MultipleSectorsReturnRateHistoryResponse getMultipleSectorsReturnRateHistory(
-            String sectors, String date, Integer n, Boolean includeDetails, Boolean includeTiming);
+            String sectors, String date, Integer n, Integer window, Boolean includeDetails,
+            Boolean includeDistribution, Integer maxPoints, String since, Boolean includeTiming);
+
+    /**
+     * 合并查询：一次请求执行多个子查询（类别列表、多类别收益率历史、ETF区间收益、类别区间收益），
+     * 先汇总各子查询所需的ETF与交易日并一次取数，再分别计算；单个子查询的参数错误只影响该子查询
+     */
+    MultiQueryResponse getMultiQuery(MultiQueryRequest request);
+
+    /**
+     * 流式查询多个类别的收益率历史
+     * 参数与交易日在调用时校验，返回的查询在执行时逐行读取净值并按交易日输出
+     */
+    SectorHistoryStream streamSectorsReturnRateHistory(
+            String sectors, String date, Integer n, Boolean includeDetails);
+
+    /**
+     * 多个常用区间（1W/1M/3M/YTD/1Y）的类别平均收益，可选附带每只ETF的区间收益
+     */
+    PeriodReturnResponse getPeriodReturns(PeriodReturnRequest request);
+
+    /**
+     * 截至date的n个交易日内各类别（为空时全部类别）的波动率、最大回撤与夏普比率，可选附带每只ETF
+     * riskFreeRate为年化无风险利率
+     */
+    SectorRiskResponse getRiskStats(String sectors, String date, Integer n, Boolean includeEtfs, Double riskFreeRate);
+
+    /**
+     * 截至date的n个交易日内日收益的相关系数矩阵：sector为空时在全部类别之间，否则在该类别的ETF之间
+     */
+    CorrelationResponse getCorrelation(String sector, String date, Integer n);
 
 }
@@ -0,0 +1,16 @@
+package com.ives.api.service;
+
+import com.ives.api.model.dto.NavIngestResponse;
+import com.ives.api.model.entity.EtfNetasset;
+
+import java.util.List;
+
+public interface NavIngestService {
+    /**
+     * 写入某一交易日的净值批次
+     * @param date 交易日，格式：YYYY-MM-DD
+     * @param rows 净值记录，time为空时取date，非空时必须与date一致
+     * @return 写入结果及写入后的数据版本
+     */
+    NavIngestResponse ingest(String date, List<EtfNetasset> rows);
+}
@@ -0,0 +1,17 @@
+package com.ives.api.service;
+
+import com.ives.api.model.dto.SectorHistoryStreamEvent;
+
+import java.util.function.Consumer;
+
+/**
+ * 已通过校验、尚未执行的流式收益率历史查询
+ */
+@FunctionalInterface
+public interface SectorHistoryStream {
+    /**
+     * 执行查询，边读取净值边按交易日依次输出事件
+     * sink阻塞时查询随之暂停；sink抛出异常时查询中止并释放数据库连接
+     */
+    void forEach(Consumer<SectorHistoryStreamEvent> sink);
+}
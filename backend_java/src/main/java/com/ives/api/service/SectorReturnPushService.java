@@ -0,0 +1,11 @@
+package com.ives.api.service;
+
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+public interface SectorReturnPushService {
+    /**
+     * 为用户建立SSE连接，每次净值写入后推送其收藏类别在该交易日的平均收益
+     * 收藏的类别在建立连接时确定，变更后重新连接生效
+     */
+    SseEmitter subscribe(Integer userId);
+}
@@ -0,0 +1,452 @@
+package com.ives.api.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ives.api.common.constant.ErrorCode;
+import com.ives.api.common.deadline.RequestDeadline;
+import com.ives.api.common.exception.BusinessException;
+import com.ives.api.common.job.SpillingLineBuffer;
+import com.ives.api.market.DataVersion;
+import com.ives.api.market.EtfMetadataRegistry;
+import com.ives.api.market.EtfUniverse;
+import com.ives.api.model.dto.AnalysisJobPage;
+import com.ives.api.model.dto.AnalysisJobRequest;
+import com.ives.api.model.dto.AnalysisJobStatus;
+import com.ives.api.model.dto.SectorHistoryStreamEvent;
+import com.ives.api.service.AnalysisJobService;
+import com.ives.api.service.EtfReturnRateService;
+import com.ives.api.service.SectorHistoryStream;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 异步类别收益率历史任务
+ * 任务在有界的任务线程池上执行流式查询，每个事件序列化为一行写入结果缓冲（超过内存阈值后转存磁盘）；
+ * 相同参数且数据版本未变的任务只计算一次。所有任务（含运行中）的结果合计受max-store-bytes约束：
+ * 每行写入前预留空间，超出时先淘汰最早完成的任务，仍不足则该任务失败；存储已满时拒绝提交。
+ * 完成后的任务保留retention-ms后删除。
+ * 指标：jobs.active、jobs.store.bytes
+ */
+@Slf4j
+@Service
+public class AnalysisJobServiceImpl implements AnalysisJobService {
+    private static final int STREAM_PAGE_LINES = 512;
+    private static final long STREAM_POLL_MS = 500;
+
+    private final EtfReturnRateService etfReturnRateService;
+    private final EtfMetadataRegistry metadataRegistry;
+    private final DataVersion dataVersion;
+    private final ObjectMapper objectMapper;
+    private final AsyncTaskExecutor jobExecutor;
+    private final Path spillDirectory;
+    private final int spillThresholdBytes;
+    private final long maxResultBytes;
+    private final long maxStoreBytes;
+    private final long retentionMs;
+    private final long timeoutMs;
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+    private final Map<String, Job> jobsByKey = new ConcurrentHashMap<>();
+    /**
+     * 所有任务结果已占用（含已预留）的字节数
+     */
+    private final AtomicLong storedBytes = new AtomicLong();
+
+    public AnalysisJobServiceImpl(EtfReturnRateService etfReturnRateService,
+                                  EtfMetadataRegistry metadataRegistry,
+                                  DataVersion dataVersion,
+                                  ObjectMapper objectMapper,
+                                  AsyncTaskExecutor jobExecutor,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${myapp.jobs.spill-dir:${java.io.tmpdir}/ives-jobs}") String spillDirectory,
+                                  @Value("${myapp.jobs.spill-threshold-bytes:4194304}") int spillThresholdBytes,
+                                  @Value("${myapp.jobs.max-result-bytes:268435456}") long maxResultBytes,
+                                  @Value("${myapp.jobs.max-store-bytes:1073741824}") long maxStoreBytes,
+                                  @Value("${myapp.jobs.retention-ms:3600000}") long retentionMs,
+                                  @Value("${myapp.jobs.timeout-ms:1800000}") long timeoutMs) {
+        this.etfReturnRateService = etfReturnRateService;
+        this.metadataRegistry = metadataRegistry;
+        this.dataVersion = dataVersion;
+        this.objectMapper = objectMapper;
+        this.jobExecutor = jobExecutor;
+        this.spillDirectory = Path.of(spillDirectory);
+        this.spillThresholdBytes = spillThresholdBytes;
+        this.maxResultBytes = maxResultBytes;
+        this.maxStoreBytes = maxStoreBytes;
+        this.retentionMs = retentionMs;
+        this.timeoutMs = timeoutMs;
+        Gauge.builder("jobs.active", jobs, map -> map.values().stream().filter(job -> !job.isFinished()).count())
+                .register(meterRegistry);
+        Gauge.builder("jobs.store.bytes", storedBytes, AtomicLong::get).register(meterRegistry);
+    }
+
+    @Override
+    public AnalysisJobStatus submit(AnalysisJobRequest request) {
+        // 类别排序去重后作为任务参数，顺序不同的相同请求视为同一任务
+        TreeSet<String> sectors = new TreeSet<>();
+        if (request.getSectorList() != null) {
+            request.getSectorList().stream().filter(StringUtils::hasText).map(String::trim).forEach(sectors::add);
+        }
+        if (sectors.isEmpty()) {
+            EtfUniverse universe = metadataRegistry.current().getUniverse();
+            for (int i = 0; i < universe.sectorCount(); i++) {
+                sectors.add(universe.sectorName(i));
+            }
+        }
+        boolean includeDetails = Boolean.TRUE.equals(request.getIncludeDetails());
+        long version = dataVersion.current();
+        String key = String.join(",", sectors) + "|" + request.getDate() + "|" + request.getN()
+                + "|" + includeDetails + "|" + version;
+
+        Job existing = jobsByKey.get(key);
+        if (existing != null && !AnalysisJobStatus.FAILED.equals(existing.state)) {
+            AnalysisJobStatus status = existing.toStatus();
+            status.setDeduplicated(true);
+            return status;
+        }
+
+        if (storedBytes.get() >= maxStoreBytes) {
+            enforceStoreLimit();
+            if (storedBytes.get() >= maxStoreBytes) {
+                throw new BusinessException(ErrorCode.SERVICE_BUSY.getCode(), "任务结果存储已满，请稍后重试");
+            }
+        }
+
+        // 参数与交易日在提交时校验，错误直接返回给调用方
+        SectorHistoryStream stream = etfReturnRateService.streamSectorsReturnRateHistory(
+                String.join(",", sectors), request.getDate(), request.getN(), includeDetails);
+
+        Job job;
+        synchronized (jobsByKey) {
+            existing = jobsByKey.get(key);
+            if (existing != null && !AnalysisJobStatus.FAILED.equals(existing.state)) {
+                AnalysisJobStatus status = existing.toStatus();
+                status.setDeduplicated(true);
+                return status;
+            }
+            job = new Job(UUID.randomUUID().toString(), key, version, request.getN(),
+                    new SpillingLineBuffer(spillDirectory, spillThresholdBytes, maxResultBytes));
+            jobs.put(job.id, job);
+            jobsByKey.put(key, job);
+        }
+        try {
+            jobExecutor.execute(() -> run(job, stream));
+        } catch (TaskRejectedException e) {
+            discard(job);
+            throw new BusinessException(ErrorCode.SERVICE_BUSY);
+        }
+        log.info("提交异步任务{}: sectors={}, date={}, n={}, includeDetails={}",
+                job.id, sectors.size(), request.getDate(), request.getN(), includeDetails);
+        AnalysisJobStatus status = job.toStatus();
+        status.setDeduplicated(false);
+        return status;
+    }
+
+    @Override
+    public AnalysisJobStatus getStatus(String jobId) {
+        return find(jobId).toStatus();
+    }
+
+    @Override
+    public AnalysisJobPage getPage(String jobId, int offset, int limit) {
+        Job job = find(jobId);
+        job.readers.incrementAndGet();
+        try {
+            AnalysisJobPage page = new AnalysisJobPage();
+            page.setJobId(jobId);
+            page.setState(job.state);
+            page.setOffset(offset);
+            page.setLimit(limit);
+            page.setTotalLines(job.buffer.lines());
+            List<SectorHistoryStreamEvent> items = new ArrayList<>();
+            for (byte[] line : job.buffer.read(offset, limit)) {
+                items.add(objectMapper.readValue(line, SectorHistoryStreamEvent.class));
+            }
+            page.setItems(items);
+            return page;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (IllegalStateException e) {
+            throw expired();
+        } finally {
+            job.readers.decrementAndGet();
+        }
+    }
+
+    /**
+     * 按页写出，写出时不持有缓冲的锁；任务仍在运行时等待新结果，直到任务结束
+     * 写出期间任务不会被淘汰；仍被删除时（如读者登记前已删除）以错误结束，不当作下载完成
+     */
+    @Override
+    public void writeResults(String jobId, int offset, OutputStream out) throws IOException {
+        Job job = find(jobId);
+        job.readers.incrementAndGet();
+        try {
+            int next = offset;
+            while (true) {
+                boolean finished = job.isFinished();
+                List<byte[]> lines = readLines(job, next);
+                for (byte[] line : lines) {
+                    out.write(line);
+                    out.write('\n');
+                }
+                next += lines.size();
+                if (lines.isEmpty() && finished) {
+                    return;
+                }
+                // 等待期间也刷出，客户端断开或下载超时时尽快结束
+                out.flush();
+                if (lines.isEmpty()) {
+                    job.awaitProgress(STREAM_POLL_MS);
+                }
+            }
+        } finally {
+            job.readers.decrementAndGet();
+        }
+    }
+
+    private static List<byte[]> readLines(Job job, int from) throws IOException {
+        try {
+            return job.buffer.read(from, STREAM_PAGE_LINES);
+        } catch (IllegalStateException e) {
+            throw expired();
+        }
+    }
+
+    private static BusinessException expired() {
+        return new BusinessException(ErrorCode.NOT_FOUND.getCode(), "任务不存在或已过期");
+    }
+
+    /**
+     * 删除保留期已过的任务，释放结果占用的内存与磁盘
+     */
+    @Scheduled(fixedDelayString = "${myapp.jobs.cleanup-ms:60000}")
+    public void evictExpired() {
+        long now = System.currentTimeMillis();
+        for (Job job : jobs.values()) {
+            if (job.isFinished() && job.readers.get() == 0 && now - job.finishedAtMillis > retentionMs) {
+                discard(job);
+            }
+        }
+    }
+
+    void run(Job job, SectorHistoryStream stream) {
+        job.start();
+        try {
+            RequestDeadline.callWithin(timeoutMs, () -> {
+                stream.forEach(event -> append(job, event));
+                return null;
+            });
+            job.finish(AnalysisJobStatus.SUCCEEDED, null);
+            log.info("异步任务{}完成: lines={}, bytes={}, spilled={}",
+                    job.id, job.buffer.lines(), job.buffer.bytes(), job.buffer.spilled());
+        } catch (Exception e) {
+            log.warn("异步任务{}失败", job.id, e);
+            job.finish(AnalysisJobStatus.FAILED, failureMessage(e));
+        }
+        enforceStoreLimit();
+    }
+
+    /**
+     * 先在存储总量中预留该行的空间再写入；超出上限且淘汰已结束的任务后仍不足时任务失败
+     */
+    private void append(Job job, SectorHistoryStreamEvent event) {
+        byte[] line = encode(event);
+        long size = line.length + 1;
+        if (storedBytes.addAndGet(size) > maxStoreBytes) {
+            enforceStoreLimit();
+            if (storedBytes.get() > maxStoreBytes) {
+                storedBytes.addAndGet(-size);
+                throw new IllegalStateException("任务结果存储已满，请稍后重试");
+            }
+        }
+        try {
+            job.append(line, event);
+        } catch (RuntimeException e) {
+            storedBytes.addAndGet(-size);
+            throw e;
+        }
+    }
+
+    /**
+     * 所有结果合计超过存储上限时，按完成时间从早到晚删除已结束且没有读者的任务
+     */
+    private synchronized void enforceStoreLimit() {
+        if (storedBytes.get() <= maxStoreBytes) {
+            return;
+        }
+        List<Job> finished = new ArrayList<>();
+        for (Job job : jobs.values()) {
+            if (job.isFinished() && job.readers.get() == 0) {
+                finished.add(job);
+            }
+        }
+        finished.sort(Comparator.comparingLong(job -> job.finishedAtMillis));
+        for (Job job : finished) {
+            if (storedBytes.get() <= maxStoreBytes) {
+                break;
+            }
+            discard(job);
+            log.info("结果存储超过上限，删除异步任务{}", job.id);
+        }
+    }
+
+    private Job find(String jobId) {
+        Job job = jobs.get(jobId);
+        if (job == null) {
+            throw expired();
+        }
+        return job;
+    }
+
+    /**
+     * 只对已结束或未开始的任务调用；同一任务只释放一次
+     */
+    private void discard(Job job) {
+        if (!jobs.remove(job.id, job)) {
+            return;
+        }
+        jobsByKey.remove(job.key, job);
+        storedBytes.addAndGet(-job.buffer.bytes());
+        try {
+            job.buffer.close();
+        } catch (IOException e) {
+            log.warn("删除异步任务{}的结果失败", job.id, e);
+        }
+    }
+
+    private byte[] encode(SectorHistoryStreamEvent event) {
+        try {
+            return objectMapper.writeValueAsBytes(event);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String failureMessage(Exception e) {
+        if (RequestDeadline.isExpired()) {
+            return ErrorCode.REQUEST_TIMEOUT.getMessage();
+        }
+        if (e instanceof IllegalStateException || e instanceof BusinessException) {
+            return e.getMessage();
+        }
+        return "服务器错误，任务执行失败";
+    }
+
+    /**
+     * 任务状态由任务线程写入，查询线程读取
+     */
+    static class Job {
+        private final String id;
+        private final String key;
+        private final long version;
+        private final int days;
+        private final SpillingLineBuffer buffer;
+        private final LocalDateTime submittedAt = LocalDateTime.now();
+        private final AtomicLong processedDays = new AtomicLong();
+        // 正在分页读取或下载的读者数，大于0时不淘汰
+        private final AtomicInteger readers = new AtomicInteger();
+        private volatile long totalDays;
+        private volatile String state = AnalysisJobStatus.QUEUED;
+        private volatile LocalDateTime startedAt;
+        private volatile LocalDateTime finishedAt;
+        private volatile long finishedAtMillis;
+        private volatile String error;
+
+        Job(String id, String key, long version, int days, SpillingLineBuffer buffer) {
+            this.id = id;
+            this.key = key;
+            this.version = version;
+            this.days = days;
+            this.buffer = buffer;
+        }
+
+        void start() {
+            startedAt = LocalDateTime.now();
+            state = AnalysisJobStatus.RUNNING;
+        }
+
+        /**
+         * 写入一行并更新进度：每个有数据的类别预计输出days条逐日结果
+         */
+        void append(byte[] line, SectorHistoryStreamEvent event) {
+            try {
+                buffer.append(line);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            if (SectorHistoryStreamEvent.SECTOR.equals(event.getType()) && event.getSummary().getError() == null) {
+                totalDays += days;
+            } else if (SectorHistoryStreamEvent.DAILY.equals(event.getType())) {
+                processedDays.incrementAndGet();
+            }
+        }
+
+        synchronized void finish(String finalState, String message) {
+            error = message;
+            finishedAt = LocalDateTime.now();
+            finishedAtMillis = System.currentTimeMillis();
+            state = finalState;
+            notifyAll();
+        }
+
+        synchronized void awaitProgress(long millis) {
+            if (!isFinished()) {
+                try {
+                    wait(millis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("等待任务结果被中断", e);
+                }
+            }
+        }
+
+        boolean isFinished() {
+            return AnalysisJobStatus.SUCCEEDED.equals(state) || AnalysisJobStatus.FAILED.equals(state);
+        }
+
+        AnalysisJobStatus toStatus() {
+            AnalysisJobStatus status = new AnalysisJobStatus();
+            status.setJobId(id);
+            status.setState(state);
+            status.setDataVersion(version);
+            long processed = processedDays.get();
+            long total = totalDays;
+            status.setProcessedDays(processed);
+            status.setTotalDays(total);
+            if (AnalysisJobStatus.SUCCEEDED.equals(state)) {
+                status.setProgress(1.0);
+            } else {
+                status.setProgress(total > 0 ? Math.min(1.0, (double) processed / total) : 0.0);
+            }
+            status.setResultLines(buffer.lines());
+            status.setResultBytes(buffer.bytes());
+            status.setSpilled(buffer.spilled());
+            status.setSubmittedAt(submittedAt);
+            status.setStartedAt(startedAt);
+            status.setFinishedAt(finishedAt);
+            status.setError(error);
+            return status;
+        }
+    }
+}
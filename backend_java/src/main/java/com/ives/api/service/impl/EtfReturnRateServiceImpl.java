@@ -1,18 +1,34 @@
 package com.ives.api.service.impl;
 
+import com.ives.api.common.deadline.RequestDeadline;
 import com.ives.api.common.exception.BusinessException;
+import com.ives.api.common.util.SqlInLists;
 import com.ives.api.mapper.CalendarMapper;
-import com.ives.api.mapper.CategoryMapper;
-import com.ives.api.mapper.EtfInfoMapper;
 import com.ives.api.mapper.EtfNetassetMapper;
+import com.ives.api.market.DataVersion;
+import com.ives.api.market.EtfMetadata;
+import com.ives.api.market.EtfMetadataRegistry;
+import com.ives.api.market.EtfUniverse;
+import com.ives.api.market.MarketDataStore;
+import com.ives.api.market.MarketSnapshot;
+import com.ives.api.market.ReturnWindow;
+import com.ives.api.market.TradingCalendar;
+import com.ives.api.market.stats.CorrelationMatrix;
+import com.ives.api.market.stats.Lttb;
+import com.ives.api.market.stats.QuantileSketch;
+import com.ives.api.market.stats.RiskAccumulator;
+import com.ives.api.market.stats.TopKSelector;
 import com.ives.api.model.dto.*;
 import com.ives.api.model.entity.Calendar;
 import com.ives.api.model.entity.Category;
 import com.ives.api.model.entity.EtfInfo;
 import com.ives.api.model.entity.EtfNetasset;
 import com.ives.api.service.EtfReturnRateService;
+import com.ives.api.service.SectorHistoryStream;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
 import org.springframework.stereotype.Service;
 import org.springframework.util.CollectionUtils;
 
@@ -20,7 +36,12 @@ import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -28,16 +49,33 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class EtfReturnRateServiceImpl implements EtfReturnRateService {
     private final EtfNetassetMapper etfNetassetMapper;
-    private final EtfInfoMapper etfInfoMapper;
-    private final CategoryMapper categoryMapper;
     private final CalendarMapper calendarMapper;
+    private final EtfMetadataRegistry metadataRegistry;
+    private final MarketDataStore marketDataStore;
+    private final AsyncTaskExecutor fanOutExecutor;
+    private final DataVersion dataVersion;
+
+    @Value("${myapp.execution.fetch-chunk-size:200}")
+    private int fetchChunkSize;
 
     private static final float EPSILON = 1e-6f;
+    private static final int TRADING_DAYS_PER_YEAR = 252;
     private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd");
     private static final DateTimeFormatter COMPACT_FORMATTER = DateTimeFormatter.ofPattern("yyyyMMdd");
 
     @Override
     public EtfReturnRateResponse getEtfReturnRateByCodes(EtfReturnRateRequest request) {
+        List<String> validCodes = validCodes(request);
+        EtfUniverse universe = metadataRegistry.current().getUniverse();
+
+        // 两个日期各查一次，避免逐个代码查询；区间内未上市的已知ETF不参与查询
+        List<String> queryCodes = queryCodes(universe, validCodes, request);
+        Map<String, EtfNetasset> startDataMap = navRowsByCode(queryCodes, request.getStart_date());
+        Map<String, EtfNetasset> endDataMap = navRowsByCode(queryCodes, request.getEnd_date());
+        return etfReturnRates(universe, validCodes, request, startDataMap, endDataMap);
+    }
+
+    private static List<String> validCodes(EtfReturnRateRequest request) {
         List<String> validCodes = request.getThsCodeList().stream()
                 .filter(Objects::nonNull)
                 .distinct()
@@ -46,16 +84,36 @@ public class EtfReturnRateServiceImpl implements EtfReturnRateService {
         if (validCodes.isEmpty()) {
             throw new BusinessException(400, "thsCodeList数组中无有效代码");
         }
+        return validCodes;
+    }
 
+    private List<String> queryCodes(EtfUniverse universe, List<String> validCodes, EtfReturnRateRequest request) {
+        BitSet listed = listedBetween(universe, request.getStart_date(), request.getEnd_date());
+        return validCodes.stream()
+                .map(String::trim)
+                .distinct()
+                .filter(code -> {
+                    int ordinal = universe.ordinalOf(code);
+                    return ordinal < 0 || listed.get(ordinal);
+                })
+                .toList();
+    }
+
+    /**
+     * 由两个日期的净值行（按代码）计算各ETF的区间收益
+     */
+    private static EtfReturnRateResponse etfReturnRates(EtfUniverse universe, List<String> validCodes,
+                                                        EtfReturnRateRequest request,
+                                                        Map<String, EtfNetasset> startDataMap,
+                                                        Map<String, EtfNetasset> endDataMap) {
         List<ReturnRateResult> results = new ArrayList<>();
 
         for (String code : validCodes) {
             try {
-                EtfNetasset startData = etfNetassetMapper.findByCodeAndDate(
-                        code.trim(), request.getStart_date());
-                EtfNetasset endData = etfNetassetMapper.findByCodeAndDate(
-                        code.trim(), request.getEnd_date());
-                EtfInfo etfInfo = etfInfoMapper.findByCode(code.trim());
+                EtfNetasset startData = startDataMap.get(code.trim());
+                EtfNetasset endData = endDataMap.get(code.trim());
+                int ordinal = universe.ordinalOf(code.trim());
+                EtfInfo etfInfo = ordinal >= 0 ? universe.etfAt(ordinal) : null;
 
                 if (startData == null) {
                     results.add(ReturnRateResult.error(code,
@@ -108,110 +166,427 @@ public class EtfReturnRateServiceImpl implements EtfReturnRateService {
 
     @Override
     public SectorReturnRateResponse getReturnRateBySectors(SectorReturnRateRequest request) {
-        List<EtfInfo> etfList;
+        EtfMetadata metadata = metadataRegistry.current();
+        EtfUniverse universe = metadata.getUniverse();
+        BitSet members = sectorMembers(universe, request);
 
-        if (CollectionUtils.isEmpty(request.getSectorList())) {
-            etfList = etfInfoMapper.findAll();
-        } else {
-            etfList = etfInfoMapper.findBySectors(request.getSectorList());
-        }
-
-        if (etfList.isEmpty()) {
+        if (members.isEmpty()) {
             return SectorReturnRateResponse.empty();
         }
-        List<String> thsCodes = etfList.stream()
-                .map(EtfInfo::getThsCode)
-                .collect(Collectors.toList());
-
-        List<EtfNetasset> startDateData = etfNetassetMapper.findByCodesAndDate(
-                thsCodes, request.getStart_date());
-        List<EtfNetasset> endDateData = etfNetassetMapper.findByCodesAndDate(
-                thsCodes, request.getEnd_date());
 
-        Map<String, EtfNetasset> startDataMap = startDateData.stream()
-                .collect(Collectors.toMap(EtfNetasset::getThsCode, e -> e));
-        Map<String, EtfNetasset> endDataMap = endDateData.stream()
-                .collect(Collectors.toMap(EtfNetasset::getThsCode, e -> e));
-        Map<String, SectorAccumulator> sectorAccMap = new HashMap<>();
-        List<ReturnRateResult> details = new ArrayList<>();
+        // 总数按类别全部成员统计，取数与计算只针对区间内处于上市期的ETF
+        BitSet listedMembers = listedMembers(universe, members, request);
 
-        for (EtfInfo etf : etfList) {
-            String thsCode = etf.getThsCode();
-            String sector = etf.getSector();
-
-            EtfNetasset startData = startDataMap.get(thsCode);
-            EtfNetasset endData = endDataMap.get(thsCode);
+        MarketSnapshot snapshot = marketDataStore.current();
+        double[] startNavs = navsOnDate(snapshot, universe, listedMembers, request.getStart_date());
+        double[] endNavs = navsOnDate(snapshot, universe, listedMembers, request.getEnd_date());
+        RequestDeadline.check();
+        return sectorReturnRates(metadata, request, members, listedMembers, startNavs, endNavs);
+    }
 
-            if (startData == null || endData == null) {
+    /**
+     * 由两个日期的净值（按ETF序号）计算各类别的平均区间收益
+     */
+    private static SectorReturnRateResponse sectorReturnRates(EtfMetadata metadata, SectorReturnRateRequest request,
+                                                              BitSet members, BitSet listedMembers,
+                                                              double[] startNavs, double[] endNavs) {
+        EtfUniverse universe = metadata.getUniverse();
+        // 按类别下标累加，最后一格存放未分类的ETF
+        SectorAccumulator[] accumulators = new SectorAccumulator[universe.sectorCount() + 1];
+        List<ReturnRateResult> details = Boolean.TRUE.equals(request.getIncludeDetails())
+                ? new ArrayList<>() : null;
+        int validEtfs = 0;
+
+        for (int ordinal = listedMembers.nextSetBit(0); ordinal >= 0;
+             ordinal = listedMembers.nextSetBit(ordinal + 1)) {
+            double start = startNavs[ordinal];
+            double end = endNavs[ordinal];
+            if (Double.isNaN(start) || Double.isNaN(end) || start <= 0) {
                 continue;
             }
 
-            BigDecimal startNav = startData.getAdjustedNav();
-            BigDecimal endNav = endData.getAdjustedNav();
+            BigDecimal startNav = BigDecimal.valueOf(start);
+            BigDecimal endNav = BigDecimal.valueOf(end);
+            BigDecimal returnRate = endNav.subtract(startNav)
+                    .divide(startNav, 6, RoundingMode.HALF_UP);
+            validEtfs++;
 
-            if (startNav.compareTo(BigDecimal.ZERO) <= 0) {
-                continue;
+            int sectorIndex = universe.sectorIndexOf(ordinal);
+            int slot = sectorIndex >= 0 ? sectorIndex : universe.sectorCount();
+            if (accumulators[slot] == null) {
+                accumulators[slot] = new SectorAccumulator();
             }
+            accumulators[slot].add(returnRate);
 
-            BigDecimal returnRate = endNav.subtract(startNav)
-                    .divide(startNav, 6, RoundingMode.HALF_UP);
+            if (details != null) {
+                details.add(returnRateDetail(universe.etfAt(ordinal), request.getStart_date(), request.getEnd_date(),
+                        startNav, endNav, returnRate));
+            }
+        }
 
-            ReturnRateResult detail = new ReturnRateResult();
-            detail.setThsCode(thsCode);
-            detail.setChineseName(etf.getChineseName());
-            detail.setSector(sector);
-            detail.setStartDate(startData.getTime());
-            detail.setEndDate(endData.getTime());
-            detail.setStartAdjustedNav(startNav);
-            detail.setEndAdjustedNav(endNav);
-            detail.setReturnRate(returnRate);
-            detail.setReturnRatePercent(returnRate.multiply(new BigDecimal("100"))
+        List<SectorReturnResult> sectorResults = new ArrayList<>();
+        for (int slot = 0; slot < accumulators.length; slot++) {
+            SectorAccumulator acc = accumulators[slot];
+            if (acc == null) {
+                continue;
+            }
+            String sector = slot < universe.sectorCount() ? universe.sectorName(slot) : null;
+            Category category = metadata.category(sector);
+            BigDecimal avgRate = acc.getAverage();
+
+            SectorReturnResult result = new SectorReturnResult();
+            result.setSector(sector);
+            result.setCategory_name(category != null ? category.getDescription() : sector);
+            result.setCount(acc.getCount());
+            result.setValid_count(acc.getValidCount());
+            result.setAvg_return_rate(avgRate);
+            result.setAvg_return_rate_percent(avgRate.multiply(new BigDecimal("100"))
                     .setScale(2, RoundingMode.HALF_UP) + "%");
-            details.add(detail);
-
-            sectorAccMap.computeIfAbsent(sector, k -> new SectorAccumulator())
-                    .add(returnRate);
-        }
-        List<String> sectorNames = new ArrayList<>(sectorAccMap.keySet());
-        List<Category> categories = categoryMapper.findByNames(sectorNames);
-        Map<String, Category> categoryMap = categories.stream()
-                .collect(Collectors.toMap(Category::getName, c -> c));
-        List<SectorReturnResult> sectorResults = sectorAccMap.entrySet().stream()
-                .map(entry -> {
-                    String sector = entry.getKey();
-                    SectorAccumulator acc = entry.getValue();
-                    Category category = categoryMap.get(sector);
-
-                    BigDecimal avgRate = acc.getAverage();
-
-                    SectorReturnResult result = new SectorReturnResult();
-                    result.setSector(sector);
-                    result.setCategory_name(category != null ? category.getDescription() : sector);
-                    result.setCount(acc.getCount());
-                    result.setValid_count(acc.getValidCount());
-                    result.setAvg_return_rate(avgRate);
-                    result.setAvg_return_rate_percent(avgRate.multiply(new BigDecimal("100"))
-                            .setScale(2, RoundingMode.HALF_UP) + "%");
-                    return result;
-                })
-                .sorted((a, b) -> b.getAvg_return_rate().compareTo(a.getAvg_return_rate()))
-                .collect(Collectors.toList());
+            sectorResults.add(result);
+        }
+        sectorResults.sort((a, b) -> b.getAvg_return_rate().compareTo(a.getAvg_return_rate()));
+
         SectorReturnRateResponse response = new SectorReturnRateResponse();
         response.setTotal_sectors(sectorResults.size());
-        response.setTotal_etfs(etfList.size());
-        response.setValid_etfs((int) details.stream().filter(d -> d.getError() == null).count());
+        response.setTotal_etfs(members.cardinality());
+        response.setValid_etfs(validEtfs);
         response.setSector_results(sectorResults);
 
-        if (request.getIncludeDetails()) {
+        if (details != null) {
             response.setDetails(details);
         }
 
         return response;
     }
 
+    private static BitSet sectorMembers(EtfUniverse universe, SectorReturnRateRequest request) {
+        return CollectionUtils.isEmpty(request.getSectorList())
+                ? universe.allMembers()
+                : universe.sectorMembers(request.getSectorList());
+    }
+
+    private BitSet listedMembers(EtfUniverse universe, BitSet members, SectorReturnRateRequest request) {
+        BitSet listedMembers = (BitSet) members.clone();
+        listedMembers.and(listedBetween(universe, request.getStart_date(), request.getEnd_date()));
+        return listedMembers;
+    }
+
+    @Override
+    public EtfRankingResponse getEtfRanking(EtfRankingRequest request) {
+        int k = request.getK() != null ? request.getK() : 10;
+        boolean perSector = Boolean.TRUE.equals(request.getPerSector());
+        EtfMetadata metadata = metadataRegistry.current();
+        EtfUniverse universe = metadata.getUniverse();
+        BitSet members = CollectionUtils.isEmpty(request.getSectorList())
+                ? universe.allMembers()
+                : universe.sectorMembers(request.getSectorList());
+
+        BitSet listedMembers = (BitSet) members.clone();
+        listedMembers.and(listedBetween(universe, request.getStart_date(), request.getEnd_date()));
+
+        MarketSnapshot snapshot = marketDataStore.current();
+        double[] startNavs = navsOnDate(snapshot, universe, listedMembers, request.getStart_date());
+        double[] endNavs = navsOnDate(snapshot, universe, listedMembers, request.getEnd_date());
+        RequestDeadline.check();
+
+        // 只在原生数组上维护每组前k、后k名，入选的ETF最后才生成明细；分组按类别下标，最后一格为未分类
+        int groups = perSector ? universe.sectorCount() + 1 : 1;
+        TopKSelector[] tops = new TopKSelector[groups];
+        TopKSelector[] bottoms = new TopKSelector[groups];
+        int[] validByGroup = new int[groups];
+        int validEtfs = 0;
+
+        for (int ordinal = listedMembers.nextSetBit(0); ordinal >= 0;
+             ordinal = listedMembers.nextSetBit(ordinal + 1)) {
+            double start = startNavs[ordinal];
+            double end = endNavs[ordinal];
+            if (Double.isNaN(start) || Double.isNaN(end) || start <= 0) {
+                continue;
+            }
+            int group = 0;
+            if (perSector) {
+                int sectorIndex = universe.sectorIndexOf(ordinal);
+                group = sectorIndex >= 0 ? sectorIndex : universe.sectorCount();
+            }
+            if (tops[group] == null) {
+                tops[group] = new TopKSelector(k, true);
+                bottoms[group] = new TopKSelector(k, false);
+            }
+            double returnRate = (end - start) / start;
+            tops[group].offer(ordinal, returnRate);
+            bottoms[group].offer(ordinal, returnRate);
+            validByGroup[group]++;
+            validEtfs++;
+        }
+
+        List<EtfRanking> rankings = new ArrayList<>();
+        for (int group = 0; group < groups; group++) {
+            if (tops[group] == null) {
+                continue;
+            }
+            EtfRanking ranking = new EtfRanking();
+            if (perSector) {
+                String sector = group < universe.sectorCount() ? universe.sectorName(group) : null;
+                Category category = metadata.category(sector);
+                ranking.setSector(sector);
+                ranking.setSectorDescription(category != null ? category.getDescription() : sector);
+            }
+            ranking.setValidEtfs(validByGroup[group]);
+            ranking.setTop(rankedDetails(universe, tops[group], startNavs, endNavs, request));
+            ranking.setBottom(rankedDetails(universe, bottoms[group], startNavs, endNavs, request));
+            rankings.add(ranking);
+        }
+
+        EtfRankingResponse response = new EtfRankingResponse();
+        response.setStartDate(request.getStart_date());
+        response.setEndDate(request.getEnd_date());
+        response.setK(k);
+        response.setTotalEtfs(members.cardinality());
+        response.setValidEtfs(validEtfs);
+        response.setRankings(rankings);
+        return response;
+    }
+
+    private List<ReturnRateResult> rankedDetails(EtfUniverse universe, TopKSelector selector,
+                                                 double[] startNavs, double[] endNavs, EtfRankingRequest request) {
+        List<ReturnRateResult> details = new ArrayList<>(selector.size());
+        for (int ordinal : selector.sortedIds()) {
+            BigDecimal startNav = BigDecimal.valueOf(startNavs[ordinal]);
+            BigDecimal endNav = BigDecimal.valueOf(endNavs[ordinal]);
+            BigDecimal returnRate = endNav.subtract(startNav).divide(startNav, 6, RoundingMode.HALF_UP);
+            details.add(returnRateDetail(universe.etfAt(ordinal), request.getStart_date(), request.getEnd_date(),
+                    startNav, endNav, returnRate));
+        }
+        return details;
+    }
+
+    private static ReturnRateResult returnRateDetail(EtfInfo etf, String startDate, String endDate,
+                                                     BigDecimal startNav, BigDecimal endNav, BigDecimal returnRate) {
+        ReturnRateResult detail = new ReturnRateResult();
+        detail.setThsCode(etf.getThsCode());
+        detail.setChineseName(etf.getChineseName());
+        detail.setSector(etf.getSector());
+        detail.setStartDate(startDate);
+        detail.setEndDate(endDate);
+        detail.setStartAdjustedNav(startNav);
+        detail.setEndAdjustedNav(endNav);
+        detail.setReturnRate(returnRate);
+        detail.setReturnRatePercent(returnRate.multiply(new BigDecimal("100"))
+                .setScale(2, RoundingMode.HALF_UP) + "%");
+        return detail;
+    }
+
+    @Override
+    public PeriodReturnResponse getPeriodReturns(PeriodReturnRequest request) {
+        List<ReturnWindow> windows = ReturnWindow.parseAll(request.getWindows());
+        EtfMetadata metadata = metadataRegistry.current();
+        EtfUniverse universe = metadata.getUniverse();
+        BitSet members = CollectionUtils.isEmpty(request.getSectorList())
+                ? universe.allMembers()
+                : universe.sectorMembers(request.getSectorList());
+        int requestedDay = TradingCalendar.toDayInt(request.getDate());
+
+        PeriodFrame frame = snapshotPeriodFrame(marketDataStore.current(), universe, windows, requestedDay);
+        if (frame == null) {
+            frame = loadPeriodFrame(universe, members, windows, requestedDay);
+        }
+        RequestDeadline.check();
+
+        // 按[类别下标][区间]累加，最后一行存放未分类的ETF
+        int windowCount = windows.size();
+        SectorAccumulator[][] accumulators = new SectorAccumulator[universe.sectorCount() + 1][windowCount];
+        int[] totalBySlot = new int[universe.sectorCount() + 1];
+        List<EtfPeriodReturn> etfResults = Boolean.TRUE.equals(request.getIncludeEtfs()) ? new ArrayList<>() : null;
+
+        for (int ordinal = members.nextSetBit(0); ordinal >= 0; ordinal = members.nextSetBit(ordinal + 1)) {
+            int sectorIndex = universe.sectorIndexOf(ordinal);
+            int slot = sectorIndex >= 0 ? sectorIndex : universe.sectorCount();
+            totalBySlot[slot]++;
+
+            double end = frame.lookup.nav(ordinal, 0);
+            if (Double.isNaN(end)) {
+                continue;
+            }
+            List<BigDecimal> etfReturns = new ArrayList<>(windowCount);
+            boolean anyReturn = false;
+            for (int w = 0; w < windowCount; w++) {
+                double start = frame.startDays[w] != 0 ? frame.lookup.nav(ordinal, w + 1) : Double.NaN;
+                if (Double.isNaN(start) || start <= 0) {
+                    etfReturns.add(null);
+                    continue;
+                }
+                BigDecimal startNav = BigDecimal.valueOf(start);
+                BigDecimal returnRate = BigDecimal.valueOf(end).subtract(startNav)
+                        .divide(startNav, 6, RoundingMode.HALF_UP);
+                if (accumulators[slot][w] == null) {
+                    accumulators[slot][w] = new SectorAccumulator();
+                }
+                accumulators[slot][w].add(returnRate);
+                etfReturns.add(returnRate);
+                anyReturn = true;
+            }
+
+            if (etfResults != null && anyReturn) {
+                EtfInfo etf = universe.etfAt(ordinal);
+                EtfPeriodReturn result = new EtfPeriodReturn();
+                result.setThsCode(etf.getThsCode());
+                result.setChineseName(etf.getChineseName());
+                result.setSector(etf.getSector());
+                result.setReturns(etfReturns);
+                etfResults.add(result);
+            }
+        }
+
+        List<SectorPeriodReturn> sectorResults = new ArrayList<>();
+        for (int slot = 0; slot < totalBySlot.length; slot++) {
+            if (totalBySlot[slot] == 0) {
+                continue;
+            }
+            String sector = slot < universe.sectorCount() ? universe.sectorName(slot) : null;
+            Category category = metadata.category(sector);
+            List<BigDecimal> returns = new ArrayList<>(windowCount);
+            List<Integer> validCounts = new ArrayList<>(windowCount);
+            for (SectorAccumulator acc : accumulators[slot]) {
+                returns.add(acc != null ? acc.getAverage() : null);
+                validCounts.add(acc != null ? acc.getValidCount() : 0);
+            }
+
+            SectorPeriodReturn result = new SectorPeriodReturn();
+            result.setSector(sector);
+            result.setSectorDescription(category != null ? category.getDescription() : sector);
+            result.setTotalEtfs(totalBySlot[slot]);
+            result.setReturns(returns);
+            result.setValidCounts(validCounts);
+            sectorResults.add(result);
+        }
+
+        List<PeriodWindow> windowInfos = new ArrayList<>(windowCount);
+        for (int w = 0; w < windowCount; w++) {
+            int startDay = frame.startDays[w];
+            windowInfos.add(new PeriodWindow(windows.get(w).getLabel(),
+                    startDay != 0 ? TradingCalendar.format(startDay) : null));
+        }
+
+        PeriodReturnResponse response = new PeriodReturnResponse();
+        response.setEndDate(TradingCalendar.format(frame.endDay));
+        response.setWindows(windowInfos);
+        response.setTotalEtfs(members.cardinality());
+        response.setSectors(sectorResults);
+        response.setEtfs(etfResults);
+        return response;
+    }
+
+    @Override
+    public SectorRiskResponse getRiskStats(String sectors, String date, Integer n, Boolean includeEtfs, Double riskFreeRate) {
+        if (n == null || n < 2) {
+            throw new IllegalArgumentException("n至少为2个交易日");
+        }
+        List<String> sectorList = sectors == null || sectors.isBlank()
+                ? allSectorNames(metadataRegistry.current().getUniverse())
+                : parseSectorList(sectors);
+
+        HistoryFrame frame = loadHistoryFrame(sectorList, date, n, new HashMap<>());
+        if (frame.membersBySector.isEmpty()) {
+            throw new IllegalArgumentException("未找到类别为" + String.join(",", sectorList) + "的ETF数据");
+        }
+        double dailyRiskFree = riskFreeRate != null ? riskFreeRate / TRADING_DAYS_PER_YEAR : 0;
+        boolean withEtfs = Boolean.TRUE.equals(includeEtfs);
+
+        // 各类别独立单遍计算，全部提交后按请求顺序收集
+        Map<String, CompletableFuture<SectorRiskResult>> futures = new LinkedHashMap<>();
+        frame.membersBySector.forEach((sector, members) -> futures.put(sector, CompletableFuture.supplyAsync(
+                () -> calculateSectorRisk(frame, frame.listed(members), withEtfs, dailyRiskFree), fanOutExecutor)));
+
+        EtfMetadata metadata = metadataRegistry.current();
+        List<SectorRiskResult> sectorResults = new ArrayList<>();
+        for (String sector : new LinkedHashSet<>(sectorList)) {
+            CompletableFuture<SectorRiskResult> future = futures.get(sector);
+            SectorRiskResult result;
+            if (future == null) {
+                result = new SectorRiskResult();
+                result.setError("未找到类别\"" + sector + "\"的ETF数据");
+                result.setTotalEtfs(0);
+            } else {
+                result = joinUnwrapped(future, futures.values());
+                Category category = metadata.category(sector);
+                result.setSectorDescription(category != null ? category.getDescription() : sector);
+                result.setTotalEtfs(frame.membersBySector.get(sector).cardinality());
+            }
+            result.setSector(sector);
+            sectorResults.add(result);
+        }
+
+        SectorRiskResponse response = new SectorRiskResponse();
+        response.setQueryDate(date);
+        response.setStartDate(frame.dates.get(0));
+        response.setEndDate(frame.dates.get(frame.dates.size() - 1));
+        response.setTradingDays(frame.dates.size() - 1);
+        response.setRiskFreeRate(BigDecimal.valueOf(riskFreeRate != null ? riskFreeRate : 0));
+        response.setSectors(sectorResults);
+        return response;
+    }
+
+    @Override
+    public CorrelationResponse getCorrelation(String sector, String date, Integer n) {
+        if (n == null || n < 2) {
+            throw new IllegalArgumentException("n至少为2个交易日");
+        }
+        boolean bySector = sector == null || sector.isBlank();
+        List<String> sectorList = bySector
+                ? allSectorNames(metadataRegistry.current().getUniverse())
+                : List.of(sector.trim());
+
+        HistoryFrame frame = loadHistoryFrame(sectorList, date, n, new HashMap<>());
+        if (frame.membersBySector.isEmpty()) {
+            throw new IllegalArgumentException("未找到类别为" + String.join(",", sectorList) + "的ETF数据");
+        }
+
+        int days = frame.dates.size() - 1;
+        CorrelationMatrix matrix = new CorrelationMatrix(days);
+        if (bySector) {
+            frame.membersBySector.forEach((name, members) ->
+                    matrix.add(name, sectorDailyReturns(frame, frame.listed(members))));
+        } else {
+            BitSet members = frame.listed(frame.membersBySector.get(sectorList.get(0)));
+            for (int ordinal = members.nextSetBit(0); ordinal >= 0; ordinal = members.nextSetBit(ordinal + 1)) {
+                double[] returns = new double[days];
+                for (int i = 1; i <= days; i++) {
+                    double prev = frame.lookup.nav(ordinal, i - 1);
+                    double curr = frame.lookup.nav(ordinal, i);
+                    returns[i - 1] = prev > 0 && !Double.isNaN(curr) ? curr / prev - 1 : Double.NaN;
+                }
+                matrix.add(frame.universe.etfAt(ordinal).getThsCode(), returns);
+            }
+        }
+        RequestDeadline.check();
+        if (matrix.size() < 2) {
+            throw new IllegalArgumentException("有效的收益序列不足2条，无法计算相关系数");
+        }
+
+        double[] correlations = matrix.lowerTriangle(fanOutExecutor);
+        for (int k = 0; k < correlations.length; k++) {
+            correlations[k] = Math.round(correlations[k] * 10000) / 10000.0;
+        }
+
+        CorrelationResponse response = new CorrelationResponse();
+        response.setQueryDate(date);
+        response.setStartDate(frame.dates.get(0));
+        response.setEndDate(frame.dates.get(days));
+        response.setTradingDays(days);
+        response.setSector(bySector ? null : sectorList.get(0));
+        response.setLabels(matrix.getLabels());
+        response.setObservations(matrix.getObservations());
+        response.setCorrelations(correlations);
+        return response;
+    }
+
     @Override
     public List<SectorInfo> getAvailableSectors() {
-        List<Category> categories = categoryMapper.findAllActive();
+        return availableSectors(metadataRegistry.current());
+    }
+
+    private static List<SectorInfo> availableSectors(EtfMetadata metadata) {
+        List<Category> categories = metadata.getActiveCategories();
         return categories.stream()
                 .map(cat -> {
                     SectorInfo info = new SectorInfo();
@@ -226,69 +601,68 @@ public class EtfReturnRateServiceImpl implements EtfReturnRateService {
     }
 
     @Override
-    public SectorReturnRateHistoryResponse getSectorReturnRateHistory(String sector, String date, Integer n, Boolean includeDetails) {
+    public SectorReturnRateHistoryResponse getSectorReturnRateHistory(String sector, String date, Integer n, Integer window,
+                                                                      Boolean includeDetails, Boolean includeDistribution,
+                                                                      Integer maxPoints, String since) {
         if (n == null || n <= 0) {
             throw new IllegalArgumentException("n必须为正整数");
         }
+        int step = rollingWindow(window);
+        long version = dataVersion.current();
 
-        List<Calendar> tradingDays = getTradingDays(date, n);
-
-        List<EtfInfo> etfList = etfInfoMapper.findBySector(sector);
+        HistoryFrame frame = loadHistoryFrame(List.of(sector), date, historyDays(n, step), new HashMap<>());
+        BitSet members = frame.membersBySector.get(sector);
 
-        if (etfList.isEmpty()) {
+        if (members == null) {
             throw new BusinessException(400, "未找到类别为\"" + sector + "\"的ETF数据");
         }
-        List<String> thsCodes = etfList.stream()
-                .map(EtfInfo::getThsCode)
-                .collect(Collectors.toList());
-        List<String> allDates = tradingDays.stream()
-                .map(day -> formatDate(day.getDay()))
-                .collect(Collectors.toList());
-        List<EtfNetasset> netAssets = etfNetassetMapper.findByCodesAndDates(thsCodes, allDates);
+        int firstEnd = firstEndIndex(frame.dates, step, since);
+        List<DailyReturnRate> history = toDailyRates(accumulateSectorDays(frame.universe, frame.listed(members),
+                frame.dates, step, firstEnd, frame.lookup, includeDetails, includeDistribution),
+                frame.dates, step, firstEnd);
 
-        Map<String, BigDecimal> navIndex = netAssets.stream()
-                .collect(Collectors.toMap(
-                        nav -> nav.getThsCode() + "_" + nav.getTime(),
-                        EtfNetasset::getAdjustedNav
-                ));
-        List<DailyReturnRate> history = calculateSectorReturnHistory(
-                etfList, tradingDays, navIndex, includeDetails);
-
-        Category category = categoryMapper.findByName(sector);
+        Category category = metadataRegistry.current().category(sector);
 
         SectorReturnRateHistoryResponse response = new SectorReturnRateHistoryResponse();
         response.setSector(sector);
         response.setSectorDescription(category != null ? category.getDescription() : sector);
         response.setQueryDate(date);
-        response.setActualEndDate(formatDate(tradingDays.get(tradingDays.size() - 1).getDay()));
+        response.setActualEndDate(frame.dates.get(frame.dates.size() - 1));
         response.setRequestedCount(n);
         response.setActualCount(history.size());
-        response.setTotalEtfs(etfList.size());
-        response.setReturnRateHistory(history);
+        response.setTotalEtfs(members.cardinality());
+        response.setReturnRateHistory(downsample(history, maxPoints));
+        response.setSince(since);
+        response.setDataVersion(version);
 
         return response;
     }
 
     @Override
-    public MultipleSectorsReturnRateHistoryResponse getMultipleSectorsReturnRateHistory(String sectors, String date, Integer n, Boolean includeDetails, Boolean includeTiming) {
+    public MultipleSectorsReturnRateHistoryResponse getMultipleSectorsReturnRateHistory(String sectors, String date, Integer n, Integer window,
+                                                                                        Boolean includeDetails, Boolean includeDistribution,
+                                                                                        Integer maxPoints, String since,
+                                                                                        Boolean includeTiming) {
         long overallStart = System.currentTimeMillis();
+        long version = dataVersion.current();
         Map<String, Long> timing = new HashMap<>();
 
         if (n == null || n <= 0) {
             throw new BusinessException(400, "n必须为正整数");
         }
 
-        List<String> sectorList = Arrays.stream(sectors.split(","))
-                .map(String::trim)
-                .filter(s -> !s.isEmpty())
-                .collect(Collectors.toList());
+        int step = rollingWindow(window);
 
-        if (sectorList.isEmpty()) {
-            throw new BusinessException(400, "至少提供一个有效的类别");
-        }
+        List<String> sectorList = parseSectorList(sectors);
+        HistoryFrame frame = loadHistoryFrame(sectorList, date, historyDays(n, step), timing);
         BatchQueryResult result = batchQuerySectorsReturnRate(
-                sectorList, date, n, includeDetails, timing);
+                frame, sectorList, date, n, step, includeDetails, includeDistribution, maxPoints, since, timing);
+        return multipleSectorsResponse(result, sectorList, n, since, version, overallStart, timing, includeTiming);
+    }
 
+    private static MultipleSectorsReturnRateHistoryResponse multipleSectorsResponse(
+            BatchQueryResult result, List<String> sectorList, int n, String since, long version,
+            long overallStart, Map<String, Long> timing, Boolean includeTiming) {
         long totalTime = System.currentTimeMillis() - overallStart;
 
         MultipleSectorsReturnRateHistoryResponse response = new MultipleSectorsReturnRateHistoryResponse();
@@ -296,6 +670,9 @@ public class EtfReturnRateServiceImpl implements EtfReturnRateService {
         response.setQueryDate(result.getQueryDate());
         response.setTradingDaysCount(result.getTradingDaysCount());
         response.setResults(result.getResults());
+        response.setCombined(result.getCombined());
+        response.setSince(since);
+        response.setDataVersion(version);
 
         PerformanceInfo performance = new PerformanceInfo();
         performance.setResponseTimeMs(totalTime);
@@ -311,6 +688,249 @@ public class EtfReturnRateServiceImpl implements EtfReturnRateService {
         return response;
     }
 
+    @Override
+    public MultiQueryResponse getMultiQuery(MultiQueryRequest request) {
+        long overallStart = System.currentTimeMillis();
+        long version = dataVersion.current();
+        Map<String, Long> timing = new LinkedHashMap<>();
+        EtfMetadata metadata = metadataRegistry.current();
+        SharedNavs shared = new SharedNavs(marketDataStore.current(), metadata.getUniverse());
+
+        // 第一遍：校验各子查询，确定所需的ETF与交易日，快照未覆盖的部分记入取数计划
+        List<MultiQueryItem> queries = request.getQueries();
+        List<MultiQueryResult> results = new ArrayList<>(queries.size());
+        List<Supplier<Object>> computations = new ArrayList<>(queries.size());
+        for (int i = 0; i < queries.size(); i++) {
+            MultiQueryItem item = queries.get(i);
+            MultiQueryResult result = new MultiQueryResult();
+            result.setId(item.getId() != null ? item.getId() : String.valueOf(i));
+            result.setType(item.getType());
+            results.add(result);
+            try {
+                computations.add(planQuery(item, metadata, shared, version));
+            } catch (IllegalArgumentException | BusinessException e) {
+                result.setError(e.getMessage());
+                computations.add(null);
+            }
+        }
+        timing.put("plan_ms", System.currentTimeMillis() - overallStart);
+        RequestDeadline.check();
+
+        // 按代码与日期的并集一次取数
+        long start = System.currentTimeMillis();
+        shared.fetch();
+        timing.put("netasset_query_ms", System.currentTimeMillis() - start);
+        RequestDeadline.check();
+
+        // 第二遍：各子查询从共用数据计算
+        start = System.currentTimeMillis();
+        for (int i = 0; i < computations.size(); i++) {
+            Supplier<Object> computation = computations.get(i);
+            if (computation == null) {
+                continue;
+            }
+            try {
+                results.get(i).setData(computation.get());
+            } catch (IllegalArgumentException | BusinessException e) {
+                results.get(i).setError(e.getMessage());
+            }
+        }
+        timing.put("calculation_ms", System.currentTimeMillis() - start);
+
+        MultiQueryResponse response = new MultiQueryResponse();
+        response.setDataVersion(version);
+        response.setResults(results);
+        response.setFetchedCodes(shared.codes.size());
+        response.setFetchedDates(shared.dates.size());
+        response.setFetchedRows(shared.fetchedRows);
+        response.setResponseTimeMs(System.currentTimeMillis() - overallStart);
+        response.setDetailedTiming(timing);
+        return response;
+    }
+
+    /**
+     * 校验子查询并登记所需净值，返回取数完成后执行的计算
+     */
+    private Supplier<Object> planQuery(MultiQueryItem item, EtfMetadata metadata, SharedNavs shared, long version) {
+        EtfUniverse universe = metadata.getUniverse();
+        String type = item.getType();
+
+        if (MultiQueryItem.AVAILABLE_SECTORS.equals(type)) {
+            List<SectorInfo> sectors = availableSectors(metadata);
+            return () -> new SectorListResponse(sectors.size(), sectors);
+        }
+
+        if (MultiQueryItem.SECTORS_BATCH.equals(type)) {
+            SectorsBatchQuery query = requireParams(item.getSectorsBatch(), "sectorsBatch");
+            int n = query.getN() != null ? query.getN() : 15;
+            if (n <= 0) {
+                throw new IllegalArgumentException("n必须为正整数");
+            }
+            int step = rollingWindow(query.getWindow());
+            int days = historyDays(n, step);
+            List<String> sectorList = parseSectorList(query.getSectors());
+            HistoryFrame snapshotFrame = snapshotHistoryFrame(shared.snapshot, sectorList, query.getDate(), days);
+            if (snapshotFrame != null) {
+                return () -> sectorsBatch(snapshotFrame, sectorList, query, n, step, version);
+            }
+
+            List<String> dates = getTradingDays(query.getDate(), days).stream()
+                    .map(day -> formatDate(day.getDay()))
+                    .collect(Collectors.toList());
+            Map<String, BitSet> membersBySector = membersOfSectors(universe, sectorList);
+            BitSet listed = listedBetween(universe, dates.get(0), dates.get(dates.size() - 1));
+            BitSet needed = new BitSet(universe.size());
+            membersBySector.values().forEach(needed::or);
+            needed.and(listed);
+            shared.need(universe.codesOf(needed), dates);
+            return () -> sectorsBatch(new HistoryFrame(dates, universe, membersBySector, listed, shared.lookup(dates)),
+                    sectorList, query, n, step, version);
+        }
+
+        if (MultiQueryItem.ETF_RETURN_RATE.equals(type)) {
+            EtfReturnRateRequest query = requireParams(item.getEtfReturnRate(), "etfReturnRate");
+            List<String> validCodes = validCodes(query);
+            List<String> queryCodes = queryCodes(universe, validCodes, query);
+            shared.need(queryCodes, List.of(query.getStart_date(), query.getEnd_date()));
+            return () -> etfReturnRates(universe, validCodes, query,
+                    shared.rowsOn(queryCodes, query.getStart_date()), shared.rowsOn(queryCodes, query.getEnd_date()));
+        }
+
+        if (MultiQueryItem.SECTOR_RETURN_RATE.equals(type)) {
+            SectorReturnRateRequest query = requireParams(item.getSectorReturnRate(), "sectorReturnRate");
+            BitSet members = sectorMembers(universe, query);
+            if (members.isEmpty()) {
+                return SectorReturnRateResponse::empty;
+            }
+            BitSet listedMembers = listedMembers(universe, members, query);
+            shared.need(universe.codesOf(listedMembers), List.of(query.getStart_date(), query.getEnd_date()));
+            return () -> sectorReturnRates(metadata, query, members, listedMembers,
+                    shared.navsOn(listedMembers, query.getStart_date()),
+                    shared.navsOn(listedMembers, query.getEnd_date()));
+        }
+
+        throw new IllegalArgumentException("不支持的查询类型: " + type);
+    }
+
+    private MultipleSectorsReturnRateHistoryResponse sectorsBatch(HistoryFrame frame, List<String> sectorList,
+                                                                  SectorsBatchQuery query, int n, int step,
+                                                                  long version) {
+        long start = System.currentTimeMillis();
+        Map<String, Long> timing = new HashMap<>();
+        BatchQueryResult result = batchQuerySectorsReturnRate(frame, sectorList, query.getDate(), n, step,
+                query.getIncludeDetails(), query.getIncludeDistribution(), query.getMaxPoints(), query.getSince(),
+                timing);
+        return multipleSectorsResponse(result, sectorList, n, query.getSince(), version, start, timing, false);
+    }
+
+    private static <T> T requireParams(T params, String field) {
+        if (params == null) {
+            throw new IllegalArgumentException("缺少参数" + field);
+        }
+        return params;
+    }
+
+    @Override
+    public SectorHistoryStream streamSectorsReturnRateHistory(
+            String sectors, String date, Integer n, Boolean includeDetails) {
+        if (n == null || n <= 0) {
+            throw new BusinessException(400, "n必须为正整数");
+        }
+        List<String> sectorList = parseSectorList(sectors);
+        List<String> dates = getTradingDays(date, n).stream()
+                .map(day -> formatDate(day.getDay()))
+                .collect(Collectors.toList());
+
+        EtfMetadata metadata = metadataRegistry.current();
+        Map<String, BitSet> membersBySector = membersOfSectors(metadata.getUniverse(), sectorList);
+        if (membersBySector.isEmpty()) {
+            throw new IllegalArgumentException("未找到类别为" + String.join(",", sectorList) + "的ETF数据");
+        }
+        BitSet listed = listedBetween(metadata.getUniverse(), dates.get(0), dates.get(dates.size() - 1));
+
+        return sink -> streamSectorsHistory(metadata, sectorList, membersBySector, listed,
+                date, dates, Boolean.TRUE.equals(includeDetails), sink);
+    }
+
+    /**
+     * 流式计算：净值按交易日升序逐行到达，每行与该ETF前一交易日净值算出收益后立即累加到所属类别，
+     * 某交易日的行读完即输出该日各类别结果，内存只保留相邻两日的净值
+     */
+    private void streamSectorsHistory(EtfMetadata metadata, List<String> sectorList,
+                                      Map<String, BitSet> membersBySector, BitSet listed,
+                                      String date, List<String> dates, boolean includeDetails,
+                                      Consumer<SectorHistoryStreamEvent> sink) {
+        EtfUniverse universe = metadata.getUniverse();
+        int tradingDays = dates.size() - 1;
+
+        for (String sector : new LinkedHashSet<>(sectorList)) {
+            BitSet members = membersBySector.get(sector);
+            SectorHistoryResult summary = new SectorHistoryResult();
+            if (members == null) {
+                summary.setError("未找到类别\"" + sector + "\"的ETF数据");
+                summary.setTotalEtfs(0);
+            } else {
+                Category category = metadata.category(sector);
+                summary.setSectorDescription(category != null ? category.getDescription() : sector);
+                summary.setTotalEtfs(members.cardinality());
+                summary.setQueryDate(date);
+                summary.setActualEndDate(dates.get(tradingDays));
+                summary.setRequestedCount(tradingDays);
+                summary.setActualCount(tradingDays);
+            }
+            sink.accept(SectorHistoryStreamEvent.sector(sector, summary));
+        }
+
+        // 每只参与计算的ETF对应的类别槽位
+        List<String> slots = new ArrayList<>(membersBySector.keySet());
+        int[] slotOfEtf = new int[universe.size()];
+        Arrays.fill(slotOfEtf, -1);
+        BitSet tracked = new BitSet(universe.size());
+        for (int slot = 0; slot < slots.size(); slot++) {
+            BitSet members = (BitSet) membersBySector.get(slots.get(slot)).clone();
+            members.and(listed);
+            for (int ordinal = members.nextSetBit(0); ordinal >= 0; ordinal = members.nextSetBit(ordinal + 1)) {
+                slotOfEtf[ordinal] = slot;
+            }
+            tracked.or(members);
+        }
+
+        Map<String, Integer> dayIndexByDate = new HashMap<>();
+        for (int i = 0; i < dates.size(); i++) {
+            dayIndexByDate.put(dates.get(i), i);
+        }
+        StreamingDays days = new StreamingDays(universe.size(), slots, dates, includeDetails, sink);
+
+        if (!tracked.isEmpty()) {
+            etfNetassetMapper.scanAdjustedNavByCodes(SqlInLists.pad(universe.codesOf(tracked)),
+                    dates.get(0), dates.get(tradingDays), context -> {
+                        EtfNetasset row = context.getResultObject();
+                        Integer dayIndex = dayIndexByDate.get(row.getTime());
+                        int ordinal = universe.ordinalOf(row.getThsCode());
+                        if (dayIndex == null || ordinal < 0 || !tracked.get(ordinal) || row.getAdjustedNav() == null) {
+                            return;
+                        }
+                        days.advanceTo(dayIndex);
+                        days.add(universe, ordinal, slotOfEtf[ordinal], row.getAdjustedNav().doubleValue());
+                    });
+        }
+        days.advanceTo(dates.size());
+
+        sink.accept(SectorHistoryStreamEvent.end(tradingDays));
+    }
+
+    private List<String> parseSectorList(String sectors) {
+        List<String> sectorList = Arrays.stream(sectors.split(","))
+                .map(String::trim)
+                .filter(s -> !s.isEmpty())
+                .collect(Collectors.toList());
+
+        if (sectorList.isEmpty()) {
+            throw new BusinessException(400, "至少提供一个有效的类别");
+        }
+        return sectorList;
+    }
+
     private List<Calendar> getTradingDays(String date, int n) {
         String targetDate = date.replace("-", "");
 
@@ -336,49 +956,318 @@ public class EtfReturnRateServiceImpl implements EtfReturnRateService {
         tradingDays.sort(Comparator.comparing(Calendar::getDay));
         return tradingDays;
     }
-    private BatchQueryResult batchQuerySectorsReturnRate(
-            List<String> sectorList, String date, int n, Boolean includeDetails,
-            Map<String, Long> timing) {
-
+    /**
+     * 准备历史收益计算所需的交易日与净值
+     * 优先使用常驻快照（一次请求只取一次快照），快照未覆盖查询窗口时回退到数据库
+     */
+    private HistoryFrame loadHistoryFrame(List<String> sectorList, String date, int n, Map<String, Long> timing) {
         long start = System.currentTimeMillis();
+        HistoryFrame frame = snapshotHistoryFrame(marketDataStore.current(), sectorList, date, n);
+        if (frame != null) {
+            timing.put("snapshot_ms", System.currentTimeMillis() - start);
+            return frame;
+        }
+
         List<Calendar> tradingDays = getTradingDays(date, n);
         timing.put("calendar_query_ms", System.currentTimeMillis() - start);
+        RequestDeadline.check();
 
         start = System.currentTimeMillis();
-        List<EtfInfo> allEtfs = etfInfoMapper.findBySectors(sectorList);
+        EtfUniverse universe = metadataRegistry.current().getUniverse();
+        Map<String, BitSet> membersBySector = membersOfSectors(universe, sectorList);
         timing.put("etf_info_query_ms", System.currentTimeMillis() - start);
 
-        if (allEtfs.isEmpty()) {
-            throw new IllegalArgumentException("未找到类别为" + String.join(",", sectorList) + "的ETF数据");
-        }
-
-        Map<String, List<EtfInfo>> etfsBySector = allEtfs.stream()
-                .collect(Collectors.groupingBy(EtfInfo::getSector));
-
-        start = System.currentTimeMillis();
         List<String> allDates = tradingDays.stream()
                 .map(day -> formatDate(day.getDay()))
                 .collect(Collectors.toList());
-        List<String> allCodes = allEtfs.stream()
-                .map(EtfInfo::getThsCode)
-                .collect(Collectors.toList());
+        BitSet listed = listedBetween(universe, allDates.get(0), allDates.get(allDates.size() - 1));
+        if (membersBySector.isEmpty()) {
+            return new HistoryFrame(allDates, universe, membersBySector, listed, (ordinal, dayIndex) -> Double.NaN);
+        }
 
-        List<EtfNetasset> netAssets = etfNetassetMapper.findByCodesAndDates(allCodes, allDates);
+        start = System.currentTimeMillis();
+        BitSet allMembers = new BitSet(universe.size());
+        membersBySector.values().forEach(allMembers::or);
+        allMembers.and(listed);
+        List<EtfNetasset> netAssets = fetchNavsByCodesAndDates(universe.codesOf(allMembers), allDates);
         timing.put("netasset_query_ms", System.currentTimeMillis() - start);
+        RequestDeadline.check();
 
-        Map<String, BigDecimal> navIndex = netAssets.stream()
-                .collect(Collectors.toMap(
-                        nav -> nav.getThsCode() + "_" + nav.getTime(),
-                        EtfNetasset::getAdjustedNav
-                ));
+        // 按[ETF序号][交易日下标]展开，只为查询到的ETF分配行
+        Map<String, Integer> dayIndexByDate = new HashMap<>();
+        for (int i = 0; i < allDates.size(); i++) {
+            dayIndexByDate.put(allDates.get(i), i);
+        }
+        double[][] navs = new double[universe.size()][];
+        for (EtfNetasset nav : netAssets) {
+            int ordinal = universe.ordinalOf(nav.getThsCode());
+            Integer dayIndex = dayIndexByDate.get(nav.getTime());
+            if (ordinal < 0 || dayIndex == null || nav.getAdjustedNav() == null) {
+                continue;
+            }
+            if (navs[ordinal] == null) {
+                navs[ordinal] = new double[allDates.size()];
+                Arrays.fill(navs[ordinal], Double.NaN);
+            }
+            navs[ordinal][dayIndex] = nav.getAdjustedNav().doubleValue();
+        }
+        return new HistoryFrame(allDates, universe, membersBySector, listed,
+                (ordinal, dayIndex) -> navs[ordinal] != null ? navs[ordinal][dayIndex] : Double.NaN);
+    }
+
+    /**
+     * 从快照截取以date（或其之前最近的交易日）结尾的n+1个交易日，快照不能完整覆盖时返回null
+     */
+    private HistoryFrame snapshotHistoryFrame(MarketSnapshot snapshot, List<String> sectorList, String date, int n) {
+        if (snapshot.isEmpty()) {
+            return null;
+        }
+        int day;
+        try {
+            day = TradingCalendar.toDayInt(date);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+        TradingCalendar calendar = snapshot.getCalendar();
+        int endIndex = calendar.floorIndex(day);
+        int startIndex = endIndex - n;
+        if (day > calendar.lastDay() || startIndex < 0) {
+            return null;
+        }
+
+        List<String> dates = new ArrayList<>(n + 1);
+        for (int i = startIndex; i <= endIndex; i++) {
+            dates.add(calendar.dateAt(i));
+        }
+        EtfUniverse universe = snapshot.getUniverse();
+        BitSet listed = universe.listedBetween(calendar.dayAt(startIndex), calendar.dayAt(endIndex));
+        return new HistoryFrame(dates, universe, membersOfSectors(universe, sectorList), listed,
+                (ordinal, dayIndex) -> snapshot.nav(ordinal, startIndex + dayIndex));
+    }
+
+    /**
+     * 快照与元数据同源且覆盖全部区间起点时，直接从净值列读取各端点
+     */
+    private PeriodFrame snapshotPeriodFrame(MarketSnapshot snapshot, EtfUniverse universe,
+                                            List<ReturnWindow> windows, int requestedDay) {
+        if (snapshot.isEmpty() || snapshot.getUniverse() != universe) {
+            return null;
+        }
+        TradingCalendar calendar = snapshot.getCalendar();
+        int endIndex = calendar.floorIndex(requestedDay);
+        if (requestedDay > calendar.lastDay() || endIndex < 0) {
+            return null;
+        }
+        int endDay = calendar.dayAt(endIndex);
+        int[] dayIndexes = new int[windows.size() + 1];
+        int[] startDays = new int[windows.size()];
+        dayIndexes[0] = endIndex;
+        for (int w = 0; w < windows.size(); w++) {
+            int startIndex = calendar.floorIndex(windows.get(w).startTarget(endDay));
+            if (startIndex < 0) {
+                return null;
+            }
+            dayIndexes[w + 1] = startIndex;
+            startDays[w] = calendar.dayAt(startIndex);
+        }
+        return new PeriodFrame(endDay, startDays, (ordinal, k) -> snapshot.nav(ordinal, dayIndexes[k]));
+    }
+
+    /**
+     * 从日历表查出截止日与各区间起点，再一次查询这些端点上的净值
+     */
+    private PeriodFrame loadPeriodFrame(EtfUniverse universe, BitSet members,
+                                        List<ReturnWindow> windows, int requestedDay) {
+        int earliestTarget = windows.stream().mapToInt(w -> w.startTarget(requestedDay)).min().orElse(requestedDay);
+        // 截止交易日可能早于查询日（长假），日历多取一个月
+        LocalDate from = LocalDate.parse(TradingCalendar.format(earliestTarget), DATE_FORMATTER).minusMonths(1);
+        int[] tradingDays = calendarMapper.findTradingDaysBetween(from.format(COMPACT_FORMATTER),
+                        String.valueOf(requestedDay)).stream()
+                .mapToInt(day -> TradingCalendar.toDayInt(day.getDay()))
+                .toArray();
+        TradingCalendar calendar = TradingCalendar.of(tradingDays);
+        int endIndex = calendar.floorIndex(requestedDay);
+        if (endIndex < 0) {
+            throw new IllegalArgumentException("日期" + TradingCalendar.format(requestedDay) + "之前没有交易日");
+        }
+        int endDay = calendar.dayAt(endIndex);
+
+        // 各端点在nav矩阵中的行：0为截止日，w+1为第w个区间的起点
+        int[] startDays = new int[windows.size()];
+        Map<String, List<Integer>> rowsByDate = new LinkedHashMap<>();
+        rowsByDate.computeIfAbsent(TradingCalendar.format(endDay), d -> new ArrayList<>()).add(0);
+        int earliestDay = endDay;
+        for (int w = 0; w < windows.size(); w++) {
+            int startIndex = calendar.floorIndex(windows.get(w).startTarget(endDay));
+            if (startIndex < 0) {
+                continue;
+            }
+            startDays[w] = calendar.dayAt(startIndex);
+            earliestDay = Math.min(earliestDay, startDays[w]);
+            rowsByDate.computeIfAbsent(TradingCalendar.format(startDays[w]), d -> new ArrayList<>()).add(w + 1);
+        }
+
+        BitSet listed = (BitSet) members.clone();
+        listed.and(universe.listedBetween(earliestDay, endDay));
+        double[][] navs = new double[windows.size() + 1][universe.size()];
+        for (double[] row : navs) {
+            Arrays.fill(row, Double.NaN);
+        }
+        if (!listed.isEmpty()) {
+            List<EtfNetasset> rows = fetchNavsByCodesAndDates(universe.codesOf(listed),
+                    new ArrayList<>(rowsByDate.keySet()));
+            for (EtfNetasset nav : rows) {
+                int ordinal = universe.ordinalOf(nav.getThsCode());
+                List<Integer> targets = rowsByDate.get(nav.getTime());
+                if (ordinal < 0 || targets == null || nav.getAdjustedNav() == null) {
+                    continue;
+                }
+                for (int k : targets) {
+                    navs[k][ordinal] = nav.getAdjustedNav().doubleValue();
+                }
+            }
+        }
+        return new PeriodFrame(endDay, startDays, (ordinal, k) -> navs[k][ordinal]);
+    }
+
+    /**
+     * 各类别的成员位图，只包含有ETF的类别；重复的类别只取一次
+     */
+    private Map<String, BitSet> membersOfSectors(EtfUniverse universe, List<String> sectorList) {
+        Map<String, BitSet> membersBySector = new LinkedHashMap<>();
+        for (String sector : sectorList) {
+            BitSet members = universe.sectorMembers(sector);
+            if (!members.isEmpty()) {
+                membersBySector.put(sector, members);
+            }
+        }
+        return membersBySector;
+    }
+
+    /**
+     * 某日的复权净值，按ETF序号排列，缺失为NaN
+     * 快照与元数据同源且该日为快照内交易日时直接读净值列，否则查询数据库
+     */
+    private double[] navsOnDate(MarketSnapshot snapshot, EtfUniverse universe, BitSet members, String date) {
+        double[] navs = new double[universe.size()];
+        Arrays.fill(navs, Double.NaN);
+
+        int dayIndex = snapshotDayIndex(snapshot, universe, date);
+        if (dayIndex >= 0) {
+            for (int ordinal = members.nextSetBit(0); ordinal >= 0; ordinal = members.nextSetBit(ordinal + 1)) {
+                navs[ordinal] = snapshot.nav(ordinal, dayIndex);
+            }
+            return navs;
+        }
+
+        for (EtfNetasset row : etfNetassetMapper.findByCodesAndDate(SqlInLists.pad(universe.codesOf(members)), date)) {
+            int ordinal = universe.ordinalOf(row.getThsCode());
+            if (ordinal >= 0 && row.getAdjustedNav() != null) {
+                navs[ordinal] = row.getAdjustedNav().doubleValue();
+            }
+        }
+        return navs;
+    }
+
+    private int snapshotDayIndex(MarketSnapshot snapshot, EtfUniverse universe, String date) {
+        if (snapshot.isEmpty() || snapshot.getUniverse() != universe) {
+            return -1;
+        }
+        try {
+            return snapshot.getCalendar().indexOf(TradingCalendar.toDayInt(date));
+        } catch (DateTimeParseException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * 在两个日期（YYYY-MM-DD或YYYYMMDD，先后不限）之间处于上市期的ETF；日期无法解析时不做裁剪
+     */
+    private BitSet listedBetween(EtfUniverse universe, String date1, String date2) {
+        try {
+            int day1 = TradingCalendar.toDayInt(date1);
+            int day2 = TradingCalendar.toDayInt(date2);
+            return universe.listedBetween(Math.min(day1, day2), Math.max(day1, day2));
+        } catch (DateTimeParseException e) {
+            return universe.allMembers();
+        }
+    }
+
+    /**
+     * 按代码分片并行查询多日净值，每片占用一个连接，总并发受连接池上限约束
+     */
+    private List<EtfNetasset> fetchNavsByCodesAndDates(List<String> thsCodes, List<String> dates) {
+        List<String> paddedDates = SqlInLists.pad(dates);
+        if (thsCodes.size() <= fetchChunkSize) {
+            return etfNetassetMapper.findByCodesAndDates(SqlInLists.pad(thsCodes), paddedDates);
+        }
+        List<CompletableFuture<List<EtfNetasset>>> chunks = new ArrayList<>();
+        for (int from = 0; from < thsCodes.size(); from += fetchChunkSize) {
+            List<String> chunk = thsCodes.subList(from, Math.min(from + fetchChunkSize, thsCodes.size()));
+            chunks.add(CompletableFuture.supplyAsync(
+                    () -> etfNetassetMapper.findByCodesAndDates(SqlInLists.pad(chunk), paddedDates), fanOutExecutor));
+        }
+        List<EtfNetasset> netAssets = new ArrayList<>();
+        for (CompletableFuture<List<EtfNetasset>> chunk : chunks) {
+            netAssets.addAll(joinUnwrapped(chunk, chunks));
+        }
+        return netAssets;
+    }
+
+    /**
+     * 等待子任务完成，子任务抛出的异常原样抛出；
+     * 失败时取消同一批中尚未开始的子任务，避免超时或出错后继续占用连接
+     */
+    private static <T> T joinUnwrapped(CompletableFuture<T> future, Collection<CompletableFuture<T>> batch) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            batch.forEach(other -> other.cancel(false));
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private Map<String, EtfNetasset> navRowsByCode(List<String> thsCodes, String date) {
+        return etfNetassetMapper.findByCodesAndDate(SqlInLists.pad(thsCodes), date).stream()
+                .collect(Collectors.toMap(EtfNetasset::getThsCode, e -> e, (a, b) -> a));
+    }
+
+    private BatchQueryResult batchQuerySectorsReturnRate(
+            HistoryFrame frame, List<String> sectorList, String date, int n, int window, Boolean includeDetails,
+            Boolean includeDistribution, Integer maxPoints, String since, Map<String, Long> timing) {
+        EtfMetadata metadata = metadataRegistry.current();
+
+        if (frame.membersBySector.isEmpty()) {
+            throw new IllegalArgumentException("未找到类别为" + String.join(",", sectorList) + "的ETF数据");
+        }
+
+        long start = System.currentTimeMillis();
+        // 各类别的计算互不依赖，先全部提交再按顺序收集
+        int firstEnd = firstEndIndex(frame.dates, window, since);
+        Map<String, CompletableFuture<List<DailyAccumulator>>> histories = new HashMap<>();
+        frame.membersBySector.forEach((sector, members) -> histories.put(sector, CompletableFuture.supplyAsync(
+                () -> accumulateSectorDays(frame.universe, frame.listed(members), frame.dates, window, firstEnd,
+                        frame.lookup, includeDetails, includeDistribution),
+                fanOutExecutor)));
+        // 多类别合并统计：逐日合并各类别的累加器与分位数草图，不再扫描净值
+        DailyAccumulator[] combined = null;
+        if (Boolean.TRUE.equals(includeDistribution)) {
+            combined = new DailyAccumulator[frame.dates.size() - firstEnd];
+            for (int d = 0; d < combined.length; d++) {
+                combined[d] = new DailyAccumulator(false, true);
+            }
+        }
 
-        start = System.currentTimeMillis();
         Map<String, SectorHistoryResult> sectorResults = new HashMap<>();
+        Set<String> mergedSectors = new HashSet<>();
 
         for (String sector : sectorList) {
-            List<EtfInfo> sectorEtfs = etfsBySector.getOrDefault(sector, Collections.emptyList());
+            BitSet members = frame.membersBySector.get(sector);
 
-            if (sectorEtfs.isEmpty()) {
+            if (members == null) {
                 SectorHistoryResult result = new SectorHistoryResult();
                 result.setError("未找到类别\"" + sector + "\"的ETF数据");
                 result.setTotalEtfs(0);
@@ -387,19 +1276,24 @@ public class EtfReturnRateServiceImpl implements EtfReturnRateService {
                 continue;
             }
 
-            List<DailyReturnRate> history = calculateSectorReturnHistory(
-                    sectorEtfs, tradingDays, navIndex, includeDetails);
+            List<DailyAccumulator> days = joinUnwrapped(histories.get(sector), histories.values());
+            List<DailyReturnRate> history = toDailyRates(days, frame.dates, window, firstEnd);
+            if (combined != null && mergedSectors.add(sector)) {
+                for (int d = 0; d < combined.length; d++) {
+                    combined[d].merge(days.get(d));
+                }
+            }
 
-            Category category = categoryMapper.findByName(sector);
+            Category category = metadata.category(sector);
 
             SectorHistoryResult result = new SectorHistoryResult();
             result.setSectorDescription(category != null ? category.getDescription() : sector);
-            result.setTotalEtfs(sectorEtfs.size());
+            result.setTotalEtfs(members.cardinality());
             result.setQueryDate(date);
-            result.setActualEndDate(formatDate(tradingDays.get(tradingDays.size() - 1).getDay()));
+            result.setActualEndDate(frame.dates.get(frame.dates.size() - 1));
             result.setRequestedCount(n);
             result.setActualCount(history.size());
-            result.setReturnRateHistory(history);
+            result.setReturnRateHistory(downsample(history, maxPoints));
 
             sectorResults.put(sector, result);
         }
@@ -409,52 +1303,553 @@ public class EtfReturnRateServiceImpl implements EtfReturnRateService {
         BatchQueryResult result = new BatchQueryResult();
         result.setSectorsCount(sectorList.size());
         result.setQueryDate(date);
-        result.setTradingDaysCount(tradingDays.size());
+        result.setTradingDaysCount(frame.dates.size());
         result.setResults(sectorResults);
+        if (combined != null) {
+            result.setCombined(downsample(
+                    toDailyRates(Arrays.asList(combined), frame.dates, window, firstEnd), maxPoints));
+        }
 
         return result;
     }
 
-    private List<DailyReturnRate> calculateSectorReturnHistory(
-            List<EtfInfo> etfList, List<Calendar> tradingDays,
-            Map<String, BigDecimal> navIndex, Boolean includeDetails) {
+    /**
+     * 逐日累加类别收益，window为1时是相邻交易日收益，大于1时是滚动window日收益
+     * 复权净值本身就是逐日收益的累乘，滚动收益取窗口两端净值之比，每步每只ETF为O(1)，与窗口长度无关
+     * 只计算截止日下标不小于firstEnd的交易日，返回按交易日升序的累加器，第d个截止于dates[firstEnd + d]
+     */
+    private List<DailyAccumulator> accumulateSectorDays(
+            EtfUniverse universe, BitSet members, List<String> dates, int window, int firstEnd,
+            NavLookup lookup, Boolean includeDetails, Boolean includeDistribution) {
+
+        List<DailyAccumulator> days = new ArrayList<>();
+
+        for (int i = firstEnd; i < dates.size(); i++) {
+            RequestDeadline.check();
+            DailyAccumulator acc = new DailyAccumulator(
+                    Boolean.TRUE.equals(includeDetails), Boolean.TRUE.equals(includeDistribution));
+
+            for (int ordinal = members.nextSetBit(0); ordinal >= 0; ordinal = members.nextSetBit(ordinal + 1)) {
+                acc.add(universe, ordinal, lookup.nav(ordinal, i - window), lookup.nav(ordinal, i));
+            }
+
+            days.add(acc);
+        }
+        return days;
+    }
+
+    /**
+     * 累加器转为逐日结果，按交易日倒序（最近的在前）
+     */
+    private static List<DailyReturnRate> toDailyRates(List<DailyAccumulator> days, List<String> dates,
+                                                      int window, int firstEnd) {
+        List<DailyReturnRate> results = new ArrayList<>(days.size());
+        for (int d = days.size() - 1; d >= 0; d--) {
+            int end = firstEnd + d;
+            results.add(days.get(d).toDailyRate(dates.get(end - window), dates.get(end)));
+        }
+        return results;
+    }
+
+    /**
+     * 第一个需要计算的截止日下标：since为空时从第一个完整窗口开始，
+     * 否则只取晚于since（客户端已有的最后一个截止日）的交易日，没有新交易日时返回dates.size()
+     */
+    private static int firstEndIndex(List<String> dates, int window, String since) {
+        if (since == null || since.isBlank()) {
+            return window;
+        }
+        int index = window;
+        while (index < dates.size() && dates.get(index).compareTo(since) <= 0) {
+            index++;
+        }
+        return index;
+    }
+
+    /**
+     * 序列超过maxPoints个点时用LTTB降采样（保留首尾与形状），只在有平均收益的交易日中选点；
+     * maxPoints为空时原样返回。actualCount仍为计算的交易日数
+     */
+    private static List<DailyReturnRate> downsample(List<DailyReturnRate> history, Integer maxPoints) {
+        if (maxPoints == null || history.size() <= maxPoints) {
+            return history;
+        }
+        List<DailyReturnRate> points = history.stream()
+                .filter(day -> day.getAvgReturnRate() != null)
+                .collect(Collectors.toList());
+        if (points.size() <= maxPoints) {
+            return points;
+        }
+        double[] values = new double[points.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = points.get(i).getAvgReturnRate().doubleValue();
+        }
+        List<DailyReturnRate> sampled = new ArrayList<>(maxPoints);
+        for (int index : Lttb.select(values, maxPoints)) {
+            sampled.add(points.get(index));
+        }
+        return sampled;
+    }
+
+    private static int rollingWindow(Integer window) {
+        if (window == null) {
+            return 1;
+        }
+        if (window <= 0) {
+            throw new IllegalArgumentException("window必须为正整数");
+        }
+        return window;
+    }
 
-        List<DailyReturnRate> results = new ArrayList<>();
+    /**
+     * n个点、窗口为step时需要的交易日数，溢出时按参数错误处理
+     */
+    private static int historyDays(int n, int step) {
+        try {
+            return Math.addExact(n, step - 1);
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("n与window过大");
+        }
+    }
 
-        for (int i = 1; i < tradingDays.size(); i++) {
-            String prevDate = formatDate(tradingDays.get(i - 1).getDay());
-            String currDate = formatDate(tradingDays.get(i).getDay());
+    /**
+     * 单遍计算类别与成员ETF的风险指标
+     * 类别日收益与逐日历史一致：当日与前一交易日均有净值的ETF收益取平均；
+     * ETF自身的收益以最近一个有净值的交易日为基准，缺失日并入下一期，保证总收益与回撤不因缺失而断开
+     */
+    private SectorRiskResult calculateSectorRisk(HistoryFrame frame, BitSet members, boolean includeEtfs,
+                                                 double dailyRiskFree) {
+        int[] ordinals = members.stream().toArray();
+        RiskAccumulator sectorRisk = new RiskAccumulator();
+        RiskAccumulator[] etfRisks = includeEtfs ? new RiskAccumulator[ordinals.length] : null;
+        double[] lastNavs = new double[ordinals.length];
+        for (int k = 0; k < ordinals.length; k++) {
+            lastNavs[k] = frame.lookup.nav(ordinals[k], 0);
+            if (etfRisks != null) {
+                etfRisks[k] = new RiskAccumulator();
+            }
+        }
 
-            BigDecimal totalReturnRate = BigDecimal.ZERO;
+        for (int i = 1; i < frame.dates.size(); i++) {
+            RequestDeadline.check();
+            double totalReturn = 0;
             int validCount = 0;
-            List<EtfReturnDetail> etfDetails = Boolean.TRUE.equals(includeDetails)
-                    ? new ArrayList<>() : null;
-
-            for (EtfInfo etf : etfList) {
-                String code = etf.getThsCode();
-                BigDecimal prevNav = navIndex.get(code + "_" + prevDate);
-                BigDecimal currNav = navIndex.get(code + "_" + currDate);
-
-                if (prevNav != null && currNav != null && prevNav.compareTo(BigDecimal.ZERO) > 0) {
-                    BigDecimal returnRate = currNav.subtract(prevNav)
-                            .divide(prevNav, 6, RoundingMode.HALF_UP);
-                    totalReturnRate = totalReturnRate.add(returnRate);
+            for (int k = 0; k < ordinals.length; k++) {
+                double prev = frame.lookup.nav(ordinals[k], i - 1);
+                double curr = frame.lookup.nav(ordinals[k], i);
+                if (!Double.isNaN(prev) && !Double.isNaN(curr) && prev > 0) {
+                    totalReturn += curr / prev - 1;
                     validCount++;
+                }
+                if (etfRisks != null && !Double.isNaN(curr)) {
+                    if (lastNavs[k] > 0) {
+                        etfRisks[k].add(curr / lastNavs[k] - 1);
+                    }
+                    lastNavs[k] = curr;
+                }
+            }
+            if (validCount > 0) {
+                sectorRisk.add(totalReturn / validCount);
+            }
+        }
 
-                    if (etfDetails != null) {
-                        EtfReturnDetail detail = new EtfReturnDetail();
-                        detail.setThsCode(code);
-                        detail.setChineseName(etf.getChineseName());
-                        detail.setPrevNav(prevNav);
-                        detail.setCurrNav(currNav);
-                        detail.setReturnRate(returnRate);
-                        detail.setReturnRatePercent(returnRate.multiply(new BigDecimal("100"))
-                                .setScale(2, RoundingMode.HALF_UP) + "%");
-                        etfDetails.add(detail);
+        SectorRiskResult result = new SectorRiskResult();
+        result.setRisk(toRiskStats(sectorRisk, dailyRiskFree));
+        if (etfRisks != null) {
+            List<EtfRiskStats> etfs = new ArrayList<>();
+            for (int k = 0; k < ordinals.length; k++) {
+                if (etfRisks[k].getCount() == 0) {
+                    continue;
+                }
+                EtfInfo etf = frame.universe.etfAt(ordinals[k]);
+                EtfRiskStats stats = new EtfRiskStats();
+                stats.setThsCode(etf.getThsCode());
+                stats.setChineseName(etf.getChineseName());
+                stats.setRisk(toRiskStats(etfRisks[k], dailyRiskFree));
+                etfs.add(stats);
+            }
+            result.setEtfs(etfs);
+        }
+        return result;
+    }
+
+    /**
+     * 类别逐日平均收益（与accumulateSectorDays口径一致），没有有效ETF的交易日为NaN
+     */
+    private static double[] sectorDailyReturns(HistoryFrame frame, BitSet members) {
+        double[] returns = new double[frame.dates.size() - 1];
+        for (int i = 1; i < frame.dates.size(); i++) {
+            double totalReturn = 0;
+            int validCount = 0;
+            for (int ordinal = members.nextSetBit(0); ordinal >= 0; ordinal = members.nextSetBit(ordinal + 1)) {
+                double prev = frame.lookup.nav(ordinal, i - 1);
+                double curr = frame.lookup.nav(ordinal, i);
+                if (prev > 0 && !Double.isNaN(curr)) {
+                    totalReturn += curr / prev - 1;
+                    validCount++;
+                }
+            }
+            returns[i - 1] = validCount > 0 ? totalReturn / validCount : Double.NaN;
+        }
+        return returns;
+    }
+
+    /**
+     * 年化波动率按每年TRADING_DAYS_PER_YEAR个交易日折算；夏普比率为日超额收益均值除以日波动率再年化
+     */
+    private static RiskStats toRiskStats(RiskAccumulator acc, double dailyRiskFree) {
+        double stdDev = acc.getStdDev();
+        RiskStats stats = new RiskStats();
+        stats.setObservations((int) acc.getCount());
+        stats.setMeanReturn(toDecimal(acc.getMean()));
+        stats.setVolatility(toDecimal(stdDev));
+        stats.setAnnualizedVolatility(toDecimal(stdDev * Math.sqrt(TRADING_DAYS_PER_YEAR)));
+        stats.setTotalReturn(toDecimal(acc.getTotalReturn()));
+        stats.setMaxDrawdown(toDecimal(acc.getMaxDrawdown()));
+        if (stdDev > 0) {
+            stats.setSharpeRatio(toDecimal(
+                    (acc.getMean() - dailyRiskFree) / stdDev * Math.sqrt(TRADING_DAYS_PER_YEAR)));
+        }
+        return stats;
+    }
+
+    /**
+     * 保留6位小数，NaN与无穷返回null
+     */
+    private static BigDecimal toDecimal(double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            return null;
+        }
+        return BigDecimal.valueOf(value).setScale(6, RoundingMode.HALF_UP);
+    }
+
+    private static List<String> allSectorNames(EtfUniverse universe) {
+        List<String> names = new ArrayList<>(universe.sectorCount());
+        for (int i = 0; i < universe.sectorCount(); i++) {
+            names.add(universe.sectorName(i));
+        }
+        return names;
+    }
+
+    private String formatDate(String dateStr) {
+        if (dateStr.contains("-")) {
+            return dateStr;
+        }
+        LocalDate date = LocalDate.parse(dateStr, COMPACT_FORMATTER);
+        return date.format(DATE_FORMATTER);
+    }
+
+    /**
+     * 按(ETF序号, 交易日下标)取复权净值，缺失返回NaN
+     */
+    @FunctionalInterface
+    private interface NavLookup {
+        double nav(int ordinal, int dayIndex);
+    }
+
+    /**
+     * 区间收益的端点：截止交易日、各区间起点交易日（日历未覆盖为0）、
+     * 净值查找（交易日下标0为截止日，w+1为第w个区间的起点）
+     */
+    private static class PeriodFrame {
+        private final int endDay;
+        private final int[] startDays;
+        private final NavLookup lookup;
+
+        PeriodFrame(int endDay, int[] startDays, NavLookup lookup) {
+            this.endDay = endDay;
+            this.startDays = startDays;
+            this.lookup = lookup;
+        }
+    }
+
+    /**
+     * 一次历史收益计算的输入：升序交易日（YYYY-MM-DD）、ETF全集、各类别成员位图、
+     * 窗口内处于上市期的ETF位图、净值查找
+     */
+    private static class HistoryFrame {
+        private final List<String> dates;
+        private final EtfUniverse universe;
+        private final Map<String, BitSet> membersBySector;
+        private final BitSet listed;
+        private final NavLookup lookup;
+
+        HistoryFrame(List<String> dates, EtfUniverse universe, Map<String, BitSet> membersBySector,
+                     BitSet listed, NavLookup lookup) {
+            this.dates = dates;
+            this.universe = universe;
+            this.membersBySector = membersBySector;
+            this.listed = listed;
+            this.lookup = lookup;
+        }
+
+        /**
+         * 成员中在窗口内处于上市期的部分
+         */
+        BitSet listed(BitSet members) {
+            BitSet result = (BitSet) members.clone();
+            result.and(listed);
+            return result;
+        }
+    }
+
+    /**
+     * 一次合并查询共用的净值
+     * 快照与元数据同源时，快照内的交易日直接读净值列；其余日期登记到取数计划，
+     * 所有子查询登记完后按代码与日期的并集一次查询，各子查询都从这里取值
+     */
+    private class SharedNavs {
+        private final MarketSnapshot snapshot;
+        private final EtfUniverse universe;
+        private final Set<String> codes = new LinkedHashSet<>();
+        private final Set<String> dates = new TreeSet<>();
+        /**
+         * 取到的净值：日期 -> 按ETF序号排列的净值，缺失为NaN
+         */
+        private final Map<String, double[]> navsByDate = new HashMap<>();
+        /**
+         * 不在ETF全集中的代码取到的净值行，键为"代码|日期"
+         */
+        private final Map<String, EtfNetasset> unknownRows = new HashMap<>();
+        private int fetchedRows;
+
+        SharedNavs(MarketSnapshot snapshot, EtfUniverse universe) {
+            this.snapshot = snapshot.getUniverse() == universe ? snapshot : MarketSnapshot.EMPTY;
+            this.universe = universe;
+        }
+
+        /**
+         * 登记所需的（代码, 日期），只有快照未覆盖的日期需要取数
+         */
+        void need(Collection<String> thsCodes, Collection<String> days) {
+            boolean uncovered = false;
+            for (String day : days) {
+                if (snapshotDayIndex(snapshot, universe, day) < 0) {
+                    dates.add(day);
+                    uncovered = true;
+                }
+            }
+            if (uncovered) {
+                codes.addAll(thsCodes);
+            }
+        }
+
+        void fetch() {
+            if (codes.isEmpty() || dates.isEmpty()) {
+                return;
+            }
+            List<EtfNetasset> rows = fetchNavsByCodesAndDates(new ArrayList<>(codes), new ArrayList<>(dates));
+            fetchedRows = rows.size();
+            for (EtfNetasset row : rows) {
+                if (row.getAdjustedNav() == null) {
+                    continue;
+                }
+                int ordinal = universe.ordinalOf(row.getThsCode());
+                if (ordinal < 0) {
+                    unknownRows.put(row.getThsCode() + "|" + row.getTime(), row);
+                    continue;
+                }
+                navsByDate.computeIfAbsent(row.getTime(), day -> {
+                    double[] navs = new double[universe.size()];
+                    Arrays.fill(navs, Double.NaN);
+                    return navs;
+                })[ordinal] = row.getAdjustedNav().doubleValue();
+            }
+        }
+
+        /**
+         * 按交易日下标取净值，每个交易日的来源（快照列或取到的净值）预先定好
+         */
+        NavLookup lookup(List<String> days) {
+            int[] snapshotIndex = new int[days.size()];
+            double[][] columns = new double[days.size()][];
+            for (int i = 0; i < days.size(); i++) {
+                snapshotIndex[i] = snapshotDayIndex(snapshot, universe, days.get(i));
+                columns[i] = navsByDate.get(days.get(i));
+            }
+            return (ordinal, dayIndex) -> {
+                if (snapshotIndex[dayIndex] >= 0) {
+                    return snapshot.nav(ordinal, snapshotIndex[dayIndex]);
+                }
+                return columns[dayIndex] != null ? columns[dayIndex][ordinal] : Double.NaN;
+            };
+        }
+
+        double[] navsOn(BitSet members, String day) {
+            NavLookup lookup = lookup(List.of(day));
+            double[] navs = new double[universe.size()];
+            Arrays.fill(navs, Double.NaN);
+            for (int ordinal = members.nextSetBit(0); ordinal >= 0; ordinal = members.nextSetBit(ordinal + 1)) {
+                navs[ordinal] = lookup.nav(ordinal, 0);
+            }
+            return navs;
+        }
+
+        /**
+         * 某日各代码的净值行，与按代码查询单日净值的结果形式相同
+         */
+        Map<String, EtfNetasset> rowsOn(List<String> thsCodes, String day) {
+            NavLookup lookup = lookup(List.of(day));
+            Map<String, EtfNetasset> rows = new HashMap<>();
+            for (String code : thsCodes) {
+                int ordinal = universe.ordinalOf(code);
+                if (ordinal < 0) {
+                    EtfNetasset row = unknownRows.get(code + "|" + day);
+                    if (row != null) {
+                        rows.put(code, row);
+                    }
+                    continue;
+                }
+                double nav = lookup.nav(ordinal, 0);
+                if (!Double.isNaN(nav)) {
+                    EtfNetasset row = new EtfNetasset();
+                    row.setThsCode(code);
+                    row.setTime(day);
+                    row.setAdjustedNav(BigDecimal.valueOf(nav));
+                    rows.put(code, row);
+                }
+            }
+            return rows;
+        }
+    }
+
+    /**
+     * 流式计算的逐日状态：当前交易日与前一交易日的净值（按ETF序号），以及当前交易日各类别的累加器
+     */
+    private static class StreamingDays {
+        private final List<String> slots;
+        private final List<String> dates;
+        private final boolean includeDetails;
+        private final Consumer<SectorHistoryStreamEvent> sink;
+        private double[] prevNavs;
+        private double[] currNavs;
+        private DailyAccumulator[] accumulators;
+        private int day = 0;
+
+        StreamingDays(int universeSize, List<String> slots, List<String> dates, boolean includeDetails,
+                      Consumer<SectorHistoryStreamEvent> sink) {
+            this.slots = slots;
+            this.dates = dates;
+            this.includeDetails = includeDetails;
+            this.sink = sink;
+            this.prevNavs = new double[universeSize];
+            this.currNavs = new double[universeSize];
+            Arrays.fill(prevNavs, Double.NaN);
+            Arrays.fill(currNavs, Double.NaN);
+            this.accumulators = newAccumulators();
+        }
+
+        /**
+         * 结束dayIndex之前的所有交易日并输出其结果
+         */
+        void advanceTo(int dayIndex) {
+            while (day < dayIndex) {
+                if (day >= 1) {
+                    for (int slot = 0; slot < slots.size(); slot++) {
+                        sink.accept(SectorHistoryStreamEvent.daily(slots.get(slot),
+                                accumulators[slot].toDailyRate(dates.get(day - 1), dates.get(day))));
                     }
                 }
+                double[] recycled = prevNavs;
+                prevNavs = currNavs;
+                currNavs = recycled;
+                Arrays.fill(currNavs, Double.NaN);
+                accumulators = newAccumulators();
+                day++;
+            }
+        }
+
+        void add(EtfUniverse universe, int ordinal, int slot, double nav) {
+            currNavs[ordinal] = nav;
+            if (day >= 1) {
+                accumulators[slot].add(universe, ordinal, prevNavs[ordinal], nav);
+            }
+        }
+
+        private DailyAccumulator[] newAccumulators() {
+            DailyAccumulator[] next = new DailyAccumulator[slots.size()];
+            for (int i = 0; i < next.length; i++) {
+                next[i] = new DailyAccumulator(includeDetails);
+            }
+            return next;
+        }
+    }
+
+    /**
+     * 单个类别单个交易日的收益累加：每只ETF按(当日 - 前日) / 前日计算，类别取平均
+     */
+    private static class DailyAccumulator {
+        private BigDecimal totalReturnRate = BigDecimal.ZERO;
+        private int validCount = 0;
+        private final List<EtfReturnDetail> etfDetails;
+        private final QuantileSketch sketch;
+        private int advancers = 0;
+        private int decliners = 0;
+
+        DailyAccumulator(boolean includeDetails) {
+            this(includeDetails, false);
+        }
+
+        DailyAccumulator(boolean includeDetails, boolean includeDistribution) {
+            this.etfDetails = includeDetails ? new ArrayList<>() : null;
+            this.sketch = includeDistribution ? new QuantileSketch() : null;
+        }
+
+        /**
+         * 累加一只ETF，任一净值缺失或前日净值非正时忽略
+         */
+        void add(EtfUniverse universe, int ordinal, double prev, double curr) {
+            if (Double.isNaN(prev) || Double.isNaN(curr) || prev <= 0) {
+                return;
+            }
+            BigDecimal prevNav = BigDecimal.valueOf(prev);
+            BigDecimal currNav = BigDecimal.valueOf(curr);
+            BigDecimal returnRate = currNav.subtract(prevNav)
+                    .divide(prevNav, 6, RoundingMode.HALF_UP);
+            totalReturnRate = totalReturnRate.add(returnRate);
+            validCount++;
+
+            if (sketch != null) {
+                sketch.add(returnRate.doubleValue());
+                if (returnRate.signum() > 0) {
+                    advancers++;
+                } else if (returnRate.signum() < 0) {
+                    decliners++;
+                }
+            }
+
+            if (etfDetails != null) {
+                EtfInfo etf = universe.etfAt(ordinal);
+                EtfReturnDetail detail = new EtfReturnDetail();
+                detail.setThsCode(etf.getThsCode());
+                detail.setChineseName(etf.getChineseName());
+                detail.setPrevNav(prevNav);
+                detail.setCurrNav(currNav);
+                detail.setReturnRate(returnRate);
+                detail.setReturnRatePercent(returnRate.multiply(new BigDecimal("100"))
+                        .setScale(2, RoundingMode.HALF_UP) + "%");
+                etfDetails.add(detail);
+            }
+        }
+
+        private BigDecimal quantile(double q) {
+            return BigDecimal.valueOf(sketch.quantile(q)).setScale(6, RoundingMode.HALF_UP);
+        }
+
+        /**
+         * 并入另一组ETF同一交易日的累加结果（不含明细），用于多类别合并统计
+         */
+        void merge(DailyAccumulator other) {
+            totalReturnRate = totalReturnRate.add(other.totalReturnRate);
+            validCount += other.validCount;
+            advancers += other.advancers;
+            decliners += other.decliners;
+            if (sketch != null && other.sketch != null) {
+                sketch.merge(other.sketch);
             }
+        }
 
+        DailyReturnRate toDailyRate(String prevDate, String currDate) {
             DailyReturnRate dailyRate = new DailyReturnRate();
             dailyRate.setStartDate(prevDate);
             dailyRate.setEndDate(currDate);
@@ -471,22 +1866,21 @@ public class EtfReturnRateServiceImpl implements EtfReturnRateService {
                 dailyRate.setError("该时间段内没有有效的ETF净值数据");
             }
 
+            if (sketch != null) {
+                dailyRate.setAdvancers(advancers);
+                dailyRate.setDecliners(decliners);
+                if (validCount > 0) {
+                    dailyRate.setMedianReturnRate(quantile(0.5));
+                    dailyRate.setP10ReturnRate(quantile(0.1));
+                    dailyRate.setP90ReturnRate(quantile(0.9));
+                }
+            }
+
             if (etfDetails != null) {
                 dailyRate.setEtfDetails(etfDetails);
             }
-
-            results.add(dailyRate);
-        }
-
-        Collections.reverse(results);
-        return results;
-    }
-    private String formatDate(String dateStr) {
-        if (dateStr.contains("-")) {
-            return dateStr;
+            return dailyRate;
         }
-        LocalDate date = LocalDate.parse(dateStr, COMPACT_FORMATTER);
-        return date.format(DATE_FORMATTER);
     }
 
     private static class SectorAccumulator {
@@ -0,0 +1,113 @@
+package com.ives.api.service.impl;
+
+import com.ives.api.mapper.CalendarMapper;
+import com.ives.api.mapper.EtfNetassetMapper;
+import com.ives.api.market.DataVersion;
+import com.ives.api.market.NavDataChangedEvent;
+import com.ives.api.model.dto.NavIngestResponse;
+import com.ives.api.model.entity.Calendar;
+import com.ives.api.model.entity.EtfNetasset;
+import com.ives.api.service.NavIngestService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class NavIngestServiceImpl implements NavIngestService {
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+
+    private final EtfNetassetMapper etfNetassetMapper;
+    private final CalendarMapper calendarMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final DataVersion dataVersion;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Value("${myapp.ingest.batch-size:500}")
+    private int batchSize;
+
+    @Override
+    public NavIngestResponse ingest(String date, List<EtfNetasset> rows) {
+        validateDate(date);
+        if (rows == null || rows.isEmpty()) {
+            throw new IllegalArgumentException("净值记录不能为空");
+        }
+
+        // 同一代码重复出现时以最后一条为准
+        Map<String, EtfNetasset> deduplicated = new LinkedHashMap<>();
+        for (EtfNetasset row : rows) {
+            if (row == null || !StringUtils.hasText(row.getThsCode())) {
+                throw new IllegalArgumentException("ths_code不能为空");
+            }
+            if (row.getTime() == null) {
+                row.setTime(date);
+            } else if (!date.equals(row.getTime())) {
+                throw new IllegalArgumentException(
+                        "记录" + row.getThsCode() + "的日期" + row.getTime() + "与批次日期" + date + "不一致");
+            }
+            if (row.getAdjustedNav() == null || row.getAdjustedNav().compareTo(BigDecimal.ZERO) <= 0) {
+                throw new IllegalArgumentException("记录" + row.getThsCode() + "的复权净值必须为正数");
+            }
+            row.setThsCode(row.getThsCode().trim());
+            deduplicated.put(row.getThsCode(), row);
+        }
+        List<EtfNetasset> batch = new ArrayList<>(deduplicated.values());
+
+        long start = System.currentTimeMillis();
+        Integer written = transactionTemplate.execute(status -> {
+            int affected = 0;
+            for (int from = 0; from < batch.size(); from += batchSize) {
+                List<EtfNetasset> chunk = batch.subList(from, Math.min(from + batchSize, batch.size()));
+                affected += etfNetassetMapper.upsertBatch(chunk);
+            }
+            return affected;
+        });
+
+        // 事务提交后再递增版本并通知，监听方读到的一定是已落库的数据
+        long version = dataVersion.bump();
+        eventPublisher.publishEvent(new NavDataChangedEvent(version, date, batch));
+        log.info("净值写入完成: date={}, rows={}, affected={}, version={}, cost={}ms",
+                date, batch.size(), written, version, System.currentTimeMillis() - start);
+
+        return new NavIngestResponse(date, rows.size(), batch.size(), version);
+    }
+
+    /**
+     * 只接受日历表中不晚于今天的交易日，避免周末或未来日期进入净值表与常驻快照
+     */
+    private void validateDate(String date) {
+        if (!StringUtils.hasText(date)) {
+            throw new IllegalArgumentException("date不能为空");
+        }
+        LocalDate day;
+        try {
+            day = LocalDate.parse(date, DATE_FORMATTER);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("日期格式错误，应为YYYY-MM-DD");
+        }
+        if (day.isAfter(LocalDate.now())) {
+            throw new IllegalArgumentException("不能写入未来日期" + date + "的净值");
+        }
+        Calendar calendar = calendarMapper.findByDay(date.replace("-", ""));
+        if (calendar == null) {
+            throw new IllegalArgumentException("日期" + date + "不在日历表中");
+        }
+        if (calendar.getIsTradingDay() == null || calendar.getIsTradingDay() == 0) {
+            throw new IllegalArgumentException(date + "不是交易日");
+        }
+    }
+}
@@ -0,0 +1,347 @@
+package com.ives.api.service.impl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ives.api.common.constant.ErrorCode;
+import com.ives.api.common.deadline.RequestDeadline;
+import com.ives.api.common.exception.BusinessException;
+import com.ives.api.market.NavDataChangedEvent;
+import com.ives.api.model.dto.DailyReturnRate;
+import com.ives.api.model.dto.MultipleSectorsReturnRateHistoryResponse;
+import com.ives.api.model.dto.SectorHistoryResult;
+import com.ives.api.model.dto.SectorReturnPushEvent;
+import com.ives.api.service.EtfReturnRateService;
+import com.ives.api.service.SectorReturnPushService;
+import com.ives.api.service.UserCollectionService;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 净值写入后的SSE推送
+ * 写入事件到达后，在推送线程上对所有在线订阅者收藏类别的并集只计算一次当日收益，
+ * 每个类别序列化一次，再把同一份JSON放入订阅了该类别的每个连接的发送队列。
+ * 每个连接一个有界队列，由发送线程池逐个写出（SseEmitter.send是阻塞写），慢连接不拖慢其他订阅者；
+ * 队列满、单次写出超过write-timeout-ms或写入失败的连接直接移除。
+ * 心跳在推送线程上定时入队，不占用调度线程，同时用于发现已断开或卡住的连接。
+ * 指标：push.sse.connections
+ */
+@Slf4j
+@Service
+public class SectorReturnPushServiceImpl implements SectorReturnPushService {
+    static final String EVENT_NAME = "sector-return";
+
+    private final EtfReturnRateService etfReturnRateService;
+    private final UserCollectionService userCollectionService;
+    private final ObjectMapper objectMapper;
+    private final AsyncTaskExecutor pushExecutor;
+    private final AsyncTaskExecutor pushSendExecutor;
+    private final int maxConnections;
+    private final long timeoutMs;
+    private final long computeTimeoutMs;
+    private final int queueSize;
+    private final long writeTimeoutMs;
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger connections = new AtomicInteger();
+
+    public SectorReturnPushServiceImpl(EtfReturnRateService etfReturnRateService,
+                                       UserCollectionService userCollectionService,
+                                       ObjectMapper objectMapper,
+                                       AsyncTaskExecutor pushExecutor,
+                                       AsyncTaskExecutor pushSendExecutor,
+                                       MeterRegistry meterRegistry,
+                                       @Value("${myapp.push.max-connections:5000}") int maxConnections,
+                                       @Value("${myapp.push.timeout-ms:1800000}") long timeoutMs,
+                                       @Value("${myapp.push.compute-timeout-ms:30000}") long computeTimeoutMs,
+                                       @Value("${myapp.push.queue-size:32}") int queueSize,
+                                       @Value("${myapp.push.write-timeout-ms:10000}") long writeTimeoutMs) {
+        this.etfReturnRateService = etfReturnRateService;
+        this.userCollectionService = userCollectionService;
+        this.objectMapper = objectMapper;
+        this.pushExecutor = pushExecutor;
+        this.pushSendExecutor = pushSendExecutor;
+        this.maxConnections = maxConnections;
+        this.timeoutMs = timeoutMs;
+        this.computeTimeoutMs = computeTimeoutMs;
+        this.queueSize = queueSize;
+        this.writeTimeoutMs = writeTimeoutMs;
+        Gauge.builder("push.sse.connections", connections, AtomicInteger::get).register(meterRegistry);
+    }
+
+    @Override
+    public SseEmitter subscribe(Integer userId) {
+        if (userId == null) {
+            throw new BusinessException(ErrorCode.UNAUTHORIZED.getCode(), "未识别的用户，请先登录");
+        }
+        Set<String> sectors = collectedSectors(userId);
+        if (connections.incrementAndGet() > maxConnections) {
+            connections.decrementAndGet();
+            throw new BusinessException(ErrorCode.SERVICE_BUSY);
+        }
+
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        Subscriber subscriber = new Subscriber(userId, emitter, sectors, queueSize);
+        subscribers.add(subscriber);
+        emitter.onCompletion(() -> remove(subscriber));
+        emitter.onTimeout(() -> remove(subscriber));
+        emitter.onError(e -> remove(subscriber));
+
+        // 首条事件告知本连接订阅的类别
+        enqueue(subscriber, SseEmitter.event().name("subscribed").data(sectors, MediaType.APPLICATION_JSON));
+        log.debug("用户{}建立推送连接，类别: {}", userId, sectors);
+        return emitter;
+    }
+
+    /**
+     * 写入线程只提交任务，计算与推送在推送线程上按写入顺序进行；
+     * 排在其它监听方之后提交，保证计算时常驻净值已包含本次写入
+     */
+    @EventListener
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    public void onNavDataChanged(NavDataChangedEvent event) {
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        pushExecutor.execute(() -> push(event.getVersion(), event.getDate()));
+    }
+
+    /**
+     * 调度线程只提交任务；推送线程上先移除写出卡住的连接，再给其余连接的队列放入心跳
+     */
+    @Scheduled(fixedDelayString = "${myapp.push.heartbeat-ms:30000}")
+    public void heartbeat() {
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        try {
+            pushExecutor.execute(this::sendHeartbeats);
+        } catch (TaskRejectedException e) {
+            log.debug("推送线程繁忙，跳过本次心跳");
+        }
+    }
+
+    private void sendHeartbeats() {
+        long now = System.currentTimeMillis();
+        for (Subscriber subscriber : subscribers) {
+            long sendingSince = subscriber.sendingSince;
+            if (sendingSince > 0 && now - sendingSince > writeTimeoutMs) {
+                drop(subscriber, "写出超时");
+            } else {
+                enqueue(subscriber, SseEmitter.event().comment("ping"));
+            }
+        }
+    }
+
+    void push(long version, String date) {
+        Set<String> sectors = new TreeSet<>();
+        for (Subscriber subscriber : subscribers) {
+            sectors.addAll(subscriber.sectors);
+        }
+        if (sectors.isEmpty()) {
+            return;
+        }
+
+        Map<String, String> payloads;
+        try {
+            payloads = payloads(version, date, sectors);
+        } catch (Exception e) {
+            log.warn("计算推送数据失败: date={}, sectors={}", date, sectors.size(), e);
+            return;
+        }
+
+        int sent = 0;
+        for (Subscriber subscriber : subscribers) {
+            for (String sector : subscriber.sectors) {
+                String payload = payloads.get(sector);
+                if (payload != null && enqueue(subscriber, SseEmitter.event()
+                        .name(EVENT_NAME)
+                        .id(version + ":" + sector)
+                        .data(payload, MediaType.APPLICATION_JSON))) {
+                    sent++;
+                }
+            }
+        }
+        log.info("推送类别收益: date={}, version={}, sectors={}, events={}", date, version, payloads.size(), sent);
+    }
+
+    /**
+     * 所有类别一次计算当日收益，每个类别序列化一次；该日不是交易日或类别没有数据时不推送
+     */
+    private Map<String, String> payloads(long version, String date, Set<String> sectors)
+            throws JsonProcessingException {
+        MultipleSectorsReturnRateHistoryResponse response = RequestDeadline.callWithin(computeTimeoutMs,
+                () -> etfReturnRateService.getMultipleSectorsReturnRateHistory(
+                        String.join(",", sectors), date, 1, 1, false, false, null, null, false));
+
+        Map<String, String> payloads = new HashMap<>();
+        for (Map.Entry<String, SectorHistoryResult> entry : response.getResults().entrySet()) {
+            SectorHistoryResult result = entry.getValue();
+            if (result.getError() != null || result.getReturnRateHistory().isEmpty()) {
+                continue;
+            }
+            DailyReturnRate daily = result.getReturnRateHistory().get(0);
+            if (!date.equals(daily.getEndDate())) {
+                continue;
+            }
+            payloads.put(entry.getKey(), objectMapper.writeValueAsString(new SectorReturnPushEvent(
+                    entry.getKey(), result.getSectorDescription(), version, daily)));
+        }
+        return payloads;
+    }
+
+    private Set<String> collectedSectors(Integer userId) {
+        Set<String> sectors = new LinkedHashSet<>();
+        List<Map<String, Object>> collections = userCollectionService.getUserCollections(userId);
+        for (Map<String, Object> collection : collections) {
+            Object sector = collection.get("sector");
+            if (sector != null) {
+                sectors.add(sector.toString());
+            }
+        }
+        return sectors;
+    }
+
+    /**
+     * 放入连接的发送队列，不阻塞调用线程
+     * @return 连接已关闭或队列已满（连接被移除）时返回false
+     */
+    private boolean enqueue(Subscriber subscriber, SseEmitter.SseEventBuilder event) {
+        if (subscriber.closed.get()) {
+            return false;
+        }
+        if (!subscriber.pending.offer(event)) {
+            drop(subscriber, "发送队列已满");
+            return false;
+        }
+        scheduleDrain(subscriber);
+        return true;
+    }
+
+    /**
+     * 每个连接同时只有一个写出任务，保证事件按入队顺序发送
+     */
+    private void scheduleDrain(Subscriber subscriber) {
+        if (!subscriber.draining.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            pushSendExecutor.execute(() -> drain(subscriber));
+        } catch (TaskRejectedException e) {
+            subscriber.draining.set(false);
+            drop(subscriber, "发送线程池已满");
+        }
+    }
+
+    private void drain(Subscriber subscriber) {
+        try {
+            SseEmitter.SseEventBuilder event;
+            while (!subscriber.closed.get() && (event = subscriber.pending.poll()) != null) {
+                if (!send(subscriber, event)) {
+                    return;
+                }
+            }
+        } finally {
+            subscriber.draining.set(false);
+        }
+        if (subscriber.closed.get()) {
+            // 写出期间被移除（如写出超时），由写出线程结束连接
+            complete(subscriber);
+        } else if (!subscriber.pending.isEmpty()) {
+            // 释放标记前后可能有新事件入队
+            scheduleDrain(subscriber);
+        }
+    }
+
+    /**
+     * @return 写入失败（连接已断开）时移除连接并返回false
+     */
+    private boolean send(Subscriber subscriber, SseEmitter.SseEventBuilder event) {
+        subscriber.sendingSince = System.currentTimeMillis();
+        try {
+            subscriber.emitter.send(event);
+            return true;
+        } catch (IOException | IllegalStateException e) {
+            log.debug("用户{}的推送连接已断开: {}", subscriber.userId, e.getMessage());
+            remove(subscriber);
+            return false;
+        } finally {
+            subscriber.sendingSince = 0;
+        }
+    }
+
+    /**
+     * 移除慢连接；正在写出时不在此处结束连接（会等待同一把写锁），由写出线程返回后结束
+     */
+    private void drop(Subscriber subscriber, String reason) {
+        if (!remove(subscriber)) {
+            return;
+        }
+        log.info("用户{}的推送连接过慢，已断开: {}", subscriber.userId, reason);
+        subscriber.pending.clear();
+        if (subscriber.sendingSince == 0) {
+            complete(subscriber);
+        }
+    }
+
+    private static void complete(Subscriber subscriber) {
+        try {
+            subscriber.emitter.complete();
+        } catch (RuntimeException e) {
+            log.debug("结束用户{}的推送连接失败: {}", subscriber.userId, e.getMessage());
+        }
+    }
+
+    private boolean remove(Subscriber subscriber) {
+        if (subscriber.closed.compareAndSet(false, true)) {
+            subscribers.remove(subscriber);
+            connections.decrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    int connectionCount() {
+        return connections.get();
+    }
+
+    private static class Subscriber {
+        private final Integer userId;
+        private final SseEmitter emitter;
+        private final Set<String> sectors;
+        private final BlockingQueue<SseEmitter.SseEventBuilder> pending;
+        private final AtomicBoolean draining = new AtomicBoolean(false);
+        private final AtomicBoolean closed = new AtomicBoolean(false);
+        // 当前写出开始的时间，0表示未在写出
+        private volatile long sendingSince;
+
+        Subscriber(Integer userId, SseEmitter emitter, Set<String> sectors, int queueSize) {
+            this.userId = userId;
+            this.emitter = emitter;
+            this.sectors = sectors;
+            this.pending = new ArrayBlockingQueue<>(queueSize);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.ives.api.common.bulkhead;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BulkheadRegistryTest {
+
+    @Test
+    void heavyCompartmentRejectsAfterBoundedWaitWithoutAffectingLight() throws Exception {
+        SimpleMeterRegistry meters = new SimpleMeterRegistry();
+        BulkheadRegistry registry = new BulkheadRegistry(meters, 1, 50, 2, 0);
+        BulkheadRegistry.Compartment heavy = registry.get(BulkheadType.HEAVY);
+        BulkheadRegistry.Compartment light = registry.get(BulkheadType.LIGHT);
+
+        assertTrue(heavy.tryEnter());
+        long start = System.nanoTime();
+        assertFalse(heavy.tryEnter(), "许可用尽时应被拒绝");
+        assertTrue(System.nanoTime() - start >= 40_000_000L, "拒绝前应等待max-wait-ms");
+        assertTrue(light.tryEnter(), "重查询占满不应影响轻查询");
+
+        heavy.exit();
+        assertTrue(heavy.tryEnter());
+
+        assertEquals(2.0, meters.get("bulkhead.calls").tag("bulkhead", "heavy").tag("result", "accepted")
+                .counter().count());
+        assertEquals(1.0, meters.get("bulkhead.calls").tag("bulkhead", "heavy").tag("result", "rejected")
+                .counter().count());
+        assertEquals(0.0, meters.get("bulkhead.permits.available").tag("bulkhead", "heavy").gauge().value());
+    }
+}
@@ -0,0 +1,127 @@
+package com.ives.api.common.datasource;
+
+import com.ives.api.mapper.CalendarMapper;
+import com.ives.api.market.NavDataChangedEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.ibatis.builder.xml.XMLMapperBuilder;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mybatis.spring.SqlSessionTemplate;
+import org.mybatis.spring.transaction.SpringManagedTransactionFactory;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.InputStream;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 两个H2内存库分别充当主库与副本，日历表中同一天的IsTradingDay不同，以此判断查询落在哪个库
+ */
+class ReadReplicaRoutingTest {
+    private static final String DAY = "20240102";
+    private static final int ON_PRIMARY = 1;
+    private static final int ON_REPLICA = 0;
+
+    private final AtomicBoolean replicaDown = new AtomicBoolean();
+    private final AtomicLong now = new AtomicLong();
+    private DataSource routing;
+    private ReplicaHealth health;
+    private CalendarMapper calendarMapper;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        DataSource primary = database("primary", ON_PRIMARY);
+        DataSource replica = new DelegatingDataSource(database("replica", ON_REPLICA)) {
+            @Override
+            public Connection getConnection() throws SQLException {
+                if (replicaDown.get()) {
+                    throw new SQLException("replica down", "08001");
+                }
+                return super.getConnection();
+            }
+        };
+        routing = new RoutingDataSource(primary, replica);
+
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        health = new ReplicaHealth(replica, "SELECT 3 AS Seconds_Behind_Source", 10, meterRegistry, now::get);
+        health.check();
+
+        Configuration configuration = new Configuration(
+                new Environment("test", new SpringManagedTransactionFactory(), routing));
+        String resource = "mapper/CalendarMapper.xml";
+        try (InputStream in = Resources.getResourceAsStream(resource)) {
+            new XMLMapperBuilder(in, configuration, resource, configuration.getSqlFragments()).parse();
+        }
+        configuration.addInterceptor(new ReadReplicaInterceptor(
+                health, Set.of(CalendarMapper.class.getName()), meterRegistry));
+        calendarMapper = new SqlSessionTemplate(new SqlSessionFactoryBuilder().build(configuration))
+                .getMapper(CalendarMapper.class);
+    }
+
+    @Test
+    void readOnlyMapperReadsFromReplica() {
+        assertEquals(3, health.getLagSeconds());
+        assertEquals(ON_REPLICA, tradingFlag());
+    }
+
+    @Test
+    void transactionalReadsStayOnPrimary() {
+        TransactionTemplate transaction = new TransactionTemplate(new DataSourceTransactionManager(routing));
+        Integer flag = transaction.execute(status -> tradingFlag());
+        assertEquals(ON_PRIMARY, flag);
+    }
+
+    @Test
+    void readsReturnToPrimaryAfterNavWriteUntilLagWindowPasses() {
+        health.onNavDataChanged(new NavDataChangedEvent(1, "2024-01-02", List.of()));
+        assertEquals(ON_PRIMARY, tradingFlag());
+
+        now.addAndGet(10_000_000_000L);
+        assertEquals(ON_REPLICA, tradingFlag());
+    }
+
+    @Test
+    void unreachableReplicaFallsBackToPrimary() {
+        replicaDown.set(true);
+        assertEquals(ON_PRIMARY, tradingFlag());
+        assertFalse(health.isAvailable());
+
+        health.check();
+        assertFalse(health.isAvailable());
+        replicaDown.set(false);
+        health.check();
+        assertTrue(health.isAvailable());
+        assertEquals(ON_REPLICA, tradingFlag());
+    }
+
+    private int tradingFlag() {
+        return calendarMapper.findByDay(DAY).getIsTradingDay();
+    }
+
+    private static DataSource database(String name, int tradingFlag) throws SQLException {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + name + System.nanoTime() + ";MODE=MySQL;NON_KEYWORDS=DAY;DB_CLOSE_DELAY=-1");
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE calendar (Day VARCHAR(8) PRIMARY KEY, IsTradingDay INT)");
+            statement.execute("INSERT INTO calendar VALUES ('" + DAY + "', " + tradingFlag + ")");
+        }
+        return dataSource;
+    }
+}
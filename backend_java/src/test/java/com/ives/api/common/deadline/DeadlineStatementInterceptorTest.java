@@ -0,0 +1,78 @@
+package com.ives.api.common.deadline;
+
+import org.apache.ibatis.executor.statement.StatementHandler;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class DeadlineStatementInterceptorTest {
+    private final StatementHandler target = mock(StatementHandler.class);
+    private final Statement statement = mock(Statement.class);
+    private final StatementHandler handler =
+            (StatementHandler) new DeadlineStatementInterceptor().plugin(target);
+
+    @AfterEach
+    void tearDown() {
+        RequestDeadline.clear();
+    }
+
+    @Test
+    void remainingBudgetBecomesQueryTimeout() throws Exception {
+        when(target.prepare(any(), any())).thenReturn(statement);
+        RequestDeadline.start(2500);
+
+        handler.prepare(mock(Connection.class), null);
+
+        verify(statement).setQueryTimeout(3);
+    }
+
+    @Test
+    void noDeadlineLeavesStatementUntouched() throws Exception {
+        when(target.prepare(any(), any())).thenReturn(statement);
+
+        handler.prepare(mock(Connection.class), null);
+
+        verify(statement, never()).setQueryTimeout(anyInt());
+    }
+
+    @Test
+    void expiredDeadlineSkipsTheQuery() throws Exception {
+        RequestDeadline.start(0);
+
+        assertThrows(DeadlineExceededException.class, () -> handler.prepare(mock(Connection.class), null));
+        verify(target, never()).prepare(any(), any());
+    }
+
+    @Test
+    void wrappedTaskSeesSubmittingThreadsDeadline() throws Exception {
+        RequestDeadline.start(60_000);
+        AtomicLong remaining = new AtomicLong();
+        Thread worker = new Thread(RequestDeadline.wrap(() -> remaining.set(RequestDeadline.remainingMillis())));
+        worker.start();
+        worker.join();
+
+        assertTrue(remaining.get() > 0 && remaining.get() <= 60_000);
+        assertEquals(Long.MAX_VALUE, remainingInFreshThread());
+    }
+
+    private static long remainingInFreshThread() throws InterruptedException {
+        AtomicLong remaining = new AtomicLong();
+        Thread worker = new Thread(() -> remaining.set(RequestDeadline.remainingMillis()));
+        worker.start();
+        worker.join();
+        return remaining.get();
+    }
+}
@@ -0,0 +1,63 @@
+package com.ives.api.common.job;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SpillingLineBufferTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void pagesAcrossSpillToDisk() throws IOException {
+        SpillingLineBuffer buffer = new SpillingLineBuffer(dir, 20, 1000);
+        for (int i = 0; i < 10; i++) {
+            buffer.append(("line-" + i).getBytes(StandardCharsets.UTF_8));
+            assertEquals(i >= 2, buffer.spilled());
+        }
+        assertEquals(10, buffer.lines());
+        assertEquals(70, buffer.bytes());
+        assertEquals(List.of("line-0", "line-1"), text(buffer.read(0, 2)));
+        assertEquals(List.of("line-8", "line-9"), text(buffer.read(8, 100)));
+        assertTrue(buffer.read(10, 5).isEmpty());
+
+        buffer.close();
+        try (Stream<Path> files = Files.list(dir)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    @Test
+    void rejectsLinesBeyondLimit() throws IOException {
+        SpillingLineBuffer buffer = new SpillingLineBuffer(dir, 1024, 10);
+        buffer.append("12345".getBytes(StandardCharsets.UTF_8));
+        assertThrows(IllegalStateException.class, () -> buffer.append("12345".getBytes(StandardCharsets.UTF_8)));
+        assertEquals(1, buffer.lines());
+        assertFalse(buffer.spilled());
+    }
+
+    @Test
+    void readsFailAfterClose() throws IOException {
+        SpillingLineBuffer buffer = new SpillingLineBuffer(dir, 1024, 100);
+        buffer.append("12345".getBytes(StandardCharsets.UTF_8));
+        buffer.close();
+        // 已删除的结果不能读成空页，否则下载会被当作正常结束
+        assertThrows(IllegalStateException.class, () -> buffer.read(0, 10));
+    }
+
+    private static List<String> text(List<byte[]> lines) {
+        return lines.stream().map(line -> new String(line, StandardCharsets.UTF_8)).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,45 @@
+package com.ives.api.common.ratelimit;
+
+import com.ives.api.market.EtfMetadataRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+class UserRateLimiterTest {
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final UserRateLimiter limiter = new UserRateLimiter(
+            mock(EtfMetadataRegistry.class), new SimpleMeterRegistry(), true, 100, 1000);
+
+    @Test
+    void burstIsSpentByCostAndRefillsOverTime() {
+        long now = 0;
+        assertEquals(0, limiter.tryAcquire(1, 600, now));
+        assertEquals(0, limiter.tryAcquire(1, 400, now));
+
+        long retryAfter = limiter.tryAcquire(1, 150, now);
+        assertEquals(SECOND * 3 / 2, retryAfter, "150个单位按每秒100个恢复需1.5秒");
+        assertEquals(0, limiter.tryAcquire(2, 1000, now), "用户之间互不影响");
+
+        assertEquals(0, limiter.tryAcquire(1, 150, now + retryAfter));
+    }
+
+    @Test
+    void oversizedRequestIsCappedAtBurst() {
+        assertEquals(0, limiter.tryAcquire(1, 50_000, 0));
+        assertTrue(limiter.tryAcquire(1, 1, 0) > 0);
+        assertEquals(0, limiter.tryAcquire(1, 50_000, 10 * SECOND));
+    }
+
+    @Test
+    void costGrowsWithSectorsDaysAndDetails() {
+        assertEquals(30, UserRateLimiter.cost(3, 10, false));
+        assertEquals(30 * UserRateLimiter.DETAILS_FACTOR, UserRateLimiter.cost(3, 10, true));
+        assertEquals(1, UserRateLimiter.cost(0, 0, null));
+    }
+}
@@ -0,0 +1,49 @@
+package com.ives.api.common.resilience;
+
+import com.ives.api.common.deadline.DeadlineExceededException;
+import org.apache.ibatis.exceptions.PersistenceException;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.plugin.Invocation;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLTimeoutException;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CircuitBreakerInterceptorTest {
+    private final DbCircuitBreaker breaker = mock(DbCircuitBreaker.class);
+    private final CircuitBreakerInterceptor interceptor = new CircuitBreakerInterceptor(breaker);
+
+    CircuitBreakerInterceptorTest() {
+        when(breaker.tryAcquire()).thenReturn(true);
+    }
+
+    @Test
+    void deadlineThrownThroughReflectionIsIgnored() throws Exception {
+        assertThrows(DeadlineExceededException.class,
+                () -> interceptor.intercept(invocation(new DeadlineExceededException())));
+        verify(breaker).onIgnored();
+        verify(breaker, never()).onFailure();
+        verify(breaker, never()).onSuccess();
+    }
+
+    @Test
+    void timeoutThrownThroughReflectionCountsAsFailure() throws Exception {
+        assertThrows(PersistenceException.class,
+                () -> interceptor.intercept(invocation(new PersistenceException(new SQLTimeoutException("timeout")))));
+        verify(breaker).onFailure();
+    }
+
+    private static Invocation invocation(RuntimeException error) throws Exception {
+        Executor executor = mock(Executor.class);
+        when(executor.update(any(), any())).thenThrow(error);
+        return new Invocation(executor, Executor.class.getMethod("update", MappedStatement.class, Object.class),
+                new Object[]{mock(MappedStatement.class), null});
+    }
+}
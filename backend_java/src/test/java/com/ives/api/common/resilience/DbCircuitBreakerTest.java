@@ -0,0 +1,57 @@
+package com.ives.api.common.resilience;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.QueryTimeoutException;
+
+import java.sql.SQLSyntaxErrorException;
+import java.sql.SQLTimeoutException;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DbCircuitBreakerTest {
+    private final AtomicLong now = new AtomicLong();
+    private final DbCircuitBreaker breaker =
+            new DbCircuitBreaker(new SimpleMeterRegistry(), 3, 1000, now::get);
+
+    @Test
+    void opensAfterConsecutiveFailuresAndProbesAfterCooldown() {
+        breaker.onFailure();
+        breaker.onFailure();
+        breaker.onSuccess();
+        breaker.onFailure();
+        breaker.onFailure();
+        assertEquals(DbCircuitBreaker.State.CLOSED, breaker.getState());
+
+        breaker.onFailure();
+        assertEquals(DbCircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquire());
+
+        now.addAndGet(1_000_000_000L);
+        assertTrue(breaker.tryAcquire());
+        // 半开时只放行一个探测查询
+        assertFalse(breaker.tryAcquire());
+
+        breaker.onFailure();
+        assertEquals(DbCircuitBreaker.State.OPEN, breaker.getState());
+        now.addAndGet(1_000_000_000L);
+        assertTrue(breaker.tryAcquire());
+        breaker.onSuccess();
+        assertEquals(DbCircuitBreaker.State.CLOSED, breaker.getState());
+        assertTrue(breaker.tryAcquire());
+    }
+
+    @Test
+    void onlyTimeoutsAndConnectionFailuresCount() {
+        assertTrue(DbCircuitBreaker.isUnavailable(
+                new QueryTimeoutException("timeout", new SQLTimeoutException("cancelled"))));
+        assertTrue(DbCircuitBreaker.isUnavailable(
+                new RuntimeException(new SQLTransientConnectionException("pool exhausted"))));
+        assertFalse(DbCircuitBreaker.isUnavailable(new RuntimeException(new SQLSyntaxErrorException("bad sql"))));
+        assertFalse(DbCircuitBreaker.isUnavailable(new IllegalArgumentException("n")));
+    }
+}
@@ -0,0 +1,92 @@
+package com.ives.api.common.resilience;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.dao.QueryTimeoutException;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ResultCacheTest {
+    private final DbCircuitBreaker breaker = mock(DbCircuitBreaker.class);
+    private final AtomicInteger loads = new AtomicInteger();
+    // 后台刷新在调用线程同步执行，便于断言
+    private final ResultCache cache = new ResultCache(breaker, new TaskExecutorAdapter(Runnable::run),
+            new SimpleMeterRegistry(), 16, 150, 100, 1000);
+
+    @Test
+    void boundsCachedResultsByEstimatedSize() {
+        // 单条估算超过100字节的结果不保留，数据库失败时没有旧结果可返回
+        cache.get("large", () -> "x".repeat(100));
+        assertThrows(QueryTimeoutException.class, () -> cache.get("large", ResultCacheTest::timeout));
+
+        // 每条约60字节，总量超过150字节时淘汰最久未用的键
+        String medium = "y".repeat(40);
+        cache.get("a", () -> medium + "a");
+        cache.get("b", () -> medium + "b");
+        cache.get("c", () -> medium + "c");
+        assertThrows(QueryTimeoutException.class, () -> cache.get("a", ResultCacheTest::timeout));
+        assertEquals(medium + "b", cache.get("b", ResultCacheTest::timeout).getValue());
+        assertEquals(medium + "c", cache.get("c", ResultCacheTest::timeout).getValue());
+    }
+
+    @Test
+    void recomputesEveryRequestWhileDatabaseIsHealthy() {
+        assertEquals("v1", cache.get("k", () -> "v" + loads.incrementAndGet()).getValue());
+        CachedResult<String> second = cache.get("k", () -> "v" + loads.incrementAndGet());
+        assertFalse(second.isStale());
+        assertEquals("v2", second.getValue());
+    }
+
+    @Test
+    void servesStaleResultWhenDatabaseFailsAndRefreshesInBackground() {
+        cache.get("k", () -> "old");
+
+        AtomicInteger attempts = new AtomicInteger();
+        CachedResult<String> result = cache.get("k", () -> {
+            if (attempts.incrementAndGet() == 1) {
+                throw new QueryTimeoutException("timeout");
+            }
+            return "new";
+        });
+        assertTrue(result.isStale());
+        assertEquals("old", result.getValue());
+
+        // 后台刷新已保存新结果，再次失败时返回它
+        CachedResult<String> refreshed = cache.get("k", ResultCacheTest::timeout);
+        assertTrue(refreshed.isStale());
+        assertEquals("new", refreshed.getValue());
+    }
+
+    @Test
+    void openBreakerServesStaleWithoutWaitingForTheDatabase() {
+        cache.get("k", () -> "old");
+        when(breaker.isOpen()).thenReturn(true);
+
+        CachedResult<String> result = cache.get("k", () -> {
+            throw new DbUnavailableException();
+        });
+        assertTrue(result.isStale());
+        assertEquals("old", result.getValue());
+    }
+
+    @Test
+    void nonDatabaseErrorsAndColdKeysStillFail() {
+        assertThrows(QueryTimeoutException.class, () -> cache.get("cold", ResultCacheTest::timeout));
+        cache.get("k", () -> "old");
+        assertThrows(IllegalArgumentException.class, () -> cache.get("k", () -> {
+            throw new IllegalArgumentException("bad request");
+        }));
+    }
+
+    private static String timeout() {
+        throw new QueryTimeoutException("timeout");
+    }
+}
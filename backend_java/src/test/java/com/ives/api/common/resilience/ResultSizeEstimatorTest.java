@@ -0,0 +1,32 @@
+package com.ives.api.common.resilience;
+
+import com.ives.api.model.dto.SectorInfo;
+import com.ives.api.model.dto.SectorListResponse;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ResultSizeEstimatorTest {
+
+    @Test
+    void growsWithItemCountAndStopsPastTheLimit() {
+        long small = ResultSizeEstimator.estimate(response(10), Long.MAX_VALUE);
+        long large = ResultSizeEstimator.estimate(response(1000), Long.MAX_VALUE);
+        assertTrue(large > small * 50);
+
+        // 超过上限后停止遍历，返回值只略大于上限
+        long bounded = ResultSizeEstimator.estimate(response(100_000), 10_000);
+        assertTrue(bounded > 10_000 && bounded < 11_000);
+    }
+
+    private static SectorListResponse response(int count) {
+        List<SectorInfo> sectors = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            sectors.add(new SectorInfo(i, "类别" + i, "说明", i, 10));
+        }
+        return new SectorListResponse(count, sectors);
+    }
+}
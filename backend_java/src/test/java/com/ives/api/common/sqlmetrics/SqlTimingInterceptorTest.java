@@ -0,0 +1,72 @@
+package com.ives.api.common.sqlmetrics;
+
+import com.ives.api.mapper.EtfNetassetMapper;
+import com.ives.api.model.entity.EtfNetasset;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.ibatis.builder.xml.XMLMapperBuilder;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.Test;
+
+import java.io.InputStream;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SqlTimingInterceptorTest {
+
+    @Test
+    void recordsLatencyRowsAndInListSize() throws Exception {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:timing" + System.nanoTime() + ";MODE=MySQL;NON_KEYWORDS=DAY,TIME;DB_CLOSE_DELAY=-1");
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE etf_netasset (ths_code VARCHAR(32), time DATE, net_asset_value DECIMAL(20,6),"
+                    + " adjusted_nav DECIMAL(20,6), accumulated_nav DECIMAL(20,6), premium DECIMAL(20,6),"
+                    + " premium_ratio DECIMAL(20,6))");
+            statement.execute("INSERT INTO etf_netasset (ths_code, time, adjusted_nav) VALUES"
+                    + " ('A', '2024-01-02', 1.0), ('B', '2024-01-02', 1.1), ('A', '2024-01-03', 1.2)");
+        }
+
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        Configuration configuration = new Configuration(
+                new Environment("test", new JdbcTransactionFactory(), dataSource));
+        configuration.setMapUnderscoreToCamelCase(true);
+        String resource = "mapper/EtfNetassetMapper.xml";
+        try (InputStream in = Resources.getResourceAsStream(resource)) {
+            new XMLMapperBuilder(in, configuration, resource, configuration.getSqlFragments()).parse();
+        }
+        // 阈值为0：每条语句都按慢查询记录日志
+        configuration.addInterceptor(new SqlTimingInterceptor(meterRegistry, 0, 1.0));
+
+        List<String> codes = List.of("A", "B", "C", "D");
+        try (SqlSession session = new SqlSessionFactoryBuilder().build(configuration).openSession(true)) {
+            EtfNetassetMapper mapper = session.getMapper(EtfNetassetMapper.class);
+            assertEquals(3, mapper.findByCodesAndDates(codes, List.of("2024-01-02", "2024-01-03")).size());
+
+            List<EtfNetasset> streamed = new ArrayList<>();
+            mapper.scanAdjustedNavByCodes(codes, "2024-01-02", "2024-01-03",
+                    context -> streamed.add(context.getResultObject()));
+            assertEquals(3, streamed.size());
+        }
+
+        Timer timer = meterRegistry.get("mybatis.statement")
+                .tags("statement", "EtfNetassetMapper.findByCodesAndDates", "outcome", "success").timer();
+        assertEquals(1, timer.count());
+        DistributionSummary params = meterRegistry.get("mybatis.statement.params")
+                .tag("statement", "EtfNetassetMapper.findByCodesAndDates").summary();
+        assertEquals(4, params.max());
+        DistributionSummary scannedRows = meterRegistry.get("mybatis.statement.rows")
+                .tag("statement", "EtfNetassetMapper.scanAdjustedNavByCodes").summary();
+        assertEquals(3, scannedRows.totalAmount());
+    }
+}
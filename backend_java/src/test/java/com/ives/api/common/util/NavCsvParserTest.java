@@ -0,0 +1,75 @@
+package com.ives.api.common.util;
+
+import com.ives.api.model.entity.EtfNetasset;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class NavCsvParserTest {
+
+    @Test
+    void parsesHeaderWithBomCaseAndOptionalColumns() throws IOException {
+        List<EtfNetasset> rows = parse("﻿ THS_CODE ,Adjusted_NAV,time,premium\n"
+                + "510300.SH,4.123456,2024-01-02,\n"
+                + "\n"
+                + " 159915.SZ ,2.5,,0.01\n");
+
+        assertEquals(2, rows.size());
+        assertEquals("510300.SH", rows.get(0).getThsCode());
+        assertEquals(new BigDecimal("4.123456"), rows.get(0).getAdjustedNav());
+        assertEquals("2024-01-02", rows.get(0).getTime());
+        assertNull(rows.get(0).getPremium());
+        assertNull(rows.get(0).getNetAssetValue());
+        assertEquals("159915.SZ", rows.get(1).getThsCode());
+        assertNull(rows.get(1).getTime());
+        assertEquals(new BigDecimal("0.01"), rows.get(1).getPremium());
+    }
+
+    @Test
+    void parsesQuotedFieldsContainingCommasQuotesAndNewlines() throws IOException {
+        List<EtfNetasset> rows = parse("name,ths_code,adjusted_nav,net_asset_value\n"
+                + "\"沪深300ETF,华泰柏瑞\",510300.SH,\"4.5\",\"1,234.5\"\n"
+                + "\"说明\"\"含引号\"\"\n第二行\",159915.SZ,2.5,\n");
+
+        assertEquals(2, rows.size());
+        assertEquals("510300.SH", rows.get(0).getThsCode());
+        assertEquals(new BigDecimal("4.5"), rows.get(0).getAdjustedNav());
+        assertEquals(new BigDecimal("1234.5"), rows.get(0).getNetAssetValue());
+        assertEquals("159915.SZ", rows.get(1).getThsCode());
+        assertEquals(new BigDecimal("2.5"), rows.get(1).getAdjustedNav());
+    }
+
+    @Test
+    void rejectsUnterminatedQuote() {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> parse("ths_code,adjusted_nav\n510300.SH,1.0\n\"159915.SZ,2.5\n"));
+        assertTrue(e.getMessage().contains("第3行"));
+    }
+
+    @Test
+    void rejectsEmptyContentAndMissingRequiredColumns() {
+        assertThrows(IllegalArgumentException.class, () -> parse(""));
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> parse("ths_code,time\n510300.SH,2024-01-02\n"));
+        assertTrue(e.getMessage().contains("adjusted_nav"));
+    }
+
+    @Test
+    void reportsLineOfBadNumber() {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> parse("ths_code,adjusted_nav\n510300.SH,1.0\n159915.SZ,abc\n"));
+        assertTrue(e.getMessage().contains("第3行"));
+    }
+
+    private static List<EtfNetasset> parse(String csv) throws IOException {
+        return NavCsvParser.parse(new StringReader(csv));
+    }
+}
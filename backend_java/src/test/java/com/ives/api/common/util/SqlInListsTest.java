@@ -0,0 +1,71 @@
+package com.ives.api.common.util;
+
+import org.apache.ibatis.builder.xml.XMLMapperBuilder;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.session.Configuration;
+import org.junit.jupiter.api.Test;
+
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SqlInListsTest {
+
+    @Test
+    void padsToNextPowerOfTwoWithLastValue() {
+        assertEquals(List.of(), SqlInLists.pad(List.of()));
+        assertEquals(List.of("a"), SqlInLists.pad(List.of("a")));
+        assertEquals(List.of("a", "b", "c", "c"), SqlInLists.pad(List.of("a", "b", "c")));
+        assertEquals(256, SqlInLists.pad(codes(200)).size());
+        assertEquals(256, SqlInLists.pad(codes(256)).size());
+    }
+
+    /**
+     * 模拟批量接口的查询组合（类别ETF数1~200、交易日数2~60），统计findByCodesAndDates生成的不同SQL数：
+     * 不补齐时几乎每个请求都是新语句，补齐后收敛到预编译缓存（250条）以内
+     */
+    @Test
+    void paddingBoundsDistinctStatementShapes() throws Exception {
+        Configuration configuration = new Configuration();
+        String resource = "mapper/EtfNetassetMapper.xml";
+        try (InputStream in = Resources.getResourceAsStream(resource)) {
+            new XMLMapperBuilder(in, configuration, resource, configuration.getSqlFragments()).parse();
+        }
+        MappedStatement statement = configuration.getMappedStatement(
+                "com.ives.api.mapper.EtfNetassetMapper.findByCodesAndDates");
+
+        Random random = new Random(7);
+        Set<String> raw = new HashSet<>();
+        Set<String> padded = new HashSet<>();
+        for (int i = 0; i < 2000; i++) {
+            List<String> codes = codes(1 + random.nextInt(200));
+            List<String> dates = codes(2 + random.nextInt(59));
+            raw.add(sql(statement, codes, dates));
+            padded.add(sql(statement, SqlInLists.pad(codes), SqlInLists.pad(dates)));
+        }
+
+        assertTrue(raw.size() > 1500, "未补齐的SQL形态数: " + raw.size());
+        assertTrue(padded.size() <= 9 * 6, "补齐后的SQL形态数: " + padded.size());
+    }
+
+    private static String sql(MappedStatement statement, List<String> codes, List<String> dates) {
+        Map<String, Object> params = new HashMap<>();
+        params.put("thsCodes", codes);
+        params.put("dates", dates);
+        return statement.getBoundSql(params).getSql();
+    }
+
+    private static List<String> codes(int count) {
+        return IntStream.range(0, count).mapToObj(i -> "c" + i).collect(Collectors.toList());
+    }
+}
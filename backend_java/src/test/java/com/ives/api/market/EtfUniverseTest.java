@@ -0,0 +1,48 @@
+package com.ives.api.market;
+
+import com.ives.api.model.entity.EtfInfo;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.BitSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class EtfUniverseTest {
+    private static final EtfUniverse UNIVERSE = new EtfUniverse(List.of(
+            etf("A", null, null),
+            etf("B", LocalDate.of(2020, 1, 1), LocalDate.of(2021, 6, 30)),
+            etf("C", LocalDate.of(2022, 3, 1), null),
+            etf("D", null, LocalDate.of(2019, 12, 31)),
+            etf("E", LocalDate.of(2021, 6, 30), LocalDate.of(2021, 6, 30))
+    ));
+
+    @Test
+    void listedBetweenKeepsOverlappingIntervals() {
+        assertEquals(List.of("A", "B", "E"), codes(20210101, 20211231));
+        assertEquals(List.of("A", "B", "C", "E"), codes(20200101, 20220301));
+        assertEquals(List.of("A", "D"), codes(20190101, 20191231));
+        assertEquals(List.of("A", "C"), codes(20210701, 20230101));
+    }
+
+    @Test
+    void listedBetweenTreatsBoundaryDaysAsInclusive() {
+        assertEquals(List.of("A", "B", "E"), codes(20210630, 20210630));
+        assertEquals(List.of("A", "B", "D"), codes(20191231, 20200101));
+    }
+
+    private static List<String> codes(int fromDay, int toDay) {
+        BitSet listed = UNIVERSE.listedBetween(fromDay, toDay);
+        return UNIVERSE.codesOf(listed);
+    }
+
+    private static EtfInfo etf(String code, LocalDate startDay, LocalDate endDay) {
+        EtfInfo info = new EtfInfo();
+        info.setThsCode(code);
+        info.setSector("s");
+        info.setStartDay(startDay);
+        info.setEndDay(endDay);
+        return info;
+    }
+}
@@ -0,0 +1,191 @@
+package com.ives.api.market;
+
+import com.ives.api.mapper.CalendarMapper;
+import com.ives.api.mapper.EtfNetassetMapper;
+import com.ives.api.model.entity.Calendar;
+import com.ives.api.model.entity.EtfInfo;
+import com.ives.api.model.entity.EtfNetasset;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class MarketDataStoreTest {
+    private static final int ETF_COUNT = 64;
+    private static final int SEED_DAYS = 300;
+    private static final int APPENDED_DAYS = 400;
+    private static final int READERS = 8;
+    private static final LocalDate FIRST_DAY = LocalDate.of(2020, 1, 1);
+    private static final DateTimeFormatter COMPACT = DateTimeFormatter.ofPattern("yyyyMMdd");
+
+    @Test
+    void readersNeverSeeHalfAppliedDay() throws Exception {
+        MarketDataStore store = new MarketDataStore(mock(EtfMetadataRegistry.class), everyDayCalendar(),
+                mock(EtfNetassetMapper.class), new DataVersion());
+        store.publish(seedSnapshot());
+        MarketSnapshot pinnedBeforeWrites = store.current();
+
+        AtomicBoolean writing = new AtomicBoolean(true);
+        CountDownLatch ready = new CountDownLatch(READERS);
+        ExecutorService readers = Executors.newFixedThreadPool(READERS);
+        List<Future<Long>> results = new ArrayList<>();
+        for (int r = 0; r < READERS; r++) {
+            results.add(readers.submit(() -> {
+                ready.countDown();
+                long reads = 0;
+                long lastVersion = -1;
+                int lastSize = 0;
+                while (writing.get() || reads == 0) {
+                    MarketSnapshot snapshot = store.current();
+                    TradingCalendar calendar = snapshot.getCalendar();
+                    int lastIndex = calendar.size() - 1;
+                    assertTrue(snapshot.getVersion() >= lastVersion, "快照版本回退");
+                    assertTrue(calendar.size() >= lastSize, "交易日数量回退");
+                    for (int etf = 0; etf < ETF_COUNT; etf++) {
+                        assertEquals(expectedNav(etf, lastIndex), snapshot.nav(etf, lastIndex),
+                                "读到未写完整的交易日: " + calendar.dateAt(lastIndex));
+                    }
+                    lastVersion = snapshot.getVersion();
+                    lastSize = calendar.size();
+                    reads++;
+                }
+                return reads;
+            }));
+        }
+
+        ready.await();
+        for (int d = SEED_DAYS; d < SEED_DAYS + APPENDED_DAYS; d++) {
+            List<EtfNetasset> rows = new ArrayList<>(ETF_COUNT);
+            for (int etf = 0; etf < ETF_COUNT; etf++) {
+                EtfNetasset row = new EtfNetasset();
+                row.setThsCode(code(etf));
+                row.setAdjustedNav(BigDecimal.valueOf(expectedNav(etf, d)));
+                rows.add(row);
+            }
+            store.applyBatch(d, FIRST_DAY.plusDays(d).toString(), rows);
+        }
+        writing.set(false);
+
+        long totalReads = 0;
+        for (Future<Long> result : results) {
+            totalReads += result.get(30, TimeUnit.SECONDS);
+        }
+        readers.shutdown();
+        assertTrue(totalReads >= READERS);
+
+        MarketSnapshot latest = store.current();
+        assertEquals(SEED_DAYS + APPENDED_DAYS, latest.getCalendar().size());
+        assertEquals(SEED_DAYS, pinnedBeforeWrites.getCalendar().size(), "已发布的快照被修改");
+        assertTrue(Double.isNaN(pinnedBeforeWrites.nav(0, SEED_DAYS)), "已发布的快照被修改");
+    }
+
+    @Test
+    void appendsSkippedTradingDaysAndIgnoresNonTradingDays() {
+        CalendarMapper calendarMapper = mock(CalendarMapper.class);
+        // 种子末日之后：+1、+2为交易日，+3为周末，+4为交易日
+        int lastSeedIndex = SEED_DAYS - 1;
+        when(calendarMapper.findTradingDaysBetween(anyString(), anyString())).thenAnswer(invocation -> {
+            String endDay = invocation.getArgument(1);
+            List<Calendar> days = new ArrayList<>();
+            for (int offset : new int[]{1, 2, 4}) {
+                String day = compact(lastSeedIndex + offset);
+                if (day.compareTo(endDay) <= 0) {
+                    days.add(calendar(day));
+                }
+            }
+            return days;
+        });
+        MarketDataStore store = new MarketDataStore(mock(EtfMetadataRegistry.class), calendarMapper,
+                mock(EtfNetassetMapper.class), new DataVersion());
+        store.publish(seedSnapshot());
+
+        store.applyBatch(1, FIRST_DAY.plusDays(lastSeedIndex + 3).toString(), rows(lastSeedIndex + 3));
+        assertEquals(SEED_DAYS, store.current().getCalendar().size());
+
+        // 先写+2：+1作为缺净值的交易日一并追加，之后补写+1时填入
+        store.applyBatch(2, FIRST_DAY.plusDays(lastSeedIndex + 2).toString(), rows(SEED_DAYS + 1));
+        assertEquals(SEED_DAYS + 2, store.current().getCalendar().size());
+        assertTrue(Double.isNaN(store.current().nav(0, SEED_DAYS)));
+        store.applyBatch(3, FIRST_DAY.plusDays(lastSeedIndex + 1).toString(), rows(SEED_DAYS));
+        assertEquals(expectedNav(0, SEED_DAYS), store.current().nav(0, SEED_DAYS));
+        assertEquals(expectedNav(0, SEED_DAYS + 1), store.current().nav(0, SEED_DAYS + 1));
+    }
+
+    private static CalendarMapper everyDayCalendar() {
+        CalendarMapper calendarMapper = mock(CalendarMapper.class);
+        when(calendarMapper.findTradingDaysBetween(anyString(), anyString())).thenAnswer(invocation -> {
+            LocalDate day = LocalDate.parse(invocation.getArgument(0), COMPACT);
+            LocalDate end = LocalDate.parse(invocation.getArgument(1), COMPACT);
+            List<Calendar> days = new ArrayList<>();
+            for (; !day.isAfter(end); day = day.plusDays(1)) {
+                days.add(calendar(day.format(COMPACT)));
+            }
+            return days;
+        });
+        return calendarMapper;
+    }
+
+    private static List<EtfNetasset> rows(int dayIndex) {
+        List<EtfNetasset> rows = new ArrayList<>(ETF_COUNT);
+        for (int etf = 0; etf < ETF_COUNT; etf++) {
+            EtfNetasset row = new EtfNetasset();
+            row.setThsCode(code(etf));
+            row.setAdjustedNav(BigDecimal.valueOf(expectedNav(etf, dayIndex)));
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    private static String compact(int dayOffset) {
+        return FIRST_DAY.plusDays(dayOffset).format(COMPACT);
+    }
+
+    private static Calendar calendar(String day) {
+        Calendar calendar = new Calendar();
+        calendar.setDay(day);
+        calendar.setIsTradingDay(1);
+        return calendar;
+    }
+
+    private static MarketSnapshot seedSnapshot() {
+        List<EtfInfo> etfs = new ArrayList<>();
+        for (int etf = 0; etf < ETF_COUNT; etf++) {
+            EtfInfo info = new EtfInfo();
+            info.setThsCode(code(etf));
+            info.setSector(etf % 2 == 0 ? "even" : "odd");
+            etfs.add(info);
+        }
+        int[] days = new int[SEED_DAYS];
+        double[][] navs = new double[ETF_COUNT][SEED_DAYS];
+        for (int d = 0; d < SEED_DAYS; d++) {
+            days[d] = TradingCalendar.toDayInt(FIRST_DAY.plusDays(d).toString());
+            for (int etf = 0; etf < ETF_COUNT; etf++) {
+                navs[etf][d] = expectedNav(etf, d);
+            }
+        }
+        return MarketSnapshot.build(0L, TradingCalendar.of(days), new EtfUniverse(etfs), navs);
+    }
+
+    private static String code(int etf) {
+        return String.format("%06d.SH", etf);
+    }
+
+    private static double expectedNav(int etf, int dayIndex) {
+        return 1 + etf + dayIndex / 1000.0;
+    }
+}
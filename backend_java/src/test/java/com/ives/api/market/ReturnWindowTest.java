@@ -0,0 +1,30 @@
+package com.ives.api.market;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ReturnWindowTest {
+
+    @Test
+    void startTargetsFollowCalendarPeriods() {
+        assertEquals(20240222, ReturnWindow.W1.startTarget(20240229));
+        assertEquals(20240229, ReturnWindow.M1.startTarget(20240331));
+        // 目标月没有对应日期时取月末
+        assertEquals(20240229, ReturnWindow.M3.startTarget(20240531));
+        assertEquals(20231231, ReturnWindow.YTD.startTarget(20240105));
+        assertEquals(20230228, ReturnWindow.Y1.startTarget(20240229));
+    }
+
+    @Test
+    void parseAllNormalizesAndDeduplicates() {
+        assertEquals(List.of(ReturnWindow.YTD, ReturnWindow.W1),
+                ReturnWindow.parseAll(List.of("ytd", " 1w", "YTD")));
+        assertEquals(Arrays.asList(ReturnWindow.values()), ReturnWindow.parseAll(null));
+        assertThrows(IllegalArgumentException.class, () -> ReturnWindow.parseAll(List.of("2W")));
+    }
+}
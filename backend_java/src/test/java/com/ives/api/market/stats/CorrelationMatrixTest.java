@@ -0,0 +1,77 @@
+package com.ives.api.market.stats;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class CorrelationMatrixTest {
+
+    @Test
+    void blockedKernelMatchesPairwisePearson() {
+        // 超过一个行块，覆盖对角块与非对角块
+        int series = 150;
+        int days = 60;
+        Random random = new Random(3);
+        double[] market = new double[days];
+        for (int t = 0; t < days; t++) {
+            market[t] = random.nextGaussian() * 0.01;
+        }
+        double[][] returns = new double[series][days];
+        CorrelationMatrix matrix = new CorrelationMatrix(days);
+        for (int s = 0; s < series; s++) {
+            double beta = random.nextDouble();
+            for (int t = 0; t < days; t++) {
+                returns[s][t] = beta * market[t] + random.nextGaussian() * 0.01;
+            }
+            matrix.add("s" + s, returns[s]);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        double[] packed;
+        try {
+            packed = matrix.lowerTriangle(executor);
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(series * (series - 1) / 2, packed.length);
+        for (int i = 1; i < series; i++) {
+            for (int j = 0; j < i; j++) {
+                assertEquals(pearson(returns[i], returns[j]), packed[CorrelationMatrix.packedIndex(i, j)], 1e-12);
+            }
+        }
+    }
+
+    @Test
+    void flatOrSparseSeriesAreSkipped() {
+        CorrelationMatrix matrix = new CorrelationMatrix(3);
+        assertFalse(matrix.add("flat", new double[]{0.01, 0.01, 0.01}));
+        assertFalse(matrix.add("sparse", new double[]{Double.NaN, 0.02, Double.NaN}));
+        matrix.add("a", new double[]{0.01, Double.NaN, 0.03});
+        assertEquals(1, matrix.size());
+        assertEquals(2, matrix.getObservations().get(0));
+    }
+
+    private static double pearson(double[] x, double[] y) {
+        double mx = 0;
+        double my = 0;
+        for (int t = 0; t < x.length; t++) {
+            mx += x[t] / x.length;
+            my += y[t] / y.length;
+        }
+        double sxy = 0;
+        double sxx = 0;
+        double syy = 0;
+        for (int t = 0; t < x.length; t++) {
+            sxy += (x[t] - mx) * (y[t] - my);
+            sxx += (x[t] - mx) * (x[t] - mx);
+            syy += (y[t] - my) * (y[t] - my);
+        }
+        return sxy / Math.sqrt(sxx * syy);
+    }
+}
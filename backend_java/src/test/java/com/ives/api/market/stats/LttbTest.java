@@ -0,0 +1,38 @@
+package com.ives.api.market.stats;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LttbTest {
+
+    @Test
+    void keepsEndpointsAndSpikes() {
+        double[] values = new double[1000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = Math.sin(i / 50.0) * 0.01;
+        }
+        values[333] = 0.2;
+        values[777] = -0.2;
+
+        int[] picked = Lttb.select(values, 50);
+
+        assertEquals(50, picked.length);
+        assertEquals(0, picked[0]);
+        assertEquals(999, picked[49]);
+        for (int i = 1; i < picked.length; i++) {
+            assertTrue(picked[i] > picked[i - 1]);
+        }
+        assertTrue(Arrays.stream(picked).anyMatch(i -> i == 333));
+        assertTrue(Arrays.stream(picked).anyMatch(i -> i == 777));
+    }
+
+    @Test
+    void shortSeriesIsReturnedWhole() {
+        assertArrayEquals(new int[]{0, 1, 2}, Lttb.select(new double[]{1, 2, 3}, 10));
+    }
+}
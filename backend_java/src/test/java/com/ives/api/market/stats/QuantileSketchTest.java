@@ -0,0 +1,69 @@
+package com.ives.api.market.stats;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class QuantileSketchTest {
+
+    @Test
+    void exactBelowCapacity() {
+        QuantileSketch sketch = new QuantileSketch();
+        for (double v : new double[]{0.03, -0.01, 0.02, Double.NaN, 0.00, -0.02}) {
+            sketch.add(v);
+        }
+        assertEquals(5, sketch.getCount());
+        // 最近秩：5个样本的中位数为第3小
+        assertEquals(0.00, sketch.quantile(0.5));
+        assertEquals(-0.02, sketch.quantile(0.1));
+        assertEquals(0.03, sketch.quantile(0.9));
+    }
+
+    @Test
+    void mergedSketchesMatchSingleSketch() {
+        QuantileSketch left = new QuantileSketch();
+        QuantileSketch right = new QuantileSketch();
+        QuantileSketch all = new QuantileSketch();
+        for (int i = 0; i < 100; i++) {
+            double v = (i * 37 % 100) / 1000.0;
+            (i % 3 == 0 ? left : right).add(v);
+            all.add(v);
+        }
+        left.merge(right);
+        for (double q : new double[]{0.1, 0.5, 0.9}) {
+            assertEquals(all.quantile(q), left.quantile(q));
+        }
+    }
+
+    @Test
+    void staysAccurateAfterCompaction() {
+        Random random = new Random(5);
+        int n = 20000;
+        double[] values = new double[n];
+        QuantileSketch[] parts = new QuantileSketch[8];
+        for (int p = 0; p < parts.length; p++) {
+            parts[p] = new QuantileSketch(128);
+        }
+        for (int i = 0; i < n; i++) {
+            values[i] = random.nextGaussian() * 0.02;
+            parts[i % parts.length].add(values[i]);
+        }
+        QuantileSketch merged = new QuantileSketch(128);
+        for (QuantileSketch part : parts) {
+            merged.merge(part);
+        }
+        Arrays.sort(values);
+
+        assertEquals(n, merged.getCount());
+        for (double q : new double[]{0.1, 0.5, 0.9}) {
+            double estimate = merged.quantile(q);
+            int rank = Arrays.binarySearch(values, estimate);
+            // 排名误差不超过2%
+            assertTrue(Math.abs(rank - q * n) < 0.02 * n, "q=" + q + " rank=" + rank);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.ives.api.market.stats;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RiskAccumulatorTest {
+
+    @Test
+    void matchesTwoPassStatistics() {
+        Random random = new Random(7);
+        double[] returns = new double[500];
+        RiskAccumulator acc = new RiskAccumulator();
+        for (int i = 0; i < returns.length; i++) {
+            // 均值远大于波动时，平方和相减的算法会明显丢失精度
+            returns[i] = 1000 + random.nextGaussian() * 0.01;
+            acc.add(returns[i]);
+        }
+        double mean = 0;
+        for (double r : returns) {
+            mean += r / returns.length;
+        }
+        double squares = 0;
+        for (double r : returns) {
+            squares += (r - mean) * (r - mean);
+        }
+
+        assertEquals(returns.length, acc.getCount());
+        assertEquals(mean, acc.getMean(), 1e-9);
+        assertEquals(squares / (returns.length - 1), acc.getVariance(), 1e-9);
+    }
+
+    @Test
+    void tracksDrawdownFromRunningPeak() {
+        RiskAccumulator acc = new RiskAccumulator();
+        for (double r : new double[]{0.10, -0.20, 0.05, Double.NaN, 0.30, -0.10}) {
+            acc.add(r);
+        }
+        // 净值：1.1 → 0.88 → 0.924 → 1.2012 → 1.08108，最大回撤为1.1到0.88
+        assertEquals(5, acc.getCount());
+        assertEquals(0.2, acc.getMaxDrawdown(), 1e-12);
+        assertEquals(0.08108, acc.getTotalReturn(), 1e-12);
+    }
+
+    @Test
+    void emptyOrSingleObservationHasNoVariance() {
+        RiskAccumulator acc = new RiskAccumulator();
+        assertTrue(Double.isNaN(acc.getMean()));
+        acc.add(0.01);
+        assertTrue(Double.isNaN(acc.getVariance()));
+        assertEquals(0, acc.getMaxDrawdown());
+    }
+}
@@ -0,0 +1,52 @@
+package com.ives.api.market.stats;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TopKSelectorTest {
+
+    @Test
+    void matchesFullSortIncludingTies() {
+        Random random = new Random(11);
+        double[] values = new double[2000];
+        for (int i = 0; i < values.length; i++) {
+            // 只取少量不同的值，制造大量并列
+            values[i] = random.nextInt(50) / 100.0 - 0.25;
+        }
+        values[17] = Double.NaN;
+
+        TopKSelector top = new TopKSelector(25, true);
+        TopKSelector bottom = new TopKSelector(25, false);
+        for (int i = 0; i < values.length; i++) {
+            top.offer(i, values[i]);
+            bottom.offer(i, values[i]);
+        }
+
+        List<Integer> valid = IntStream.range(0, values.length).filter(i -> !Double.isNaN(values[i])).boxed().toList();
+        int[] expectedTop = valid.stream()
+                .sorted(Comparator.<Integer>comparingDouble(i -> -values[i]).thenComparing(i -> i))
+                .limit(25).mapToInt(Integer::intValue).toArray();
+        int[] expectedBottom = valid.stream()
+                .sorted(Comparator.<Integer>comparingDouble(i -> values[i]).thenComparing(i -> i))
+                .limit(25).mapToInt(Integer::intValue).toArray();
+
+        assertArrayEquals(expectedTop, top.sortedIds());
+        assertArrayEquals(expectedBottom, bottom.sortedIds());
+    }
+
+    @Test
+    void returnsEverythingWhenFewerThanK() {
+        TopKSelector top = new TopKSelector(5, true);
+        top.offer(3, 0.1);
+        top.offer(1, 0.3);
+        assertEquals(2, top.size());
+        assertArrayEquals(new int[]{1, 3}, top.sortedIds());
+    }
+}
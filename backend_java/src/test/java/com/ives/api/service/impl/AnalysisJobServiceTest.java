@@ -0,0 +1,158 @@
+package com.ives.api.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ives.api.common.exception.BusinessException;
+import com.ives.api.market.DataVersion;
+import com.ives.api.market.EtfMetadataRegistry;
+import com.ives.api.model.dto.AnalysisJobPage;
+import com.ives.api.model.dto.AnalysisJobRequest;
+import com.ives.api.model.dto.AnalysisJobStatus;
+import com.ives.api.model.dto.DailyReturnRate;
+import com.ives.api.model.dto.SectorHistoryResult;
+import com.ives.api.model.dto.SectorHistoryStreamEvent;
+import com.ives.api.service.EtfReturnRateService;
+import com.ives.api.service.SectorHistoryStream;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AnalysisJobServiceTest {
+    private static final int DAYS = 20;
+
+    @TempDir
+    Path dir;
+
+    private final EtfReturnRateService returnRateService = mock(EtfReturnRateService.class);
+    private final DataVersion dataVersion = new DataVersion();
+
+    @Test
+    void runsJobSpillsResultAndDeduplicates() throws Exception {
+        when(returnRateService.streamSectorsReturnRateHistory(anyString(), eq("2024-02-01"), eq(DAYS), eq(false)))
+                .thenReturn(stream());
+        // 任务在提交线程同步执行，结果超过256字节后转存磁盘
+        AnalysisJobServiceImpl service = service(256);
+
+        AnalysisJobStatus submitted = service.submit(request(List.of("B", "A")));
+        AnalysisJobStatus status = service.getStatus(submitted.getJobId());
+        assertEquals(AnalysisJobStatus.SUCCEEDED, status.getState());
+        assertEquals(DAYS * 2L, status.getProcessedDays());
+        assertEquals(DAYS * 2L, status.getTotalDays());
+        assertEquals(1.0, status.getProgress());
+        assertEquals(2 + DAYS * 2 + 1, status.getResultLines());
+        assertTrue(status.getSpilled());
+
+        AnalysisJobPage page = service.getPage(submitted.getJobId(), 2, 3);
+        assertEquals(3, page.getItems().size());
+        assertEquals(SectorHistoryStreamEvent.DAILY, page.getItems().get(0).getType());
+        assertEquals("2024-01-01", page.getItems().get(0).getDaily().getEndDate());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        service.writeResults(submitted.getJobId(), 0, out);
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(status.getResultLines(), lines.length);
+        assertTrue(lines[lines.length - 1].contains("\"end\""));
+
+        // 类别顺序不同的相同请求复用已有任务
+        AnalysisJobStatus duplicate = service.submit(request(List.of("A", "B")));
+        assertTrue(duplicate.getDeduplicated());
+        assertEquals(submitted.getJobId(), duplicate.getJobId());
+        verify(returnRateService, times(1)).streamSectorsReturnRateHistory("A,B", "2024-02-01", DAYS, false);
+
+        dataVersion.bump();
+        assertFalse(service.submit(request(List.of("A", "B"))).getDeduplicated());
+    }
+
+    @Test
+    void failsJobWhenResultExceedsLimit() {
+        when(returnRateService.streamSectorsReturnRateHistory(anyString(), anyString(), eq(DAYS), eq(false)))
+                .thenReturn(stream());
+        AnalysisJobServiceImpl service = new AnalysisJobServiceImpl(returnRateService,
+                mock(EtfMetadataRegistry.class), dataVersion, new ObjectMapper(), new TaskExecutorAdapter(Runnable::run),
+                new SimpleMeterRegistry(), dir.toString(), 256, 512, 1 << 20, 60_000, 60_000);
+
+        AnalysisJobStatus status = service.getStatus(service.submit(request(List.of("A"))).getJobId());
+        assertEquals(AnalysisJobStatus.FAILED, status.getState());
+        assertTrue(status.getError().contains("上限"));
+        assertThrows(BusinessException.class, () -> service.getStatus("missing"));
+    }
+
+    @Test
+    void runningJobsCountAgainstStoreLimit() {
+        when(returnRateService.streamSectorsReturnRateHistory(anyString(), anyString(), eq(DAYS), eq(false)))
+                .thenReturn(stream());
+        AnalysisJobServiceImpl service = new AnalysisJobServiceImpl(returnRateService,
+                mock(EtfMetadataRegistry.class), dataVersion, new ObjectMapper(), new TaskExecutorAdapter(Runnable::run),
+                new SimpleMeterRegistry(), dir.toString(), 256, 1 << 20, 512, 60_000, 60_000);
+
+        AnalysisJobStatus status = service.getStatus(service.submit(request(List.of("A"))).getJobId());
+        assertEquals(AnalysisJobStatus.FAILED, status.getState());
+        assertTrue(status.getError().contains("存储已满"));
+        assertTrue(status.getResultBytes() <= 512);
+    }
+
+    @Test
+    void keepsJobsWithActiveReadersAndFailsReadsOfEvictedJobs() throws Exception {
+        when(returnRateService.streamSectorsReturnRateHistory(anyString(), anyString(), eq(DAYS), eq(false)))
+                .thenReturn(stream());
+        // 保留期为0：结束后的任务在下次清理时删除
+        AnalysisJobServiceImpl service = new AnalysisJobServiceImpl(returnRateService,
+                mock(EtfMetadataRegistry.class), dataVersion, new ObjectMapper(), new TaskExecutorAdapter(Runnable::run),
+                new SimpleMeterRegistry(), dir.toString(), 256, 1 << 20, 1 << 20, -1, 60_000);
+        String jobId = service.submit(request(List.of("A", "B"))).getJobId();
+
+        // 下载期间的清理不删除该任务
+        ByteArrayOutputStream out = new ByteArrayOutputStream() {
+            @Override
+            public void flush() {
+                service.evictExpired();
+            }
+        };
+        service.writeResults(jobId, 0, out);
+        assertEquals(43, new String(out.toByteArray(), StandardCharsets.UTF_8).split("\n").length);
+
+        service.evictExpired();
+        assertThrows(BusinessException.class, () -> service.getStatus(jobId));
+    }
+
+    private AnalysisJobServiceImpl service(int spillThreshold) {
+        return new AnalysisJobServiceImpl(returnRateService, mock(EtfMetadataRegistry.class), dataVersion,
+                new ObjectMapper(), new TaskExecutorAdapter(Runnable::run), new SimpleMeterRegistry(),
+                dir.toString(), spillThreshold, 1 << 20, 1 << 20, 60_000, 60_000);
+    }
+
+    private static AnalysisJobRequest request(List<String> sectors) {
+        return new AnalysisJobRequest(sectors, "2024-02-01", DAYS, false);
+    }
+
+    private static SectorHistoryStream stream() {
+        return sink -> {
+            sink.accept(SectorHistoryStreamEvent.sector("A", new SectorHistoryResult()));
+            sink.accept(SectorHistoryStreamEvent.sector("B", new SectorHistoryResult()));
+            for (int day = 1; day <= DAYS; day++) {
+                for (String sector : List.of("A", "B")) {
+                    DailyReturnRate daily = new DailyReturnRate();
+                    daily.setEndDate(String.format("2024-01-%02d", day));
+                    sink.accept(SectorHistoryStreamEvent.daily(sector, daily));
+                }
+            }
+            sink.accept(SectorHistoryStreamEvent.end(DAYS));
+        };
+    }
+}
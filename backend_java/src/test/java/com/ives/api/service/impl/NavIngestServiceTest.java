@@ -0,0 +1,95 @@
+package com.ives.api.service.impl;
+
+import com.ives.api.mapper.CalendarMapper;
+import com.ives.api.mapper.EtfNetassetMapper;
+import com.ives.api.market.DataVersion;
+import com.ives.api.market.NavDataChangedEvent;
+import com.ives.api.model.dto.NavIngestResponse;
+import com.ives.api.model.entity.Calendar;
+import com.ives.api.model.entity.EtfNetasset;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class NavIngestServiceTest {
+    private final EtfNetassetMapper netassetMapper = mock(EtfNetassetMapper.class);
+    private final CalendarMapper calendarMapper = mock(CalendarMapper.class);
+    private final TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+    private final ApplicationEventPublisher publisher = mock(ApplicationEventPublisher.class);
+    private final DataVersion dataVersion = new DataVersion();
+    private final NavIngestServiceImpl service;
+
+    @SuppressWarnings("unchecked")
+    NavIngestServiceTest() {
+        when(transactionTemplate.execute(any())).thenAnswer(
+                invocation -> ((TransactionCallback<Integer>) invocation.getArgument(0)).doInTransaction(null));
+        when(netassetMapper.upsertBatch(anyList())).thenAnswer(invocation -> ((List<?>) invocation.getArgument(0)).size());
+        when(calendarMapper.findByDay("20240102")).thenReturn(calendar("20240102", 1));
+        when(calendarMapper.findByDay("20240106")).thenReturn(calendar("20240106", 0));
+        service = new NavIngestServiceImpl(netassetMapper, calendarMapper, transactionTemplate, dataVersion, publisher);
+        ReflectionTestUtils.setField(service, "batchSize", 500);
+    }
+
+    @Test
+    void writesTradingDayAndPublishesEvent() {
+        long before = dataVersion.current();
+        NavIngestResponse response = service.ingest("2024-01-02",
+                List.of(row("A", null, "1.1"), row("B", "2024-01-02", "2.2"), row("A", null, "1.2")));
+
+        assertEquals(2, response.getWritten());
+        assertEquals(dataVersion.current(), response.getDataVersion());
+        assertTrue(response.getDataVersion() > before);
+        verify(publisher).publishEvent(any(NavDataChangedEvent.class));
+    }
+
+    @Test
+    void rejectsRowsFromAnotherDate() {
+        long before = dataVersion.current();
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> service.ingest("2024-01-02",
+                List.of(row("A", null, "1.1"), row("B", "2024-01-03", "2.2"))));
+        assertTrue(e.getMessage().contains("不一致"));
+        verify(netassetMapper, never()).upsertBatch(anyList());
+        assertEquals(before, dataVersion.current());
+    }
+
+    @Test
+    void rejectsNonTradingUnknownAndFutureDates() {
+        List<EtfNetasset> rows = List.of(row("A", null, "1.1"));
+        assertThrows(IllegalArgumentException.class, () -> service.ingest("2024-01-06", rows));
+        assertThrows(IllegalArgumentException.class, () -> service.ingest("2024-01-07", rows));
+        assertThrows(IllegalArgumentException.class,
+                () -> service.ingest(LocalDate.now().plusDays(1).toString(), rows));
+        verify(publisher, never()).publishEvent(any());
+    }
+
+    private static EtfNetasset row(String code, String time, String adjustedNav) {
+        EtfNetasset row = new EtfNetasset();
+        row.setThsCode(code);
+        row.setTime(time);
+        row.setAdjustedNav(new BigDecimal(adjustedNav));
+        return row;
+    }
+
+    private static Calendar calendar(String day, int trading) {
+        Calendar calendar = new Calendar();
+        calendar.setDay(day);
+        calendar.setIsTradingDay(trading);
+        return calendar;
+    }
+}
@@ -0,0 +1,335 @@
+package com.ives.api.service.impl;
+
+import com.ives.api.mapper.CalendarMapper;
+import com.ives.api.mapper.EtfNetassetMapper;
+import com.ives.api.market.DataVersion;
+import com.ives.api.market.EtfMetadata;
+import com.ives.api.market.EtfMetadataRegistry;
+import com.ives.api.market.EtfUniverse;
+import com.ives.api.market.MarketDataStore;
+import com.ives.api.market.MarketSnapshot;
+import com.ives.api.model.dto.DailyReturnRate;
+import com.ives.api.model.dto.EtfReturnDetail;
+import com.ives.api.model.dto.EtfReturnRateRequest;
+import com.ives.api.model.dto.EtfReturnRateResponse;
+import com.ives.api.model.dto.MultiQueryItem;
+import com.ives.api.model.dto.MultiQueryRequest;
+import com.ives.api.model.dto.MultiQueryResponse;
+import com.ives.api.model.dto.MultipleSectorsReturnRateHistoryResponse;
+import com.ives.api.model.dto.ReturnRateResult;
+import com.ives.api.model.dto.SectorReturnRateRequest;
+import com.ives.api.model.dto.SectorsBatchQuery;
+import com.ives.api.model.dto.SectorHistoryStreamEvent;
+import com.ives.api.model.entity.EtfInfo;
+import org.apache.ibatis.builder.xml.XMLMapperBuilder;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 以H2（MySQL模式）代替MySQL，验证流式查询与一次性批量查询的结果一致
+ */
+class SectorHistoryStreamTest {
+    private static final LocalDate FIRST_DAY = LocalDate.of(2024, 1, 1);
+    private static final int CALENDAR_DAYS = 40;
+    private static final String QUERY_DATE = "2024-02-04";
+
+    private SqlSession session;
+    private EtfReturnRateServiceImpl service;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:stream" + System.nanoTime()
+                + ";MODE=MySQL;NON_KEYWORDS=DAY,TIME;DB_CLOSE_DELAY=-1");
+
+        List<EtfInfo> etfs = List.of(
+                etf("A1", "a", null), etf("A2", "a", null), etf("A3", "a", null),
+                etf("B1", "b", null), etf("B2", "b", LocalDate.of(2024, 1, 20)));
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE calendar (Day VARCHAR(8) PRIMARY KEY, IsTradingDay INT)");
+            statement.execute("CREATE TABLE etf_netasset (ths_code VARCHAR(32), time DATE, net_asset_value DECIMAL(20,6),"
+                    + " adjusted_nav DECIMAL(20,6), accumulated_nav DECIMAL(20,6), premium DECIMAL(20,6),"
+                    + " premium_ratio DECIMAL(20,6), PRIMARY KEY (ths_code, time))");
+            seed(connection, etfs);
+        }
+
+        Configuration configuration = new Configuration(
+                new Environment("test", new JdbcTransactionFactory(), dataSource));
+        configuration.setMapUnderscoreToCamelCase(true);
+        for (String resource : List.of("mapper/EtfNetassetMapper.xml", "mapper/CalendarMapper.xml")) {
+            try (InputStream in = Resources.getResourceAsStream(resource)) {
+                new XMLMapperBuilder(in, configuration, resource, configuration.getSqlFragments()).parse();
+            }
+        }
+        SqlSessionFactory factory = new SqlSessionFactoryBuilder().build(configuration);
+        session = factory.openSession(true);
+
+        EtfMetadataRegistry registry = mock(EtfMetadataRegistry.class);
+        when(registry.current()).thenReturn(new EtfMetadata(new EtfUniverse(etfs), Collections.emptyList()));
+        MarketDataStore store = mock(MarketDataStore.class);
+        when(store.current()).thenReturn(MarketSnapshot.EMPTY);
+
+        service = new EtfReturnRateServiceImpl(session.getMapper(EtfNetassetMapper.class),
+                session.getMapper(CalendarMapper.class), registry, store, new SimpleAsyncTaskExecutor(), new DataVersion());
+        ReflectionTestUtils.setField(service, "fetchChunkSize", 200);
+    }
+
+    @AfterEach
+    void tearDown() {
+        session.close();
+    }
+
+    @Test
+    void streamMatchesBatchResult() {
+        MultipleSectorsReturnRateHistoryResponse batch =
+                service.getMultipleSectorsReturnRateHistory("a,b,missing", QUERY_DATE, 12, 1, false, false, null, null, false);
+        Map<String, List<DailyReturnRate>> streamed = streamDaily("a,b,missing", 12, false);
+
+        for (String sector : List.of("a", "b")) {
+            List<DailyReturnRate> expected = new ArrayList<>(
+                    batch.getResults().get(sector).getReturnRateHistory());
+            Collections.reverse(expected);
+            assertEquals(expected, streamed.get(sector), "类别" + sector + "的逐日收益不一致");
+        }
+        assertTrue(batch.getResults().get("missing").getError() != null);
+    }
+
+    @Test
+    void streamDetailsMatchBatchDetails() {
+        MultipleSectorsReturnRateHistoryResponse batch =
+                service.getMultipleSectorsReturnRateHistory("a", QUERY_DATE, 5, 1, true, false, null, null, false);
+        List<DailyReturnRate> expected = new ArrayList<>(batch.getResults().get("a").getReturnRateHistory());
+        Collections.reverse(expected);
+        List<DailyReturnRate> streamed = streamDaily("a", 5, true).get("a");
+
+        assertEquals(expected.size(), streamed.size());
+        for (int i = 0; i < expected.size(); i++) {
+            // 流式按行到达顺序累加明细，比较前按代码排序
+            streamed.get(i).getEtfDetails().sort(Comparator.comparing(EtfReturnDetail::getThsCode));
+            assertEquals(expected.get(i), streamed.get(i));
+        }
+    }
+
+    @Test
+    void failingSinkStopsTheQuery() {
+        List<SectorHistoryStreamEvent> received = new ArrayList<>();
+        RuntimeException aborted = new RuntimeException("client gone");
+
+        assertThrows(RuntimeException.class, () -> service
+                .streamSectorsReturnRateHistory("a,b", QUERY_DATE, 12, false)
+                .forEach(event -> {
+                    received.add(event);
+                    if (SectorHistoryStreamEvent.DAILY.equals(event.getType())) {
+                        throw aborted;
+                    }
+                }));
+        assertEquals(SectorHistoryStreamEvent.DAILY, received.get(received.size() - 1).getType());
+        assertEquals(1, received.stream().filter(e -> SectorHistoryStreamEvent.DAILY.equals(e.getType())).count());
+
+        // 中止后连接仍可用
+        assertEquals(12, streamDaily("a", 12, false).get("a").size());
+    }
+
+    @Test
+    void rollingWindowUsesNavsAtWindowEnds() {
+        int window = 5;
+        List<DailyReturnRate> daily = service.getMultipleSectorsReturnRateHistory(
+                "a", QUERY_DATE, 12 + window - 1, 1, true, false, null, null, false).getResults().get("a").getReturnRateHistory();
+        List<DailyReturnRate> rolling = service.getMultipleSectorsReturnRateHistory(
+                "a", QUERY_DATE, 12, window, true, false, null, null, false).getResults().get("a").getReturnRateHistory();
+
+        // 逐日明细中出现过的(日期, 代码)净值
+        Map<String, BigDecimal> navs = new HashMap<>();
+        for (DailyReturnRate day : daily) {
+            for (EtfReturnDetail detail : day.getEtfDetails()) {
+                navs.put(day.getStartDate() + detail.getThsCode(), detail.getPrevNav());
+                navs.put(day.getEndDate() + detail.getThsCode(), detail.getCurrNav());
+            }
+        }
+
+        assertEquals(12, rolling.size());
+        for (int i = 0; i < rolling.size(); i++) {
+            DailyReturnRate day = rolling.get(i);
+            assertEquals(daily.get(i).getEndDate(), day.getEndDate());
+            assertEquals(daily.get(i + window - 1).getStartDate(), day.getStartDate());
+            for (EtfReturnDetail detail : day.getEtfDetails()) {
+                assertEquals(navs.get(day.getStartDate() + detail.getThsCode()), detail.getPrevNav());
+                assertEquals(navs.get(day.getEndDate() + detail.getThsCode()), detail.getCurrNav());
+            }
+        }
+    }
+
+    @Test
+    void sinceReturnsOnlyNewerDays() {
+        MultipleSectorsReturnRateHistoryResponse full =
+                service.getMultipleSectorsReturnRateHistory("a,b", QUERY_DATE, 10, 1, false, true, null, null, false);
+        List<DailyReturnRate> history = full.getResults().get("a").getReturnRateHistory();
+        String since = history.get(3).getEndDate();
+
+        MultipleSectorsReturnRateHistoryResponse delta =
+                service.getMultipleSectorsReturnRateHistory("a,b", QUERY_DATE, 10, 1, false, true, null, since, false);
+
+        assertEquals(history.subList(0, 3), delta.getResults().get("a").getReturnRateHistory());
+        assertEquals(full.getCombined().subList(0, 3), delta.getCombined());
+        assertEquals(full.getDataVersion(), delta.getDataVersion());
+
+        String latest = history.get(0).getEndDate();
+        assertTrue(service.getMultipleSectorsReturnRateHistory("a", QUERY_DATE, 10, 1, false, false, null, latest, false)
+                .getResults().get("a").getReturnRateHistory().isEmpty());
+    }
+
+    @Test
+    void distributionMatchesDetailsAndMergesAcrossSectors() {
+        MultipleSectorsReturnRateHistoryResponse response =
+                service.getMultipleSectorsReturnRateHistory("a,b", QUERY_DATE, 8, 1, true, true, null, null, false);
+        List<DailyReturnRate> a = response.getResults().get("a").getReturnRateHistory();
+        List<DailyReturnRate> b = response.getResults().get("b").getReturnRateHistory();
+
+        assertEquals(8, response.getCombined().size());
+        for (int d = 0; d < 8; d++) {
+            List<BigDecimal> sectorReturns = returnsOf(a.get(d));
+            assertEquals(sectorReturns.get((sectorReturns.size() - 1) / 2), a.get(d).getMedianReturnRate());
+            assertEquals(sectorReturns.stream().filter(r -> r.signum() > 0).count(), (long) a.get(d).getAdvancers());
+
+            List<BigDecimal> allReturns = new ArrayList<>(sectorReturns);
+            allReturns.addAll(returnsOf(b.get(d)));
+            Collections.sort(allReturns);
+            DailyReturnRate combined = response.getCombined().get(d);
+            assertEquals(allReturns.size(), combined.getValidEtfCount());
+            assertEquals(allReturns.get((allReturns.size() - 1) / 2), combined.getMedianReturnRate());
+            assertEquals(a.get(d).getDecliners() + b.get(d).getDecliners(), combined.getDecliners());
+            assertEquals(a.get(d).getEndDate(), combined.getEndDate());
+        }
+    }
+
+    @Test
+    void multiQueryMatchesSeparateQueries() {
+        EtfReturnRateRequest etfRequest = new EtfReturnRateRequest(List.of("A1", "B2", "ZZ"), "2024-01-10", QUERY_DATE);
+        SectorReturnRateRequest sectorRequest = new SectorReturnRateRequest(null, "2024-01-10", "2024-02-02", true);
+        SectorsBatchQuery batchQuery = new SectorsBatchQuery("a,b", QUERY_DATE, 6, 2, false, true, null, null);
+        MultiQueryResponse response = service.getMultiQuery(new MultiQueryRequest(List.of(
+                new MultiQueryItem("batch", MultiQueryItem.SECTORS_BATCH, batchQuery, null, null),
+                new MultiQueryItem(null, MultiQueryItem.ETF_RETURN_RATE, null, etfRequest, null),
+                new MultiQueryItem(null, MultiQueryItem.SECTOR_RETURN_RATE, null, null, sectorRequest),
+                new MultiQueryItem(null, MultiQueryItem.SECTOR_RETURN_RATE, null, null, null))));
+
+        MultipleSectorsReturnRateHistoryResponse batch = (MultipleSectorsReturnRateHistoryResponse)
+                response.getResults().get(0).getData();
+        MultipleSectorsReturnRateHistoryResponse expectedBatch =
+                service.getMultipleSectorsReturnRateHistory("a,b", QUERY_DATE, 6, 2, false, true, null, null, false);
+        assertEquals("batch", response.getResults().get(0).getId());
+        assertEquals(expectedBatch.getResults(), batch.getResults());
+        assertEquals(expectedBatch.getCombined(), batch.getCombined());
+
+        List<ReturnRateResult> etfResults = ((EtfReturnRateResponse) response.getResults().get(1).getData()).getResults();
+        List<ReturnRateResult> expectedEtfResults = service.getEtfReturnRateByCodes(etfRequest).getResults();
+        for (int i = 0; i < expectedEtfResults.size(); i++) {
+            assertEquals(expectedEtfResults.get(i).getReturnRate(), etfResults.get(i).getReturnRate());
+            assertEquals(expectedEtfResults.get(i).getError(), etfResults.get(i).getError());
+        }
+
+        assertEquals(service.getReturnRateBySectors(sectorRequest), response.getResults().get(2).getData());
+        assertTrue(response.getResults().get(3).getError() != null);
+
+        // 三个子查询的日期与代码合并为一次取数
+        assertEquals(6, response.getFetchedCodes());
+        assertEquals(10, response.getFetchedDates());
+    }
+
+    private static List<BigDecimal> returnsOf(DailyReturnRate day) {
+        List<BigDecimal> returns = new ArrayList<>();
+        day.getEtfDetails().forEach(detail -> returns.add(detail.getReturnRate()));
+        Collections.sort(returns);
+        return returns;
+    }
+
+    private Map<String, List<DailyReturnRate>> streamDaily(String sectors, int n, boolean includeDetails) {
+        Map<String, List<DailyReturnRate>> daily = new LinkedHashMap<>();
+        List<String> types = new ArrayList<>();
+        service.streamSectorsReturnRateHistory(sectors, QUERY_DATE, n, includeDetails).forEach(event -> {
+            types.add(event.getType());
+            if (SectorHistoryStreamEvent.DAILY.equals(event.getType())) {
+                daily.computeIfAbsent(event.getSector(), k -> new ArrayList<>()).add(event.getDaily());
+            }
+        });
+        assertEquals(SectorHistoryStreamEvent.END, types.get(types.size() - 1));
+        return daily;
+    }
+
+    private static void seed(Connection connection, List<EtfInfo> etfs) throws Exception {
+        Random random = new Random(42);
+        try (PreparedStatement calendar = connection.prepareStatement("INSERT INTO calendar VALUES (?, ?)");
+             PreparedStatement nav = connection.prepareStatement(
+                     "INSERT INTO etf_netasset (ths_code, time, adjusted_nav) VALUES (?, ?, ?)")) {
+            double[] navs = new double[etfs.size()];
+            Arrays.fill(navs, 1.0);
+            for (int d = 0; d < CALENDAR_DAYS; d++) {
+                LocalDate day = FIRST_DAY.plusDays(d);
+                boolean trading = day.getDayOfWeek() != DayOfWeek.SATURDAY && day.getDayOfWeek() != DayOfWeek.SUNDAY;
+                calendar.setString(1, day.toString().replace("-", ""));
+                calendar.setInt(2, trading ? 1 : 0);
+                calendar.addBatch();
+                if (!trading) {
+                    continue;
+                }
+                for (int e = 0; e < etfs.size(); e++) {
+                    navs[e] *= 1 + (random.nextDouble() - 0.5) / 20;
+                    LocalDate startDay = etfs.get(e).getStartDay();
+                    // 个别日期缺失，检验缺失净值的处理
+                    if ((startDay != null && day.isBefore(startDay)) || random.nextInt(10) == 0) {
+                        continue;
+                    }
+                    nav.setString(1, etfs.get(e).getThsCode());
+                    nav.setString(2, day.toString());
+                    nav.setBigDecimal(3, BigDecimal.valueOf(navs[e]).setScale(6, RoundingMode.HALF_UP));
+                    nav.addBatch();
+                }
+            }
+            calendar.executeBatch();
+            nav.executeBatch();
+        }
+    }
+
+    private static EtfInfo etf(String code, String sector, LocalDate startDay) {
+        EtfInfo info = new EtfInfo();
+        info.setThsCode(code);
+        info.setSector(sector);
+        info.setStartDay(startDay);
+        return info;
+    }
+}
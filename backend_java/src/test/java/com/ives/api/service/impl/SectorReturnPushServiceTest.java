@@ -0,0 +1,107 @@
+package com.ives.api.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ives.api.common.exception.BusinessException;
+import com.ives.api.market.NavDataChangedEvent;
+import com.ives.api.model.dto.DailyReturnRate;
+import com.ives.api.model.dto.MultipleSectorsReturnRateHistoryResponse;
+import com.ives.api.model.dto.SectorHistoryResult;
+import com.ives.api.service.EtfReturnRateService;
+import com.ives.api.service.UserCollectionService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SectorReturnPushServiceTest {
+    private final EtfReturnRateService returnRateService = mock(EtfReturnRateService.class);
+    private final UserCollectionService collectionService = mock(UserCollectionService.class);
+    // 推送与写出在调用线程同步执行，便于断言
+    private final SectorReturnPushServiceImpl service = service(Runnable::run);
+
+    @Test
+    void computesUnionOfSectorsOncePerIngest() {
+        when(collectionService.getUserCollections(1)).thenReturn(List.of(Map.of("sector", "A"), Map.of("sector", "B")));
+        when(collectionService.getUserCollections(2)).thenReturn(List.of(Map.of("sector", "B")));
+        when(returnRateService.getMultipleSectorsReturnRateHistory(anyString(), eq("2024-01-03"), eq(1), eq(1),
+                eq(false), eq(false), any(), any(), eq(false))).thenReturn(response("A", "B"));
+        service.subscribe(1);
+        service.subscribe(2);
+
+        service.onNavDataChanged(new NavDataChangedEvent(7, "2024-01-03", List.of()));
+
+        verify(returnRateService, times(1)).getMultipleSectorsReturnRateHistory(eq("A,B"), eq("2024-01-03"),
+                eq(1), eq(1), eq(false), eq(false), any(), any(), eq(false));
+    }
+
+    @Test
+    void skipsComputationWithoutSubscribers() {
+        service.onNavDataChanged(new NavDataChangedEvent(7, "2024-01-03", List.of()));
+
+        verify(returnRateService, never()).getMultipleSectorsReturnRateHistory(anyString(), anyString(), any(),
+                any(), any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void rejectsAnonymousAndExcessConnections() {
+        when(collectionService.getUserCollections(any())).thenReturn(List.of());
+        assertThrows(BusinessException.class, () -> service.subscribe(null));
+
+        service.subscribe(1);
+        service.subscribe(1);
+        BusinessException e = assertThrows(BusinessException.class, () -> service.subscribe(1));
+        assertEquals(503, e.getStatusCode());
+        assertEquals(2, service.connectionCount());
+    }
+
+    @Test
+    void dropsSubscriberWhoseQueueFillsUp() {
+        when(collectionService.getUserCollections(any())).thenReturn(List.of());
+        // 写出任务只排队不执行，模拟卡住的连接
+        List<Runnable> stalledWrites = new ArrayList<>();
+        SectorReturnPushServiceImpl stalled = service(stalledWrites::add);
+        stalled.subscribe(1);
+
+        stalled.heartbeat();
+        assertEquals(1, stalled.connectionCount());
+        stalled.heartbeat();
+        assertEquals(0, stalled.connectionCount());
+        assertEquals(1, stalledWrites.size());
+    }
+
+    private SectorReturnPushServiceImpl service(TaskExecutor sendExecutor) {
+        return new SectorReturnPushServiceImpl(returnRateService, collectionService, new ObjectMapper(),
+                new TaskExecutorAdapter(Runnable::run), new TaskExecutorAdapter(sendExecutor),
+                new SimpleMeterRegistry(), 2, 60_000, 5_000, 2, 10_000);
+    }
+
+    private static MultipleSectorsReturnRateHistoryResponse response(String... sectors) {
+        MultipleSectorsReturnRateHistoryResponse response = new MultipleSectorsReturnRateHistoryResponse();
+        Map<String, SectorHistoryResult> results = new LinkedHashMap<>();
+        for (String sector : sectors) {
+            DailyReturnRate daily = new DailyReturnRate();
+            daily.setEndDate("2024-01-03");
+            SectorHistoryResult result = new SectorHistoryResult();
+            result.setReturnRateHistory(List.of(daily));
+            results.put(sector, result);
+        }
+        response.setResults(results);
+        return response;
+    }
+}